@@ -0,0 +1,55 @@
+package com.darmokhval.test_task;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares two JMH JSON results (e.g. baseline of previous release and current run): score and allocated
+ * bytes per operation for every benchmark present in both.
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=com.darmokhval.test_task.BenchmarkComparison
+ *     -Djmh.args="src/jmh/baseline/baseline.json target/jmh-result.json"
+ */
+public class BenchmarkComparison {
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: BenchmarkComparison <baseline.json> <current.json>");
+        }
+        Map<String, JsonNode> baseline = read(new File(args[0]));
+        Map<String, JsonNode> current = read(new File(args[1]));
+        System.out.printf("%-70s %14s %14s %8s %12s %12s %8s%n",
+                "Benchmark", "Baseline", "Current", "Change", "B/op base", "B/op now", "Change");
+        current.forEach((key, result) -> {
+            JsonNode base = baseline.get(key);
+            if (base == null) {
+                return;
+            }
+            double baseScore = base.path("primaryMetric").path("score").asDouble();
+            double currentScore = result.path("primaryMetric").path("score").asDouble();
+            double baseAllocation = base.path("secondaryMetrics").path(ALLOCATION).path("score").asDouble(Double.NaN);
+            double currentAllocation = result.path("secondaryMetrics").path(ALLOCATION).path("score").asDouble(Double.NaN);
+            System.out.printf("%-70s %14.3f %14.3f %7.1f%% %12.0f %12.0f %7.1f%%%n",
+                    key + " " + result.path("primaryMetric").path("scoreUnit").asText(),
+                    baseScore, currentScore, change(baseScore, currentScore),
+                    baseAllocation, currentAllocation, change(baseAllocation, currentAllocation));
+        });
+    }
+
+    private static Map<String, JsonNode> read(File file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            results.put(result.path("benchmark").asText() + " [" + result.path("mode").asText() + "]", result);
+        }
+        return results;
+    }
+
+    private static double change(double baseline, double current) {
+        return (current - baseline) / baseline * 100;
+    }
+}
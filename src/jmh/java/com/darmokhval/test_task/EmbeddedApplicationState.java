@@ -0,0 +1,84 @@
+package com.darmokhval.test_task;
+
+import com.darmokhval.test_task.service.EmailFilter;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Whole application started against embedded PostgreSQL and seeded with {@link #USERS} users.
+ * Started once per fork; benchmarks take beans they need from {@link #getContext()}.
+ */
+@State(Scope.Benchmark)
+public class EmbeddedApplicationState {
+    public static final int USERS = 10_000;
+    private EmbeddedPostgres postgres;
+    private ConfigurableApplicationContext context;
+    private long[] userIds;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException, InterruptedException {
+        postgres = EmbeddedPostgres.builder().start();
+        context = startApplication(postgres, "--user.email_filter.enabled=true");
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        // Birth dates are spread over ten years, every user has version 0
+        jdbcTemplate.update("""
+                INSERT INTO "user" (id, first_name, last_name, birth_date, email, address, phone_number, version)
+                SELECT nextval('user_seq'), 'First' || g, 'Last' || g, DATE '1950-01-01' + (g % 3650),
+                       'user' || g || '@bench.test', 'anywhere', '000-000-0000', 0
+                FROM generate_series(1, ?) g""", USERS);
+        // Ids are not contiguous, user_seq is incremented by allocation size
+        userIds = jdbcTemplate.queryForList("SELECT id FROM \"user\"", Long.class).stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+        // Filter is warmed asynchronously after startup, wait so filter benchmarks don't measure cold filter
+        EmailFilter emailFilter = context.getBean(EmailFilter.class);
+        for (int i = 0; i < 300 && emailFilter.mightBeUsed("never-used@bench.test"); i++) {
+            Thread.sleep(100);
+        }
+    }
+
+    /**
+     * Application connected to given database, migrated by Flyway on startup. Web server listens on random port.
+     */
+    static ConfigurableApplicationContext startApplication(EmbeddedPostgres postgres, String... extraArguments) {
+        // Command line arguments, so they take precedence over application.yaml
+        List<String> arguments = new ArrayList<>(List.of(
+                "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=",
+                "--spring.docker.compose.enabled=false",
+                "--server.port=0",
+                "--logging.level.root=WARN"));
+        arguments.addAll(List.of(extraArguments));
+        return new SpringApplicationBuilder(TestTaskApplication.class).run(arguments.toArray(String[]::new));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException {
+        context.close();
+        postgres.close();
+    }
+
+    public ConfigurableApplicationContext getContext() {
+        return context;
+    }
+
+    /**
+     * Id of one of seeded users.
+     */
+    public long randomUserId() {
+        return userIds[ThreadLocalRandom.current().nextInt(userIds.length)];
+    }
+}
@@ -0,0 +1,52 @@
+package com.darmokhval.test_task;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+
+/**
+ * Application on embedded PostgreSQL seeded with {@link #users} users (10 million by default), birth dates spread
+ * over 70 years. Trigram search indexes are dropped before seeding, they are slow to maintain on bulk insert and
+ * not used by benchmarks of this state. Seeding takes minutes.
+ */
+@State(Scope.Benchmark)
+public class LargeDatasetState {
+    @Param("10000000")
+    private int users;
+    private EmbeddedPostgres postgres;
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        postgres = EmbeddedPostgres.builder()
+                .setServerConfig("max_wal_size", "4GB")
+                .start();
+        context = EmbeddedApplicationState.startApplication(postgres);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.execute("DROP INDEX ix_user_first_name_trgm, ix_user_last_name_trgm, ix_user_email_trgm");
+        jdbcTemplate.update("""
+                INSERT INTO "user" (id, first_name, last_name, birth_date, email, address, phone_number, version)
+                SELECT nextval('user_seq'), 'First' || g, 'Last' || g, DATE '1940-01-01' + (g % 25567),
+                       'user' || g || '@bench.test', 'anywhere', '000-000-0000', 0
+                FROM generate_series(1, ?) g""", users);
+        jdbcTemplate.execute("VACUUM ANALYZE \"user\"");
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException {
+        context.close();
+        postgres.close();
+    }
+
+    public ConfigurableApplicationContext getContext() {
+        return context;
+    }
+}
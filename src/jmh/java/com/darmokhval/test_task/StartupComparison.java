@@ -0,0 +1,132 @@
+package com.darmokhval.test_task;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup time (process start until /actuator/health answers UP) and resident memory after startup
+ * of every built deployment mode: fat jar (mvn package), CDS with and without AOT (mvn -Pcds package)
+ * and native image (mvn -Pnative native:compile). Modes that weren't built are skipped.
+ * Each mode is started given number of times (default 5) against embedded PostgreSQL, medians are printed.
+ * Resident memory is read from /proc, so it's reported on Linux only.
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=com.darmokhval.test_task.StartupComparison -Djmh.args="5"
+ */
+public class StartupComparison {
+    private static final long TIMEOUT_MS = TimeUnit.MINUTES.toMillis(3);
+
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Map<String, List<String>> modes = new LinkedHashMap<>();
+        addMode(modes, "jar", "backend/app.jar", List.of(java, "-jar", "backend/app.jar"));
+        addMode(modes, "cds", "target/cds/app.jsa",
+                List.of(java, "-XX:SharedArchiveFile=target/cds/app.jsa", "-jar", "target/cds/app.jar"));
+        addMode(modes, "cds+aot", "target/cds/app.jsa",
+                List.of(java, "-XX:SharedArchiveFile=target/cds/app.jsa", "-Dspring.aot.enabled=true",
+                        "-jar", "target/cds/app.jar"));
+        addMode(modes, "native", "target/native/app", List.of("target/native/app"));
+
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start()) {
+            System.out.printf("%-10s %14s %14s%n", "Mode", "Startup ms", "RSS MB");
+            for (Map.Entry<String, List<String>> mode : modes.entrySet()) {
+                List<Long> startups = new ArrayList<>();
+                List<Long> residentMemory = new ArrayList<>();
+                for (int i = 0; i < runs; i++) {
+                    long[] result = start(mode.getValue(), postgres);
+                    startups.add(result[0]);
+                    residentMemory.add(result[1]);
+                }
+                System.out.printf("%-10s %14d %14d%n", mode.getKey(), median(startups), median(residentMemory) / 1024);
+            }
+        }
+    }
+
+    private static void addMode(Map<String, List<String>> modes, String name, String artifact, List<String> command) {
+        if (new File(artifact).exists()) {
+            modes.put(name, command);
+        } else {
+            System.out.printf("%s skipped, %s wasn't built%n", name, artifact);
+        }
+    }
+
+    /**
+     * Returns startup time in milliseconds and resident memory in kB (0 when unknown).
+     */
+    private static long[] start(List<String> command, EmbeddedPostgres postgres) throws Exception {
+        int port = freePort();
+        List<String> arguments = new ArrayList<>(command);
+        arguments.addAll(List.of(
+                "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=",
+                "--spring.docker.compose.enabled=false",
+                "--logging.level.root=WARN",
+                "--server.port=" + port));
+        long startedAt = System.nanoTime();
+        Process process = new ProcessBuilder(arguments)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            while (!isUp(port)) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with code " + process.exitValue());
+                }
+                if (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt) > TIMEOUT_MS) {
+                    throw new IllegalStateException("Application didn't start in time");
+                }
+                Thread.sleep(20);
+            }
+            long startup = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+            return new long[]{startup, residentMemory(process.pid())};
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static boolean isUp(int port) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) URI.create("http://localhost:" + port + "/actuator/health")
+                    .toURL().openConnection();
+            connection.setConnectTimeout(100);
+            return connection.getResponseCode() == 200;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static long residentMemory(long pid) throws IOException {
+        Path status = Path.of("/proc", String.valueOf(pid), "status");
+        if (!Files.exists(status)) {
+            return 0;
+        }
+        return Files.readAllLines(status).stream()
+                .filter(line -> line.startsWith("VmRSS:"))
+                .map(line -> Long.parseLong(line.replaceAll("\\D", "")))
+                .findFirst()
+                .orElse(0L);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static long median(List<Long> values) {
+        return values.stream().sorted().toList().get(values.size() / 2);
+    }
+}
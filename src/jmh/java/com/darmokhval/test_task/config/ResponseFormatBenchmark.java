@@ -0,0 +1,107 @@
+package com.darmokhval.test_task.config;
+
+import com.darmokhval.test_task.model.dto.UserDTO;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.github.luben.zstd.ZstdOutputStream;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Response body of 10 000 users (birth_date search) in every format and compression: time per response
+ * and bytes on the wire, which are printed once per trial ("wire bytes" line). Formats are written by the same
+ * message converters as in the application, gzip uses default level (as web server does), zstd level 3.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ResponseFormatBenchmark {
+    private static final Type USER_LIST = ResolvableType.forClassWithGenerics(List.class, UserDTO.class).getType();
+    @Param({"json", "smile", "cbor", "protobuf"})
+    private String format;
+    @Param({"none", "gzip", "zstd"})
+    private String compression;
+    private GenericHttpMessageConverter<Object> converter;
+    private MediaType mediaType;
+    private List<UserDTO> users;
+    private final ByteArrayOutputStream wire = new ByteArrayOutputStream(4 * 1024 * 1024);
+
+    @Setup
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        switch (format) {
+            case "json" -> converter = new MappingJackson2HttpMessageConverter(builder.build());
+            case "smile" -> converter = new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+            case "cbor" -> converter = new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+            case "protobuf" -> converter = new UserProtobufHttpMessageConverter();
+            default -> throw new IllegalArgumentException(format);
+        }
+        mediaType = converter.getSupportedMediaTypes().get(0);
+        users = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            users.add(UserDTO.builder()
+                    .id(1_000_000L + i)
+                    .firstName("First" + i)
+                    .lastName("Last" + (i % 1000))
+                    .birthDate(LocalDate.of(1950, 1, 1).plusDays(i))
+                    .email("user" + i + "@example.com")
+                    .address((i % 500) + " Main St")
+                    .phoneNumber(String.format("555-%03d-%04d", i % 1000, i))
+                    .version((long) (i % 3))
+                    .build());
+        }
+        System.out.printf("%nwire bytes format=%s compression=%s: %d%n", format, compression, writeResponse());
+    }
+
+    @Benchmark
+    public int writeResponseOf10000() throws IOException {
+        return writeResponse();
+    }
+
+    private int writeResponse() throws IOException {
+        wire.reset();
+        OutputStream body = switch (compression) {
+            case "gzip" -> new GZIPOutputStream(wire, 8192);
+            case "zstd" -> new ZstdOutputStream(wire, 3);
+            default -> wire;
+        };
+        converter.write(users, USER_LIST, mediaType, new HttpOutputMessage() {
+            private final HttpHeaders headers = new HttpHeaders();
+
+            @Override
+            public OutputStream getBody() {
+                return body;
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return headers;
+            }
+        });
+        body.close();
+        return wire.size();
+    }
+}
@@ -0,0 +1,86 @@
+package com.darmokhval.test_task.controller;
+
+import com.darmokhval.test_task.EmbeddedApplicationState;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+/**
+ * Whole request path: dispatcher, validation, service, repository, PostgreSQL and JSON, without network.
+ * Results that are not 2xx/304 fail the benchmark, so errors are never measured as fast responses.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserControllerBenchmark {
+    private final AtomicLong emailSequence = new AtomicLong();
+    private EmbeddedApplicationState application;
+    private MockMvc mockMvc;
+
+    @Setup
+    public void setUp(EmbeddedApplicationState application) {
+        this.application = application;
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) application.getContext()).build();
+    }
+
+    /**
+     * Served from users cache after first request for every id.
+     */
+    @Benchmark
+    public String getUserById() throws Exception {
+        return perform(get("/api/users/{id}", application.randomUserId()));
+    }
+
+    /**
+     * Seeded users have version 0, so only version is read and 304 is returned.
+     */
+    @Benchmark
+    public String getUserByIdNotModified() throws Exception {
+        return perform(get("/api/users/{id}", application.randomUserId()).header(HttpHeaders.IF_NONE_MATCH, "\"0\""));
+    }
+
+    @Benchmark
+    public String getBirthDatePageOf100() throws Exception {
+        return perform(get("/api/users/birth_date/page")
+                .param("from", "1950-01-01")
+                .param("to", "1960-01-01")
+                .param("size", "100"));
+    }
+
+    @Benchmark
+    public String createUser() throws Exception {
+        return perform(post("/api/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {"firstName":"John","lastName":"Doe","birthDate":"1990-01-01","email":"created%s@bench.test"}"""
+                        .formatted(emailSequence.incrementAndGet())));
+    }
+
+    @Benchmark
+    public String patchUser() throws Exception {
+        return perform(patch("/api/users/{id}", application.randomUserId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"address\":\"Patched St\"}"));
+    }
+
+    private String perform(org.springframework.test.web.servlet.RequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request).andReturn();
+        int status = result.getResponse().getStatus();
+        if (status >= 300 && status != 304) {
+            throw new IllegalStateException("Unexpected status " + status + ": " + result.getResponse().getContentAsString());
+        }
+        return result.getResponse().getContentAsString();
+    }
+}
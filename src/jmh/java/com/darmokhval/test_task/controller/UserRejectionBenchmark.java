@@ -0,0 +1,62 @@
+package com.darmokhval.test_task.controller;
+
+import com.darmokhval.test_task.EmbeddedApplicationState;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+/**
+ * Requests rejected by service checks before reaching database, as sent by bots and broken integrations:
+ * cost of building the error and rendering its body. Results that are not 400 fail the benchmark.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserRejectionBenchmark {
+    private MockMvc mockMvc;
+
+    @Setup
+    public void setUp(EmbeddedApplicationState application) {
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) application.getContext()).build();
+    }
+
+    @Benchmark
+    public String createUnderageUser() throws Exception {
+        return perform(post("/api/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {"firstName":"John","lastName":"Doe","birthDate":"2020-01-01","email":"minor@bench.test"}"""));
+    }
+
+    @Benchmark
+    public String getPageOfReversedRange() throws Exception {
+        return perform(get("/api/users/birth_date/page")
+                .param("from", "1960-01-01")
+                .param("to", "1950-01-01"));
+    }
+
+    @Benchmark
+    public String searchTooShortText() throws Exception {
+        return perform(get("/api/users/search").param("q", "ab"));
+    }
+
+    private String perform(RequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request).andReturn();
+        int status = result.getResponse().getStatus();
+        if (status != 400) {
+            throw new IllegalStateException("Unexpected status " + status + ": " + result.getResponse().getContentAsString());
+        }
+        return result.getResponse().getContentAsString();
+    }
+}
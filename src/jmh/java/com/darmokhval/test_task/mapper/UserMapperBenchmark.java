@@ -0,0 +1,50 @@
+package com.darmokhval.test_task.mapper;
+
+import com.darmokhval.test_task.model.dto.UserDTO;
+import com.darmokhval.test_task.model.entity.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class UserMapperBenchmark {
+    private final UserMapper userMapper = new UserMapper();
+    private UserDTO userDTO;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        userDTO = UserDTO.builder()
+                .firstName("John")
+                .lastName("Doe")
+                .birthDate(LocalDate.of(1990, 1, 1))
+                .email("john.doe@example.com")
+                .build();
+        user = User.builder()
+                .id(1L)
+                .firstName("John")
+                .lastName("Doe")
+                .birthDate(LocalDate.of(1990, 1, 1))
+                .email("john.doe@example.com")
+                .address("123 Main St")
+                .phoneNumber("123-456-7890")
+                .version(0L)
+                .build();
+    }
+
+    @Benchmark
+    public User dtoToEntity() {
+        return userMapper.dtoToEntity(userDTO);
+    }
+
+    @Benchmark
+    public UserDTO entityToDTO() {
+        return userMapper.entityToDTO(user);
+    }
+}
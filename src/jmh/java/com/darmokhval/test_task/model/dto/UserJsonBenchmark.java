@@ -0,0 +1,88 @@
+package com.darmokhval.test_task.model.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DTO (de)serialization with object mapper configured the way Spring Boot configures it.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class UserJsonBenchmark {
+    private ObjectWriter userWriter;
+    private ObjectWriter pageWriter;
+    private ObjectReader userReader;
+    private ObjectReader partialUserReader;
+    private UserDTO user;
+    private UserPageDTO page;
+    private byte[] userJson;
+    private byte[] partialUserJson;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        userWriter = objectMapper.writerFor(UserDTO.class);
+        pageWriter = objectMapper.writerFor(UserPageDTO.class);
+        userReader = objectMapper.readerFor(UserDTO.class);
+        partialUserReader = objectMapper.readerFor(PartialUserDTO.class);
+        user = UserDTO.builder()
+                .id(1L)
+                .firstName("John")
+                .lastName("Doe")
+                .birthDate(LocalDate.of(1990, 1, 1))
+                .email("john.doe@example.com")
+                .address("123 Main St")
+                .phoneNumber("123-456-7890")
+                .version(0L)
+                .build();
+        List<UserDTO> users = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            users.add(user);
+        }
+        page = UserPageDTO.builder()
+                .users(users)
+                .hasNext(true)
+                .lastBirthDate(user.getBirthDate())
+                .lastId(user.getId())
+                .build();
+        userJson = userWriter.writeValueAsBytes(user);
+        partialUserJson = "{\"firstName\":\"Johnny\",\"email\":\"johnny@example.com\"}".getBytes();
+    }
+
+    @Benchmark
+    public byte[] serializeUser() throws JsonProcessingException {
+        return userWriter.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public byte[] serializePageOf100() throws JsonProcessingException {
+        return pageWriter.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public UserDTO deserializeUser() throws IOException {
+        return userReader.readValue(userJson);
+    }
+
+    @Benchmark
+    public PartialUserDTO deserializePartialUser() throws IOException {
+        return partialUserReader.readValue(partialUserJson);
+    }
+}
@@ -0,0 +1,41 @@
+package com.darmokhval.test_task.service;
+
+import com.darmokhval.test_task.EmbeddedApplicationState;
+import com.darmokhval.test_task.repository.UserRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cost of email uniqueness check for a new email: index lookup in database compared with email filter,
+ * which lets create skip that lookup.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EmailCheckBenchmark {
+    private final AtomicLong emailSequence = new AtomicLong();
+    private UserRepository userRepository;
+    private EmailFilter emailFilter;
+
+    @Setup
+    public void setUp(EmbeddedApplicationState application) {
+        userRepository = application.getContext().getBean(UserRepository.class);
+        emailFilter = application.getContext().getBean(EmailFilter.class);
+    }
+
+    @Benchmark
+    public Optional<Long> databaseLookup() {
+        return userRepository.findIdByEmail("new" + emailSequence.incrementAndGet() + "@bench.test");
+    }
+
+    @Benchmark
+    public boolean emailFilter() {
+        return emailFilter.mightBeUsed("new" + emailSequence.incrementAndGet() + "@bench.test");
+    }
+}
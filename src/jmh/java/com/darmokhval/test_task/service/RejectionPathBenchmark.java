@@ -0,0 +1,91 @@
+package com.darmokhval.test_task.service;
+
+import com.darmokhval.test_task.controller.ProblemBodies;
+import com.darmokhval.test_task.repository.UserSpecification;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpStatus;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of rejecting underage registration and unsupported search mode, from check to rendered error body,
+ * without web framework around it.
+ * legacy is how it was done before UserError: Period per check, IllegalArgumentException with String.format
+ * message and stack trace, HashMap body serialized by ObjectMapper. Real stacks are deeper than benchmark's,
+ * so legacy stack trace costs more in application than here.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RejectionPathBenchmark {
+    private static final int REQUIRED_AGE = 18;
+    private static final String INSTANCE = "/api/users";
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String SEARCH_MODE = "exact";
+    private final LocalDate birthDate = LocalDate.now().minusYears(10);
+
+    @Benchmark
+    public byte[] legacy() throws Exception {
+        try {
+            if (Period.between(birthDate, LocalDate.now()).getYears() < REQUIRED_AGE) {
+                throw new IllegalArgumentException(String.format("User must be older than %s to register!", REQUIRED_AGE));
+            }
+            return null;
+        } catch (IllegalArgumentException exception) {
+            return legacyBody(exception);
+        }
+    }
+
+    @Benchmark
+    public byte[] problem() {
+        try {
+            if (!UserService.isValidAge(birthDate, REQUIRED_AGE)) {
+                throw UserError.UNDERAGE_REGISTRATION.exception(REQUIRED_AGE);
+            }
+            return null;
+        } catch (UserRequestException exception) {
+            return ProblemBodies.body(exception, INSTANCE);
+        }
+    }
+
+    @Benchmark
+    public byte[] legacySearchMode() throws Exception {
+        try {
+            if (!SEARCH_MODE.equalsIgnoreCase("prefix") && !SEARCH_MODE.equalsIgnoreCase("fuzzy")) {
+                throw new IllegalArgumentException(
+                        String.format("Unsupported search mode %s, use prefix or fuzzy!", SEARCH_MODE));
+            }
+            return null;
+        } catch (IllegalArgumentException exception) {
+            return legacyBody(exception);
+        }
+    }
+
+    @Benchmark
+    public byte[] problemSearchMode() {
+        try {
+            UserSpecification.SearchMode.of(SEARCH_MODE);
+            return null;
+        } catch (UserRequestException exception) {
+            return ProblemBodies.body(exception, INSTANCE);
+        }
+    }
+
+    private byte[] legacyBody(IllegalArgumentException exception) throws Exception {
+        Map<String, Object> responseBody = new HashMap<>();
+        responseBody.put("timestamp", System.currentTimeMillis());
+        responseBody.put("status", HttpStatus.BAD_REQUEST.value());
+        responseBody.put("error", HttpStatus.BAD_REQUEST.getReasonPhrase());
+        responseBody.put("message", exception.getMessage());
+        responseBody.put("path", "uri=" + INSTANCE);
+        return objectMapper.writeValueAsBytes(responseBody);
+    }
+}
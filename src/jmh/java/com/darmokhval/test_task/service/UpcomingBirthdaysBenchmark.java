@@ -0,0 +1,71 @@
+package com.darmokhval.test_task.service;
+
+import com.darmokhval.test_task.LargeDatasetState;
+import com.darmokhval.test_task.model.dto.UserPageDTO;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pages of upcoming birthdays on 10 million users, read by index on generated birth_month_day column, compared
+ * with filtering and sorting by month and day extracted from birth date on every row.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class UpcomingBirthdaysBenchmark {
+    private static final int DAYS = 30;
+    private static final int PAGE_SIZE = 100;
+    private static final LocalDate DATE = LocalDate.of(2025, 6, 10);
+    private static final LocalDate NEW_YEAR_EVE = LocalDate.of(2025, 12, 20);
+    private UserService userService;
+    private JdbcTemplate jdbcTemplate;
+    private LocalDate lastPageBirthDate;
+    private Long lastPageId;
+
+    @Setup
+    public void setUp(LargeDatasetState application) {
+        userService = application.getContext().getBean(UserService.class);
+        jdbcTemplate = application.getContext().getBean(JdbcTemplate.class);
+        // Cursor of a page on the last day of window
+        Map<String, Object> cursor = jdbcTemplate.queryForMap("""
+                SELECT birth_date, id FROM "user" WHERE birth_month_day = 709 ORDER BY id LIMIT 1""");
+        lastPageBirthDate = ((Date) cursor.get("birth_date")).toLocalDate();
+        lastPageId = ((Number) cursor.get("id")).longValue();
+    }
+
+    @Benchmark
+    public UserPageDTO firstPage() {
+        return userService.findUpcomingBirthdays(DATE, DAYS, null, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public UserPageDTO lastPage() {
+        return userService.findUpcomingBirthdays(DATE, DAYS, lastPageBirthDate, lastPageId, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public UserPageDTO acrossNewYear() {
+        return userService.findUpcomingBirthdays(NEW_YEAR_EVE, DAYS, null, null, PAGE_SIZE);
+    }
+
+    /**
+     * First page computed from birth date without generated column, each row has to be read and sorted.
+     */
+    @Benchmark
+    public List<Long> extractedMonthDayScan() {
+        return jdbcTemplate.queryForList("""
+                SELECT id FROM "user"
+                WHERE (EXTRACT(MONTH FROM birth_date) * 100 + EXTRACT(DAY FROM birth_date)) BETWEEN 610 AND 709
+                ORDER BY EXTRACT(MONTH FROM birth_date), EXTRACT(DAY FROM birth_date), id
+                LIMIT ?""", Long.class, PAGE_SIZE);
+    }
+}
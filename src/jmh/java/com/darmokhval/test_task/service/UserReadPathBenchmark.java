@@ -0,0 +1,54 @@
+package com.darmokhval.test_task.service;
+
+import com.darmokhval.test_task.EmbeddedApplicationState;
+import com.darmokhval.test_task.mapper.UserMapper;
+import com.darmokhval.test_task.model.dto.UserDTO;
+import com.darmokhval.test_task.repository.UserRepository;
+import com.darmokhval.test_task.repository.UserSpecification;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Range search (about 160 users) through DTO projection, as UserService does it, compared with loading
+ * managed entities and copying them through UserMapper. Run with -prof gc to compare allocation per call.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserReadPathBenchmark {
+    private static final LocalDate FROM = LocalDate.of(1955, 1, 1);
+    private static final LocalDate TO = LocalDate.of(1955, 3, 1);
+    private UserService userService;
+    private UserRepository userRepository;
+    private UserMapper userMapper;
+    private TransactionTemplate transactionTemplate;
+
+    @Setup
+    public void setUp(EmbeddedApplicationState application) {
+        userService = application.getContext().getBean(UserService.class);
+        userRepository = application.getContext().getBean(UserRepository.class);
+        userMapper = application.getContext().getBean(UserMapper.class);
+        transactionTemplate = new TransactionTemplate(application.getContext().getBean(PlatformTransactionManager.class));
+    }
+
+    @Benchmark
+    public List<UserDTO> dtoProjection() {
+        return userService.findUsersByBirthDateRange(FROM, TO);
+    }
+
+    @Benchmark
+    public List<UserDTO> entitiesThroughMapper() {
+        return transactionTemplate.execute(status ->
+                userRepository.findAll(UserSpecification.hasBirthDateBetween(FROM, TO)).stream()
+                        .map(userMapper::entityToDTO)
+                        .toList());
+    }
+}
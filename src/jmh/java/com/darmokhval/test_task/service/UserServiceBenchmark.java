@@ -0,0 +1,50 @@
+package com.darmokhval.test_task.service;
+
+import com.darmokhval.test_task.model.dto.UserDTO;
+import com.darmokhval.test_task.model.dto.UserPageDTO;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validation and paging logic of {@link UserService} that runs on every request, without database.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class UserServiceBenchmark {
+    private static final int REQUIRED_AGE = 18;
+    private LocalDate[] birthDates;
+    private List<UserDTO> users;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        birthDates = new LocalDate[1024];
+        for (int i = 0; i < birthDates.length; i++) {
+            birthDates[i] = LocalDate.now().minusDays(i * 13L);
+        }
+        users = new ArrayList<>();
+        for (long i = 0; i <= 100; i++) {
+            users.add(UserDTO.builder().id(i).birthDate(LocalDate.of(1990, 1, 1)).build());
+        }
+    }
+
+    @Benchmark
+    public boolean isValidAge() {
+        return UserService.isValidAge(birthDates[index++ & (birthDates.length - 1)], REQUIRED_AGE);
+    }
+
+    @Benchmark
+    public UserPageDTO validateAndBuildPage() {
+        UserService.validatePageRequest(LocalDate.of(1950, 1, 1), LocalDate.of(2000, 1, 1),
+                LocalDate.of(1990, 1, 1), 1L, 100, 1000);
+        return UserService.toPage(users, 100);
+    }
+}
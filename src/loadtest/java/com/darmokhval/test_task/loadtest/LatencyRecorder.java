@@ -0,0 +1,88 @@
+package com.darmokhval.test_task.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency (microseconds, from intended start of request, so queueing caused by slow responses is counted)
+ * and response statuses per request name. Interval histograms are written to HdrHistogram log as they are taken,
+ * totals are kept for summary.
+ */
+class LatencyRecorder {
+    static final String ALL = "all";
+    static final int NO_RESPONSE = 0;
+    static final int NOT_SENT = -1;
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(10);
+    private final ConcurrentMap<String, Recorder> recorders = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> totals = new TreeMap<>();
+    private final ConcurrentMap<String, ConcurrentMap<Integer, LongAdder>> statuses = new ConcurrentHashMap<>();
+    private final HistogramLogWriter logWriter;
+    private final long startMillis;
+
+    LatencyRecorder(HistogramLogWriter logWriter, long startMillis) {
+        this.logWriter = logWriter;
+        this.startMillis = startMillis;
+        logWriter.outputStartTime(startMillis);
+        logWriter.outputLogFormatVersion();
+        logWriter.outputLegend();
+    }
+
+    /**
+     * @param status HTTP status, {@link #NO_RESPONSE} when request failed, {@link #NOT_SENT} when too many were in flight
+     */
+    void record(String name, long latencyNanos, int status) {
+        long micros = Math.min(HIGHEST_MICROS, Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+        if (status != NOT_SENT) {
+            recorder(name).recordValue(micros);
+            recorder(ALL).recordValue(micros);
+        }
+        statuses.computeIfAbsent(name, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(status, key -> new LongAdder())
+                .increment();
+    }
+
+    /**
+     * Histograms of requests completed since previous interval, by name; also added to totals and log.
+     */
+    synchronized Map<String, Histogram> interval() {
+        Map<String, Histogram> interval = new TreeMap<>();
+        recorders.forEach((name, recorder) -> {
+            Histogram histogram = recorder.getIntervalHistogram();
+            histogram.setTag(name);
+            interval.put(name, histogram);
+            totals.computeIfAbsent(name, key -> new Histogram(HIGHEST_MICROS, 3)).add(histogram);
+            logWriter.outputIntervalHistogram((histogram.getStartTimeStamp() - startMillis) / 1000.0,
+                    (histogram.getEndTimeStamp() - startMillis) / 1000.0, histogram, 1.0);
+        });
+        return interval;
+    }
+
+    synchronized Map<String, Histogram> totals() {
+        return totals;
+    }
+
+    /**
+     * Number of responses by status, {@link #NO_RESPONSE} and {@link #NOT_SENT} included.
+     */
+    Map<Integer, Long> statuses(String name) {
+        Map<Integer, Long> counts = new TreeMap<>();
+        statuses.forEach((requestName, byStatus) -> {
+            if (name.equals(ALL) || name.equals(requestName)) {
+                byStatus.forEach((status, count) -> counts.merge(status, count.sum(), Long::sum));
+            }
+        });
+        return counts;
+    }
+
+    private Recorder recorder(String name) {
+        return recorders.computeIfAbsent(name, key -> new Recorder(HIGHEST_MICROS, 3));
+    }
+}
@@ -0,0 +1,246 @@
+package com.darmokhval.test_task.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load test of running application with requests of Postman collection (User_collection.postman_collection.json).
+ * Open model: requests are sent at given rate (Poisson or evenly spaced arrivals) whether or not earlier ones
+ * completed, and latency is measured from the moment request was due, so a slow server can't slow the test down
+ * and hide its own queueing. Requests are picked by weights of mix; ids, birth date windows and emails are
+ * randomized (see {@link RequestTemplate}). Same seed gives same sequence of requests.
+ * Database is read (and seeded with seed_users users when asked, see {@link UserDataset}) through jdbc_url.
+ * Prints throughput and latency percentiles every report_interval and per request at the end; writes summary JSON
+ * and HdrHistogram log (HistogramLogProcessor, HdrHistogram plotter) into report directory. With baseline=<summary
+ * of earlier run> prints change of throughput and p99 against it.
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.args="seed_users=5000000 rate=500 duration=5m"
+ */
+public class LoadTest {
+    private static final DateTimeFormatter RUN_NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS)
+            .enable(SerializationFeature.INDENT_OUTPUT);
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        Map<String, RequestTemplate> templates = RequestTemplate.read(new File(options.collection()));
+        List<RequestTemplate> mix = new ArrayList<>();
+        int[] cumulativeWeights = new int[options.mix().size()];
+        int total = 0;
+        for (Map.Entry<String, Integer> entry : options.mix().entrySet()) {
+            RequestTemplate template = templates.get(entry.getKey());
+            if (template == null) {
+                throw new IllegalArgumentException(String.format("Request %s isn't in collection, use one of %s!",
+                        entry.getKey(), templates.keySet()));
+            }
+            total += entry.getValue();
+            cumulativeWeights[mix.size()] = total;
+            mix.add(template);
+        }
+
+        UserDataset dataset = new UserDataset(options.jdbcUrl(), options.jdbcUser(), options.jdbcPassword());
+        if (options.seedUsers() > 0) {
+            dataset.seed(options.seedUsers(), options.seed());
+        }
+        String runName = LocalDateTime.now().format(RUN_NAME);
+        RequestTemplate.Parameters parameters = dataset.parameters(options.rangeDays(), runName);
+        System.out.printf("%,d users born %s..%s, %.0f requests/s for %s after %s of warmup%n",
+                parameters.userIds().length, parameters.firstBirthDate(), parameters.lastBirthDate(),
+                options.rate(), options.duration(), options.warmup());
+
+        Path report = Path.of(options.report());
+        Files.createDirectories(report);
+        try (PrintStream log = new PrintStream(report.resolve(runName + ".hlog").toFile())) {
+            LatencyRecorder recorder = run(options, mix, cumulativeWeights, parameters, new HistogramLogWriter(log));
+            ObjectNode summary = summary(options, recorder);
+            Files.writeString(report.resolve(runName + ".json"), OBJECT_MAPPER.writeValueAsString(summary));
+            System.out.printf("Summary and histogram log written to %s%n", report.resolve(runName + ".*"));
+            if (options.baseline() != null) {
+                compare(OBJECT_MAPPER.readTree(new File(options.baseline())), summary);
+            }
+        }
+    }
+
+    private static LatencyRecorder run(LoadTestOptions options, List<RequestTemplate> mix, int[] cumulativeWeights,
+                                       RequestTemplate.Parameters parameters, HistogramLogWriter logWriter)
+            throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        SplittableRandom random = new SplittableRandom(options.seed());
+        Semaphore inFlight = new Semaphore(options.maxInFlight());
+        AtomicBoolean failureReported = new AtomicBoolean();
+        long start = System.nanoTime();
+        long measureFrom = start + options.warmup().toNanos();
+        long end = measureFrom + options.duration().toNanos();
+        LatencyRecorder recorder = new LatencyRecorder(logWriter,
+                System.currentTimeMillis() + options.warmup().toMillis());
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(() -> printInterval(recorder, options.reportInterval(), measureFrom),
+                options.warmup().plus(options.reportInterval()).toNanos(), options.reportInterval().toNanos(),
+                TimeUnit.NANOSECONDS);
+        System.out.printf("%10s %12s %10s %10s %10s %10s %10s%n",
+                "Elapsed s", "Requests/s", "p50 ms", "p90 ms", "p99 ms", "Max ms", "Failed");
+
+        double meanGapNanos = TimeUnit.SECONDS.toNanos(1) / options.rate();
+        double due = start;
+        while (true) {
+            due += options.poisson() ? -Math.log(1 - random.nextDouble()) * meanGapNanos : meanGapNanos;
+            long dueNanos = (long) due;
+            if (dueNanos >= end) {
+                break;
+            }
+            for (long wait = dueNanos - System.nanoTime(); wait > 0; wait = dueNanos - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+            RequestTemplate template = pick(mix, cumulativeWeights, random);
+            boolean measured = dueNanos >= measureFrom;
+            if (!inFlight.tryAcquire()) {
+                if (measured) {
+                    recorder.record(template.name(), 0, LatencyRecorder.NOT_SENT);
+                }
+                continue;
+            }
+            client.sendAsync(template.toRequest(options.baseUrl(), parameters, random), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        long latency = System.nanoTime() - dueNanos;
+                        if (failure != null && failureReported.compareAndSet(false, true)) {
+                            System.out.printf("%s failed: %s (further failures are only counted)%n", template.name(), failure);
+                        }
+                        if (measured) {
+                            recorder.record(template.name(), latency,
+                                    response != null ? response.statusCode() : LatencyRecorder.NO_RESPONSE);
+                        }
+                        // released after recording, so requests of the test are all in when permits are taken back
+                        inFlight.release();
+                    });
+        }
+        if (!inFlight.tryAcquire(options.maxInFlight(), 1, TimeUnit.MINUTES)) {
+            System.out.println("Some requests didn't complete within a minute after the test, they are not counted");
+        }
+        reporter.shutdownNow();
+        recorder.interval();
+        return recorder;
+    }
+
+    private static RequestTemplate pick(List<RequestTemplate> mix, int[] cumulativeWeights, SplittableRandom random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int index = 0;
+        while (cumulativeWeights[index] <= value) {
+            index++;
+        }
+        return mix.get(index);
+    }
+
+    private static void printInterval(LatencyRecorder recorder, Duration reportInterval, long measureFrom) {
+        Histogram all = recorder.interval().get(LatencyRecorder.ALL);
+        if (all == null) {
+            return;
+        }
+        long failed = recorder.statuses(LatencyRecorder.ALL).entrySet().stream()
+                .filter(entry -> isFailure(entry.getKey()))
+                .mapToLong(Map.Entry::getValue)
+                .sum();
+        System.out.printf("%10.0f %12.1f %10.2f %10.2f %10.2f %10.2f %10d%n",
+                (System.nanoTime() - measureFrom) / 1e9,
+                all.getTotalCount() / (reportInterval.toMillis() / 1000.0),
+                millis(all.getValueAtPercentile(50)), millis(all.getValueAtPercentile(90)),
+                millis(all.getValueAtPercentile(99)), millis(all.getMaxValue()), failed);
+    }
+
+    private static ObjectNode summary(LoadTestOptions options, LatencyRecorder recorder) {
+        ObjectNode summary = OBJECT_MAPPER.createObjectNode();
+        ObjectNode summaryOptions = summary.putObject("options");
+        summaryOptions.setAll((ObjectNode) OBJECT_MAPPER.valueToTree(options));
+        summaryOptions.remove("jdbcPassword");
+        ObjectNode results = summary.putObject("results");
+        double seconds = options.duration().toMillis() / 1000.0;
+        System.out.printf("%n%-40s %10s %12s %10s %10s %10s %10s %10s  %s%n",
+                "Request", "Count", "Requests/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "Max ms", "Statuses");
+        recorder.totals().forEach((name, histogram) -> {
+            Map<Integer, Long> statuses = recorder.statuses(name);
+            ObjectNode result = results.putObject(name);
+            result.put("count", histogram.getTotalCount());
+            result.put("throughput", histogram.getTotalCount() / seconds);
+            ObjectNode latency = result.putObject("latency_ms");
+            latency.put("mean", millis(histogram.getMean()));
+            latency.put("p50", millis(histogram.getValueAtPercentile(50)));
+            latency.put("p90", millis(histogram.getValueAtPercentile(90)));
+            latency.put("p99", millis(histogram.getValueAtPercentile(99)));
+            latency.put("p99_9", millis(histogram.getValueAtPercentile(99.9)));
+            latency.put("max", millis(histogram.getMaxValue()));
+            ObjectNode statusCounts = result.putObject("statuses");
+            statuses.forEach((status, count) -> statusCounts.put(statusName(status), count));
+            System.out.printf("%-40s %10d %12.1f %10.2f %10.2f %10.2f %10.2f %10.2f  %s%n", name,
+                    histogram.getTotalCount(), histogram.getTotalCount() / seconds,
+                    latency.get("p50").asDouble(), latency.get("p90").asDouble(), latency.get("p99").asDouble(),
+                    latency.get("p99_9").asDouble(), latency.get("max").asDouble(), statusCounts);
+        });
+        return summary;
+    }
+
+    private static void compare(JsonNode baseline, JsonNode current) {
+        System.out.printf("%n%-40s %14s %14s %8s %12s %12s %8s%n",
+                "Request", "Requests/s base", "Requests/s now", "Change", "p99 ms base", "p99 ms now", "Change");
+        current.path("results").fields().forEachRemaining(entry -> {
+            JsonNode base = baseline.path("results").get(entry.getKey());
+            if (base == null) {
+                return;
+            }
+            double baseThroughput = base.path("throughput").asDouble();
+            double throughput = entry.getValue().path("throughput").asDouble();
+            double baseP99 = base.path("latency_ms").path("p99").asDouble();
+            double p99 = entry.getValue().path("latency_ms").path("p99").asDouble();
+            System.out.printf("%-40s %14.1f %14.1f %7.1f%% %12.2f %12.2f %7.1f%%%n", entry.getKey(),
+                    baseThroughput, throughput, change(baseThroughput, throughput), baseP99, p99, change(baseP99, p99));
+        });
+    }
+
+    private static boolean isFailure(int status) {
+        return status < 200 || status >= 400;
+    }
+
+    private static String statusName(int status) {
+        return switch (status) {
+            case LatencyRecorder.NO_RESPONSE -> "no_response";
+            case LatencyRecorder.NOT_SENT -> "not_sent";
+            default -> String.valueOf(status);
+        };
+    }
+
+    private static double millis(double micros) {
+        return Math.round(micros / 10.0) / 100.0;
+    }
+
+    private static double change(double baseline, double current) {
+        return (current - baseline) / baseline * 100;
+    }
+}
@@ -0,0 +1,97 @@
+package com.darmokhval.test_task.loadtest;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Options of {@link LoadTest}, given as name=value arguments. Durations use Spring style (30s, 5m, 500ms).
+ */
+record LoadTestOptions(String baseUrl,
+                       String collection,
+                       Map<String, Integer> mix,
+                       double rate,
+                       boolean poisson,
+                       Duration warmup,
+                       Duration duration,
+                       Duration reportInterval,
+                       int maxInFlight,
+                       int rangeDays,
+                       long seed,
+                       String jdbcUrl,
+                       String jdbcUser,
+                       String jdbcPassword,
+                       long seedUsers,
+                       String report,
+                       String baseline) {
+    static final String DEFAULT_MIX = "get_user_by_id=40,get_user_by_id_if_none_match=10,"
+            + "get_users_by_birth_date_range_page=25,create_user=10,update_user=5,partially_update_user_by_id=10";
+    private static final Set<String> NAMES = Set.of("base_url", "collection", "mix", "rate", "arrival", "warmup",
+            "duration", "report_interval", "max_in_flight", "range_days", "seed", "jdbc_url", "jdbc_user",
+            "jdbc_password", "seed_users", "report", "baseline");
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            String name = separator > 0 ? arg.substring(0, separator) : null;
+            if (name == null || !NAMES.contains(name)) {
+                throw new IllegalArgumentException(String.format("Unknown argument %s, expected name=value with name one of %s!",
+                        arg, NAMES));
+            }
+            values.put(name, arg.substring(separator + 1));
+        }
+        String arrival = values.getOrDefault("arrival", "poisson");
+        if (!arrival.equals("poisson") && !arrival.equals("uniform")) {
+            throw new IllegalArgumentException(String.format("Unsupported arrival %s, use poisson or uniform!", arrival));
+        }
+        LoadTestOptions options = new LoadTestOptions(
+                values.getOrDefault("base_url", "http://localhost:8080"),
+                values.getOrDefault("collection", "User_collection.postman_collection.json"),
+                parseMix(values.getOrDefault("mix", DEFAULT_MIX)),
+                Double.parseDouble(values.getOrDefault("rate", "100")),
+                arrival.equals("poisson"),
+                parseDuration(values.getOrDefault("warmup", "10s")),
+                parseDuration(values.getOrDefault("duration", "60s")),
+                parseDuration(values.getOrDefault("report_interval", "5s")),
+                Integer.parseInt(values.getOrDefault("max_in_flight", "1000")),
+                Integer.parseInt(values.getOrDefault("range_days", "30")),
+                Long.parseLong(values.getOrDefault("seed", "42")),
+                values.getOrDefault("jdbc_url", "jdbc:postgresql://localhost:5432/mypostgredb"),
+                values.getOrDefault("jdbc_user", "user"),
+                values.getOrDefault("jdbc_password", "secret"),
+                Long.parseLong(values.getOrDefault("seed_users", "0")),
+                values.getOrDefault("report", "target/loadtest"),
+                values.get("baseline"));
+        if (options.rate() <= 0 || options.maxInFlight() < 1 || options.rangeDays() < 1) {
+            throw new IllegalArgumentException("rate, max_in_flight and range_days must be positive!");
+        }
+        return options;
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] nameAndWeight = entry.split("=");
+            int weight = nameAndWeight.length == 2 ? Integer.parseInt(nameAndWeight[1].trim()) : 0;
+            if (weight <= 0) {
+                throw new IllegalArgumentException(String.format("Invalid mix entry %s, expected <request name>=<positive weight>!", entry));
+            }
+            weights.put(nameAndWeight[0].trim(), weight);
+        }
+        return weights;
+    }
+
+    private static Duration parseDuration(String value) {
+        String number = value.replaceAll("[a-z]+$", "");
+        long amount = Long.parseLong(number);
+        return switch (value.substring(number.length())) {
+            case "ms" -> Duration.ofMillis(amount);
+            case "s", "" -> Duration.ofSeconds(amount);
+            case "m" -> Duration.ofMinutes(amount);
+            case "h" -> Duration.ofHours(amount);
+            default -> throw new IllegalArgumentException(String.format("Unsupported duration %s, use ms, s, m or h!", value));
+        };
+    }
+}
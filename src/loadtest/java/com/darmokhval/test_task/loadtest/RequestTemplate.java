@@ -0,0 +1,122 @@
+package com.darmokhval.test_task.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Request of Postman collection, turned into a fresh request every time it is sent: user id at the end of path
+ * is replaced by id of a random seeded user, from/to query parameters by a random birth date window, and emails
+ * in JSON body by unique ones, so creates and updates don't fail on taken email.
+ */
+record RequestTemplate(String name, String method, String path, Map<String, String> headers, JsonNode body) {
+    private static final Pattern TRAILING_ID = Pattern.compile("/\\d+$");
+    private static final Pattern DATE_PARAMETER = Pattern.compile("(from|to)=\\d{4}-\\d{2}-\\d{2}");
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * Requests of collection (folders flattened) by name.
+     */
+    static Map<String, RequestTemplate> read(File collection) throws IOException {
+        Map<String, RequestTemplate> templates = new LinkedHashMap<>();
+        addItems(OBJECT_MAPPER.readTree(collection).path("item"), templates);
+        return templates;
+    }
+
+    private static void addItems(JsonNode items, Map<String, RequestTemplate> templates) throws IOException {
+        for (JsonNode item : items) {
+            if (item.has("item")) {
+                addItems(item.get("item"), templates);
+                continue;
+            }
+            JsonNode request = item.path("request");
+            JsonNode url = request.path("url");
+            String raw = url.isTextual() ? url.asText() : url.path("raw").asText();
+            int api = raw.indexOf("/api/");
+            if (api < 0) {
+                continue;
+            }
+            Map<String, String> headers = new LinkedHashMap<>();
+            for (JsonNode header : request.path("header")) {
+                if (!header.path("disabled").asBoolean()) {
+                    headers.put(header.path("key").asText(), header.path("value").asText());
+                }
+            }
+            String rawBody = request.path("body").path("raw").asText("");
+            JsonNode body = rawBody.isBlank() ? null : OBJECT_MAPPER.readTree(rawBody);
+            templates.put(item.path("name").asText(),
+                    new RequestTemplate(item.path("name").asText(), request.path("method").asText(), raw.substring(api),
+                            headers, body));
+        }
+    }
+
+    HttpRequest toRequest(String baseUrl, Parameters parameters, SplittableRandom random) {
+        String uri = baseUrl + withRandomDates(withRandomId(path, parameters, random), parameters, random);
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(uri)).timeout(REQUEST_TIMEOUT);
+        headers.forEach(builder::header);
+        if (body == null) {
+            return builder.method(method, HttpRequest.BodyPublishers.noBody()).build();
+        }
+        JsonNode requestBody = body.deepCopy();
+        if (requestBody.isArray()) {
+            requestBody.forEach(element -> withUniqueEmail(element, parameters));
+        } else {
+            withUniqueEmail(requestBody, parameters);
+        }
+        if (!headers.containsKey("Content-Type")) {
+            builder.header("Content-Type", "application/json");
+        }
+        return builder.method(method, HttpRequest.BodyPublishers.ofString(requestBody.toString())).build();
+    }
+
+    private static String withRandomId(String path, Parameters parameters, SplittableRandom random) {
+        Matcher matcher = TRAILING_ID.matcher(path.contains("?") ? path.substring(0, path.indexOf('?')) : path);
+        if (!matcher.find() || parameters.userIds().length == 0) {
+            return path;
+        }
+        long id = parameters.userIds()[random.nextInt(parameters.userIds().length)];
+        return path.substring(0, matcher.start()) + "/" + id + path.substring(matcher.end());
+    }
+
+    private static String withRandomDates(String path, Parameters parameters, SplittableRandom random) {
+        Matcher matcher = DATE_PARAMETER.matcher(path);
+        if (!matcher.find()) {
+            return path;
+        }
+        long days = Math.max(1, parameters.lastBirthDate().toEpochDay() - parameters.firstBirthDate().toEpochDay()
+                - parameters.rangeDays());
+        LocalDate from = parameters.firstBirthDate().plusDays(random.nextLong(days));
+        LocalDate to = from.plusDays(parameters.rangeDays());
+        return matcher.replaceAll(result -> result.group(1) + "=" + (result.group(1).equals("from") ? from : to));
+    }
+
+    private static void withUniqueEmail(JsonNode node, Parameters parameters) {
+        if (node instanceof ObjectNode object && object.has("email")) {
+            object.put("email", "load-" + parameters.runId() + "-" + parameters.nextEmail() + "@load.test");
+        }
+    }
+
+    /**
+     * What requests are made from: seeded users and their birth dates, width of requested birth date windows.
+     */
+    record Parameters(long[] userIds, LocalDate firstBirthDate, LocalDate lastBirthDate, int rangeDays,
+                      String runId, AtomicLong emailSequence) {
+        long nextEmail() {
+            return emailSequence.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.darmokhval.test_task.loadtest;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Users in the database the application uses. Seeded users are adults whose ages follow a population pyramid
+ * (flat until 55, thinning out to a few centenarians), birthdays spread over the whole year. Same seed and
+ * size give the same users.
+ */
+class UserDataset {
+    static final int MIN_AGE = 18;
+    static final int MAX_AGE = 100;
+    private static final long CHUNK = 1_000_000;
+    private final String url;
+    private final String user;
+    private final String password;
+
+    UserDataset(String url, String user, String password) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+    }
+
+    /**
+     * Insert users until there are given number of them.
+     */
+    void seed(long users, long seed) throws SQLException {
+        try (Connection connection = connect()) {
+            long existing = count(connection);
+            if (existing >= users) {
+                System.out.printf("%,d users present, nothing to seed%n", existing);
+                return;
+            }
+            try (PreparedStatement setSeed = connection.prepareStatement("SELECT setseed(?)")) {
+                setSeed.setDouble(1, (seed % 1000) / 1000.0);
+                setSeed.execute();
+            }
+            Double[] ageThresholds = Arrays.stream(cumulativeAgeWeights()).boxed().toArray(Double[]::new);
+            // g continues numbering of previous runs, emails stay unique
+            try (PreparedStatement insert = connection.prepareStatement("""
+                    INSERT INTO "user" (id, first_name, last_name, birth_date, email, address, phone_number, version)
+                    SELECT nextval('user_seq'), 'First' || g, 'Last' || g,
+                           (current_date - make_interval(years => width_bucket(random(), ?) + ?))::date
+                               - floor(random() * 365)::int,
+                           'seed' || g || '@load.test', 'Street ' || g % 1000, '000-000-' || lpad((g % 10000)::text, 4, '0'), 0
+                    FROM generate_series(?, ?) g
+                    ON CONFLICT DO NOTHING""")) {
+                insert.setArray(1, connection.createArrayOf("float8", ageThresholds));
+                insert.setInt(2, MIN_AGE - 1);
+                for (long first = existing + 1; first <= users; first += CHUNK) {
+                    long last = Math.min(users, first + CHUNK - 1);
+                    insert.setLong(3, first);
+                    insert.setLong(4, last);
+                    insert.executeUpdate();
+                    System.out.printf("seeded users %,d..%,d%n", first, last);
+                }
+            }
+            try (Statement analyze = connection.createStatement()) {
+                analyze.execute("ANALYZE \"user\"");
+            }
+        }
+    }
+
+    /**
+     * Ids and birth date range of users present, requests are made for them.
+     */
+    RequestTemplate.Parameters parameters(int rangeDays, String runId) throws SQLException {
+        try (Connection connection = connect()) {
+            connection.setAutoCommit(false);
+            long[] ids = new long[(int) Math.min(Integer.MAX_VALUE - 8, Math.max(16, count(connection)))];
+            int size = 0;
+            try (Statement statement = connection.createStatement()) {
+                statement.setFetchSize(10_000);
+                try (ResultSet resultSet = statement.executeQuery("SELECT id FROM \"user\"")) {
+                    while (resultSet.next() && size < ids.length) {
+                        ids[size++] = resultSet.getLong(1);
+                    }
+                }
+                try (ResultSet resultSet = statement.executeQuery("SELECT min(birth_date), max(birth_date) FROM \"user\"")) {
+                    resultSet.next();
+                    LocalDate first = resultSet.getObject(1, LocalDate.class);
+                    LocalDate last = resultSet.getObject(2, LocalDate.class);
+                    return new RequestTemplate.Parameters(Arrays.copyOf(ids, size),
+                            first != null ? first : LocalDate.now().minusYears(MAX_AGE),
+                            last != null ? last : LocalDate.now().minusYears(MIN_AGE),
+                            rangeDays, runId, new AtomicLong());
+                }
+            } finally {
+                connection.rollback();
+            }
+        }
+    }
+
+    /**
+     * Lower bounds of ages 18..100 on [0, 1): age is picked by width_bucket of uniform random number.
+     */
+    static double[] cumulativeAgeWeights() {
+        double[] weights = new double[MAX_AGE - MIN_AGE + 1];
+        double total = 0;
+        for (int age = MIN_AGE; age <= MAX_AGE; age++) {
+            weights[age - MIN_AGE] = ageWeight(age);
+            total += weights[age - MIN_AGE];
+        }
+        double[] thresholds = new double[weights.length];
+        double cumulative = 0;
+        for (int i = 0; i < weights.length; i++) {
+            thresholds[i] = cumulative / total;
+            cumulative += weights[i];
+        }
+        return thresholds;
+    }
+
+    /**
+     * Relative number of people of given age.
+     */
+    private static double ageWeight(int age) {
+        if (age <= 55) {
+            return 1.0;
+        }
+        if (age <= 70) {
+            return 1.0 - 0.45 * (age - 55) / 15;
+        }
+        if (age <= 85) {
+            return 0.55 - 0.4 * (age - 70) / 15;
+        }
+        return 0.15 - 0.14 * (age - 85) / 15;
+    }
+
+    private static long count(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT count(*) FROM \"user\"")) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection(url, user, password);
+    }
+}
@@ -1,9 +1,18 @@
 package com.darmokhval.test_task;
 
+import com.darmokhval.test_task.config.UserRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.annotation.EnableAsync;
 
+@EnableAsync
+// Cache advice wraps transaction advice: entries are written only after commit succeeded
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE)
 @SpringBootApplication
+@ImportRuntimeHints(UserRuntimeHints.class)
 public class TestTaskApplication {
 
     public static void main(String[] args) {
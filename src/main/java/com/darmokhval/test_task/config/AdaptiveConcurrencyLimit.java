@@ -0,0 +1,104 @@
+package com.darmokhval.test_task.config;
+
+import java.time.Duration;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Number of requests allowed in flight, adjusted by their latency (additive increase, multiplicative decrease):
+ * limit grows by one when request completes within latency threshold while at least half of limit was in use,
+ * and shrinks by a tenth when request takes longer. Limit shrinks at most once per congestion window: slow requests
+ * admitted before the last decrease report the same congestion and are ignored. Request over limit waits for free
+ * slot up to max wait, at most limit requests wait at once.
+ */
+class AdaptiveConcurrencyLimit {
+    private static final double BACKOFF_RATIO = 0.9;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final long maxWaitNanos;
+    private double limit;
+    private int inFlight;
+    private int waiting;
+    private long lastBackoffAt;
+
+    enum Admission {
+        ACCEPTED, QUEUED, SHED
+    }
+
+    AdaptiveConcurrencyLimit(int minLimit, int maxLimit, Duration latencyThreshold, Duration maxWait) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException(String.format("Invalid concurrency limits %s..%s!", minLimit, maxLimit));
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.maxWaitNanos = maxWait.toNanos();
+        this.lastBackoffAt = System.nanoTime();
+    }
+
+    /**
+     * Take a slot: ACCEPTED right away, QUEUED after waiting, or SHED when none became free in time.
+     * Every admitted request must be followed by {@link #release(long, long)}.
+     */
+    Admission acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            if (inFlight < (int) limit) {
+                inFlight++;
+                return Admission.ACCEPTED;
+            }
+            if (maxWaitNanos <= 0 || waiting >= (int) limit) {
+                return Admission.SHED;
+            }
+            waiting++;
+            try {
+                long remainingNanos = maxWaitNanos;
+                while (inFlight >= (int) limit) {
+                    if (remainingNanos <= 0) {
+                        return Admission.SHED;
+                    }
+                    remainingNanos = released.awaitNanos(remainingNanos);
+                }
+                inFlight++;
+                return Admission.QUEUED;
+            } finally {
+                waiting--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Free slot taken by request admitted and completed at given {@link System#nanoTime()}.
+     */
+    void release(long admittedAt, long completedAt) {
+        lock.lock();
+        try {
+            if (completedAt - admittedAt > latencyThresholdNanos) {
+                if (admittedAt - lastBackoffAt >= 0) {
+                    limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+                    lastBackoffAt = completedAt;
+                }
+            } else if (inFlight * 2 >= (int) limit) {
+                limit = Math.min(maxLimit, limit + 1);
+            }
+            inFlight--;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getLimit() {
+        return (int) limit;
+    }
+
+    int getInFlight() {
+        return inFlight;
+    }
+}
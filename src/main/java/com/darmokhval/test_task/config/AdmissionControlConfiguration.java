@@ -0,0 +1,50 @@
+package com.darmokhval.test_task.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+/**
+ * Admission control in front of api/**, see AdmissionControlInterceptor. Runs before other interceptors,
+ * so shed requests don't do any work.
+ */
+@Profile("!reactive")
+@ConditionalOnProperty(name = "user.admission.enabled", havingValue = "true")
+@Configuration(proxyBeanMethods = false)
+public class AdmissionControlConfiguration {
+
+    @Bean
+    public WebMvcConfigurer admissionControlConfigurer(
+            MeterRegistry meterRegistry,
+            @Value("${user.admission.read_max_limit:100}") int readMaxLimit,
+            @Value("${user.admission.write_max_limit:20}") int writeMaxLimit,
+            @Value("${user.admission.stream_limit:4}") int streamLimit,
+            @Value("${user.admission.latency_threshold:1s}") Duration latencyThreshold,
+            @Value("${user.admission.max_wait:100ms}") Duration maxWait,
+            @Value("${user.admission.client_rate:0}") double clientRate,
+            @Value("${user.admission.client_burst:50}") int clientBurst,
+            @Value("${user.client_id_header:}") String clientIdHeader) {
+        AdmissionControlInterceptor interceptor = new AdmissionControlInterceptor(
+                new AdaptiveConcurrencyLimit(1, readMaxLimit, latencyThreshold, maxWait),
+                new AdaptiveConcurrencyLimit(1, writeMaxLimit, latencyThreshold, maxWait),
+                // streams take long by design, their latency says nothing about overload: limit is fixed
+                new AdaptiveConcurrencyLimit(streamLimit, streamLimit, latencyThreshold, maxWait),
+                new ClientIdentity(clientIdHeader),
+                clientRate > 0 ? new ClientRateLimiter(clientRate, clientBurst) : null,
+                meterRegistry);
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(interceptor).addPathPatterns("/api/**").order(Ordered.HIGHEST_PRECEDENCE);
+            }
+        };
+    }
+}
@@ -0,0 +1,150 @@
+package com.darmokhval.test_task.config;
+
+import com.darmokhval.test_task.config.AdaptiveConcurrencyLimit.Admission;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpEntity;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Admission control of API requests. Reads and writes have separate adaptive concurrency limits,
+ * so slow writes don't starve reads and the other way round. Streaming responses hold a connection for as long
+ * as they stream, so they have a fixed limit of their own and keep their slot until streaming completes.
+ * Request over limit waits briefly for a slot, then gets 503 with Retry-After instead of piling up on connection pool.
+ * Client (see ClientIdentity) over its rate gets 429.
+ * Counted as user.admission.requests tagged with class and outcome (accepted, queued, shed, throttled).
+ */
+public class AdmissionControlInterceptor implements AsyncHandlerInterceptor {
+    private static final String ADMITTED = AdmissionControlInterceptor.class.getName() + ".admitted";
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+    private final AdaptiveConcurrencyLimit readLimit;
+    private final AdaptiveConcurrencyLimit writeLimit;
+    private final AdaptiveConcurrencyLimit streamLimit;
+    private final ClientIdentity clientIdentity;
+    private final ClientRateLimiter clientRateLimiter;
+    private final Map<Admission, Counter> readCounters;
+    private final Map<Admission, Counter> writeCounters;
+    private final Map<Admission, Counter> streamCounters;
+    private final Counter throttled;
+
+    /**
+     * @param clientRateLimiter null when clients are not rate limited
+     */
+    AdmissionControlInterceptor(AdaptiveConcurrencyLimit readLimit, AdaptiveConcurrencyLimit writeLimit,
+                                AdaptiveConcurrencyLimit streamLimit, ClientIdentity clientIdentity,
+                                ClientRateLimiter clientRateLimiter, MeterRegistry meterRegistry) {
+        this.readLimit = readLimit;
+        this.writeLimit = writeLimit;
+        this.streamLimit = streamLimit;
+        this.clientIdentity = clientIdentity;
+        this.clientRateLimiter = clientRateLimiter;
+        this.readCounters = counters("read", meterRegistry);
+        this.writeCounters = counters("write", meterRegistry);
+        this.streamCounters = counters("stream", meterRegistry);
+        this.throttled = Counter.builder("user.admission.requests")
+                .tag("class", "any")
+                .tag("outcome", "throttled")
+                .register(meterRegistry);
+        gauges("read", readLimit, meterRegistry);
+        gauges("write", writeLimit, meterRegistry);
+        gauges("stream", streamLimit, meterRegistry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws InterruptedException {
+        // async dispatch of streaming response was admitted by initial request, whose slot it releases
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        if (clientRateLimiter != null) {
+            long retryAfterSeconds = clientRateLimiter.tryAcquire(clientIdentity.of(request), System.nanoTime());
+            if (retryAfterSeconds > 0) {
+                throttled.increment();
+                throw new ClientRateLimitException(retryAfterSeconds);
+            }
+        }
+        AdaptiveConcurrencyLimit limit;
+        Map<Admission, Counter> counters;
+        if (isStreaming(handler)) {
+            limit = streamLimit;
+            counters = streamCounters;
+        } else if (READ_METHODS.contains(request.getMethod())) {
+            limit = readLimit;
+            counters = readCounters;
+        } else {
+            limit = writeLimit;
+            counters = writeCounters;
+        }
+        Admission admission = limit.acquire();
+        counters.get(admission).increment();
+        if (admission == Admission.SHED) {
+            throw new RejectedExecutionException("Server is overloaded, try again later!");
+        }
+        request.setAttribute(ADMITTED, new Admitted(limit, System.nanoTime()));
+        return true;
+    }
+
+    /**
+     * Called after request completes, and for response streamed asynchronously after its async dispatch completes.
+     */
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(ADMITTED) instanceof Admitted admitted) {
+            request.removeAttribute(ADMITTED);
+            admitted.limit().release(admitted.at(), System.nanoTime());
+        }
+    }
+
+    /**
+     * Handler returning body streamed asynchronously: StreamingResponseBody or ResponseBodyEmitter (SSE),
+     * possibly in ResponseEntity.
+     */
+    static boolean isStreaming(Object handler) {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return false;
+        }
+        ResolvableType type = ResolvableType.forMethodParameter(handlerMethod.getReturnType());
+        if (HttpEntity.class.isAssignableFrom(type.toClass())) {
+            type = type.as(HttpEntity.class).getGeneric(0);
+        }
+        Class<?> body = type.toClass();
+        return StreamingResponseBody.class.isAssignableFrom(body) || ResponseBodyEmitter.class.isAssignableFrom(body);
+    }
+
+    private static Map<Admission, Counter> counters(String requestClass, MeterRegistry meterRegistry) {
+        Map<Admission, Counter> counters = new EnumMap<>(Admission.class);
+        for (Admission admission : Admission.values()) {
+            counters.put(admission, Counter.builder("user.admission.requests")
+                    .tag("class", requestClass)
+                    .tag("outcome", admission.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        return counters;
+    }
+
+    private static void gauges(String requestClass, AdaptiveConcurrencyLimit limit, MeterRegistry meterRegistry) {
+        Gauge.builder("user.admission.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                .tag("class", requestClass)
+                .register(meterRegistry);
+        Gauge.builder("user.admission.in_flight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                .tag("class", requestClass)
+                .register(meterRegistry);
+    }
+
+    private record Admitted(AdaptiveConcurrencyLimit limit, long at) {
+    }
+}
@@ -0,0 +1,53 @@
+package com.darmokhval.test_task.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.util.HexFormat;
+
+/**
+ * Identity of client sending request, requests are rate limited and idempotency keys are scoped per client.
+ * It is value of client id header when configured and sent, otherwise name of authenticated principal, otherwise
+ * remote address. Header is meant to be set by gateway in front of the application (e.g. from API key); clients
+ * that reach the application directly can send any id. Remote address is that of client only when proxies in front
+ * report it in Forwarded/X-Forwarded-For and server.forward-headers-strategy is set, otherwise all clients behind
+ * one proxy share it.
+ */
+class ClientIdentity {
+    // idempotency_key.key holds identity, space and key of up to 255 characters
+    private static final int MAX_LENGTH = 64;
+    private final String header;
+
+    /**
+     * @param header name of client id header, blank when not used
+     */
+    ClientIdentity(String header) {
+        this.header = header == null || header.isBlank() ? null : header;
+    }
+
+    String of(HttpServletRequest request) {
+        String identity;
+        String id = header != null ? request.getHeader(header) : null;
+        Principal principal = request.getUserPrincipal();
+        if (id != null && !id.isBlank()) {
+            identity = "client:" + id;
+        } else if (principal != null) {
+            identity = "principal:" + principal.getName();
+        } else {
+            identity = "address:" + request.getRemoteAddr();
+        }
+        return identity.length() <= MAX_LENGTH ? identity : sha256(identity);
+    }
+
+    private static String sha256(String identity) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(identity.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.darmokhval.test_task.config;
+
+import lombok.Getter;
+
+/**
+ * Client sent more requests than its rate allows, it may retry after given number of seconds.
+ */
+@Getter
+public class ClientRateLimitException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public ClientRateLimitException(long retryAfterSeconds) {
+        super("Too many requests, slow down!");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,55 @@
+package com.darmokhval.test_task.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+
+/**
+ * Token bucket per client (see ClientIdentity): client may send burst of requests at once and given number of requests per second
+ * on average. Buckets of clients idle for a minute are dropped, they would be full by then anyway.
+ */
+class ClientRateLimiter {
+    private static final long NANOS_PER_SECOND = Duration.ofSeconds(1).toNanos();
+    private final Cache<String, TokenBucket> buckets;
+    private final double ratePerSecond;
+    private final int burst;
+
+    ClientRateLimiter(double ratePerSecond, int burst) {
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException(String.format("Invalid client rate %s with burst %s!", ratePerSecond, burst));
+        }
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(1))
+                .build();
+    }
+
+    /**
+     * Take token of client. Returns 0 when request may proceed, otherwise seconds until client gets next token.
+     */
+    long tryAcquire(String client, long nowNanos) {
+        return buckets.get(client, key -> new TokenBucket(burst, nowNanos)).tryAcquire(nowNanos);
+    }
+
+    private class TokenBucket {
+        private double tokens;
+        private long refilledAt;
+
+        TokenBucket(double tokens, long refilledAt) {
+            this.tokens = tokens;
+            this.refilledAt = refilledAt;
+        }
+
+        synchronized long tryAcquire(long nowNanos) {
+            tokens = Math.min(burst, tokens + (nowNanos - refilledAt) * ratePerSecond / NANOS_PER_SECOND);
+            refilledAt = nowNanos;
+            if (tokens >= 1) {
+                tokens--;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((1 - tokens) / ratePerSecond));
+        }
+    }
+}
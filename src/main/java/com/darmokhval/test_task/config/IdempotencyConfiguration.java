@@ -0,0 +1,46 @@
+package com.darmokhval.test_task.config;
+
+import com.darmokhval.test_task.repository.IdempotencyStore;
+import com.darmokhval.test_task.repository.InMemoryIdempotencyStore;
+import com.darmokhval.test_task.repository.JdbcIdempotencyStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+
+/**
+ * Idempotency-Key support, see IdempotencyFilter. Responses are kept in memory of this instance
+ * (user.idempotency.store=memory) or in idempotency_key table shared by all instances (jdbc).
+ */
+@Profile("!reactive")
+@ConditionalOnProperty(name = "user.idempotency.enabled", havingValue = "true")
+@Configuration(proxyBeanMethods = false)
+public class IdempotencyConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "user.idempotency.store", havingValue = "memory", matchIfMissing = true)
+    public IdempotencyStore inMemoryIdempotencyStore(@Value("${user.idempotency.max_entries:10000}") int maxEntries,
+                                                     @Value("${user.idempotency.ttl:1h}") Duration ttl) {
+        return new InMemoryIdempotencyStore(maxEntries, ttl);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "user.idempotency.store", havingValue = "jdbc")
+    public IdempotencyStore jdbcIdempotencyStore(JdbcTemplate jdbcTemplate,
+                                                 @Value("${user.idempotency.ttl:1h}") Duration ttl,
+                                                 @Value("${user.idempotency.claim_timeout:5m}") Duration claimTimeout) {
+        return new JdbcIdempotencyStore(jdbcTemplate, ttl, claimTimeout);
+    }
+
+    @Bean
+    public IdempotencyFilter idempotencyFilter(IdempotencyStore idempotencyStore, MeterRegistry meterRegistry,
+                                               @Value("${user.idempotency.wait_timeout:10s}") Duration waitTimeout,
+                                               @Value("${user.client_id_header:}") String clientIdHeader) {
+        return new IdempotencyFilter(idempotencyStore, meterRegistry, waitTimeout, new ClientIdentity(clientIdHeader));
+    }
+}
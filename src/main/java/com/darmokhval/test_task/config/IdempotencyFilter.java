@@ -0,0 +1,308 @@
+package com.darmokhval.test_task.config;
+
+import com.darmokhval.test_task.controller.ProblemBodies;
+import com.darmokhval.test_task.repository.IdempotencyStore;
+import com.darmokhval.test_task.repository.IdempotencyStore.StoredResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * POST, PUT and PATCH requests to api/** sent with Idempotency-Key header are executed once per key and client
+ * (see ClientIdentity; retry must come with the same client id, principal or address):
+ * response is stored and returned again (with Idempotent-Replayed header) to retries, which never reach controllers.
+ * Key is claimed in store before request is executed; retry arriving while first request is still running waits
+ * for its response, notified when it runs in this instance and polling the store when it runs in another one. Server errors, 429 and 503
+ * are not stored, so retry after them executes again. Key used with another method, URI or body gets 422;
+ * body is compared by SHA-256 computed while the request reads it, so large bodies aren't buffered.
+ * Counted as user.idempotency.requests tagged with outcome (executed, replayed).
+ */
+public class IdempotencyFilter extends OncePerRequestFilter {
+    public static final String HEADER = "Idempotency-Key";
+    static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final int DRAIN_BUFFER_SIZE = 8192;
+    private static final long CLAIM_POLL_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final Set<String> METHODS = Set.of("POST", "PUT", "PATCH");
+    private static final List<String> STORED_HEADERS = List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.LOCATION, HttpHeaders.ETAG);
+    private final IdempotencyStore store;
+    private final MeterRegistry meterRegistry;
+    private final Duration waitTimeout;
+    private final ClientIdentity clientIdentity;
+    private final Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+
+    IdempotencyFilter(IdempotencyStore store, MeterRegistry meterRegistry, Duration waitTimeout,
+                      ClientIdentity clientIdentity) {
+        this.store = store;
+        this.meterRegistry = meterRegistry;
+        this.waitTimeout = waitTimeout;
+        this.clientIdentity = clientIdentity;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getHeader(HEADER) == null || !METHODS.contains(request.getMethod())
+                || !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String key = request.getHeader(HEADER);
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            writeError(request, response, HttpStatus.BAD_REQUEST,
+                    String.format("%s must have 1 to %s characters!", HEADER, MAX_KEY_LENGTH));
+            return;
+        }
+        String scopedKey = clientIdentity.of(request) + " " + key;
+        String requestLine = request.getMethod() + " " + request.getRequestURI();
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+        while (true) {
+            StoredResponse stored = store.find(scopedKey).orElse(null);
+            if (stored != null) {
+                replay(request, response, requestLine, stored);
+                return;
+            }
+            // same key is being executed, its response is looked up again once it completes;
+            // when it wasn't stored (e.g. server error), one of waiting requests executes instead
+            CompletableFuture<Void> running = inFlight.putIfAbsent(scopedKey, new CompletableFuture<>());
+            long remainingNanos = deadline - System.nanoTime();
+            try {
+                if (running == null) {
+                    if (store.claim(scopedKey, requestLine)) {
+                        execute(request, response, filterChain, scopedKey, requestLine);
+                        return;
+                    }
+                    // executed by another instance, store is polled for its response
+                    inFlight.remove(scopedKey).complete(null);
+                    if (remainingNanos <= 0) {
+                        throw new TimeoutException();
+                    }
+                    TimeUnit.NANOSECONDS.sleep(Math.min(CLAIM_POLL_INTERVAL_NANOS, remainingNanos));
+                } else {
+                    running.get(Math.max(0, remainingNanos), TimeUnit.NANOSECONDS);
+                }
+            } catch (TimeoutException e) {
+                writeError(request, response, HttpStatus.CONFLICT,
+                        String.format("Request with this %s is still in progress, try again later!", HEADER));
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServletException(e);
+            } catch (ExecutionException e) {
+                throw new ServletException(e);
+            }
+        }
+    }
+
+    /**
+     * Execute request with claimed key. Response not worth storing gives the claim up.
+     */
+    private void execute(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain,
+                         String key, String requestLine) throws ServletException, IOException {
+        boolean stored = false;
+        try {
+            HashingRequest hashingRequest = new HashingRequest(request);
+            ContentCachingResponseWrapper cachingResponse = new ContentCachingResponseWrapper(response);
+            filterChain.doFilter(hashingRequest, cachingResponse);
+            count("executed");
+            int status = cachingResponse.getStatus();
+            if (status < 500 && status != HttpStatus.TOO_MANY_REQUESTS.value()) {
+                Map<String, String> headers = new LinkedHashMap<>();
+                for (String header : STORED_HEADERS) {
+                    String value = cachingResponse.getHeader(header);
+                    if (value != null) {
+                        headers.put(header, value);
+                    }
+                }
+                store.put(key, new StoredResponse(requestLine, hashingRequest.bodyHash(), status, headers,
+                        cachingResponse.getContentAsByteArray()));
+                stored = true;
+            }
+            cachingResponse.copyBodyToResponse();
+        } finally {
+            try {
+                if (!stored) {
+                    store.release(key);
+                }
+            } finally {
+                inFlight.remove(key).complete(null);
+            }
+        }
+    }
+
+    private void replay(HttpServletRequest request, HttpServletResponse response, String requestLine,
+                        StoredResponse stored) throws IOException {
+        if (!stored.request().equals(requestLine)) {
+            writeError(request, response, HttpStatus.UNPROCESSABLE_ENTITY,
+                    String.format("%s was already used for %s!", HEADER, stored.request()));
+            return;
+        }
+        // rows stored before body hash was introduced have none
+        if (stored.bodyHash() != null && !stored.bodyHash().equals(hash(request.getInputStream()))) {
+            writeError(request, response, HttpStatus.UNPROCESSABLE_ENTITY,
+                    String.format("%s was already used for %s with another body!", HEADER, stored.request()));
+            return;
+        }
+        count("replayed");
+        response.setStatus(stored.status());
+        stored.headers().forEach(response::setHeader);
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+    }
+
+    /**
+     * Same body as GlobalExceptionHandler, filter runs before exception handlers are in play.
+     */
+    private void writeError(HttpServletRequest request, HttpServletResponse response, HttpStatus status,
+                            String message) throws IOException {
+        byte[] body = ProblemBodies.body(status, message, request.getRequestURI());
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_PROBLEM_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private void count(String outcome) {
+        meterRegistry.counter("user.idempotency.requests", "outcome", outcome).increment();
+    }
+
+    private static String hash(InputStream body) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+        int read;
+        while ((read = body.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Hashes body as it's read. Part of body the handler left unread is read when hash is taken
+     * or input stream is closed.
+     */
+    private static class HashingRequest extends HttpServletRequestWrapper {
+        private final MessageDigest digest = sha256();
+        private ServletInputStream inputStream;
+        private BufferedReader reader;
+        private boolean drained;
+
+        HashingRequest(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (inputStream == null) {
+                ServletInputStream body = super.getInputStream();
+                inputStream = new ServletInputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        int b = body.read();
+                        if (b != -1) {
+                            digest.update((byte) b);
+                        }
+                        return b;
+                    }
+
+                    @Override
+                    public int read(byte[] bytes, int offset, int length) throws IOException {
+                        int read = body.read(bytes, offset, length);
+                        if (read > 0) {
+                            digest.update(bytes, offset, read);
+                        }
+                        return read;
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        drain();
+                        body.close();
+                    }
+
+                    @Override
+                    public boolean isFinished() {
+                        return body.isFinished();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return body.isReady();
+                    }
+
+                    @Override
+                    public void setReadListener(ReadListener readListener) {
+                        body.setReadListener(readListener);
+                    }
+                };
+            }
+            return inputStream;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            if (reader == null) {
+                String encoding = getCharacterEncoding();
+                reader = new BufferedReader(new InputStreamReader(getInputStream(),
+                        encoding != null ? Charset.forName(encoding) : StandardCharsets.ISO_8859_1));
+            }
+            return reader;
+        }
+
+        String bodyHash() throws IOException {
+            drain();
+            return HexFormat.of().formatHex(digest.digest());
+        }
+
+        private void drain() throws IOException {
+            if (drained) {
+                return;
+            }
+            drained = true;
+            InputStream body = getInputStream();
+            byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+            while (body.read(buffer) != -1) {
+                // read only to be hashed
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.darmokhval.test_task.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.web.server.Compression;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact encodings of request and response bodies next to JSON, chosen by Content-Type and Accept:
+ * Smile (application/x-jackson-smile), CBOR (application/cbor) and protobuf (application/x-protobuf, UserDTO only).
+ * Smile and CBOR mappers are configured like the JSON one, so dates look the same in every format.
+ */
+@Profile("!reactive")
+@Configuration(proxyBeanMethods = false)
+public class MessageFormatConfiguration {
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    /**
+     * Added after JSON, so clients accepting anything keep getting JSON.
+     */
+    @Bean
+    public WebMvcConfigurer protobufMessageConverterConfigurer() {
+        return new WebMvcConfigurer() {
+            @Override
+            public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+                converters.add(new UserProtobufHttpMessageConverter());
+            }
+        };
+    }
+
+    /**
+     * Runs before filters that look at response body (e.g. IdempotencyFilter), so they see it uncompressed.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "user.zstd.enabled", havingValue = "true")
+    public FilterRegistrationBean<ZstdCompressionFilter> zstdCompressionFilter(ServerProperties serverProperties,
+                                                                              @Value("${user.zstd.level:3}") int level) {
+        Compression compression = serverProperties.getCompression();
+        ZstdCompressionFilter filter = new ZstdCompressionFilter(
+                Arrays.stream(compression.getMimeTypes()).map(MediaType::parseMediaType).toList(),
+                (int) compression.getMinResponseSize().toBytes(), level);
+        FilterRegistrationBean<ZstdCompressionFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 100);
+        return registration;
+    }
+}
@@ -0,0 +1,20 @@
+package com.darmokhval.test_task.config;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+@Profile("reactive")
+@Configuration(proxyBeanMethods = false)
+public class ReactiveServerConfiguration {
+
+    /**
+     * Tomcat is on classpath for servlet deployment and would be picked for reactive one too.
+     * Netty event loop holds any number of slow connections without per-connection limits.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
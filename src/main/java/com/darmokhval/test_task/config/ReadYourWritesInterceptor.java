@@ -0,0 +1,53 @@
+package com.darmokhval.test_task.config;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.util.WebUtils;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Keeps reads of writing clients on primary, so they see their own writes before replicas catch up.
+ * Write requests read from primary (e.g. version checks) and set cookie living for read-your-writes window,
+ * requests carrying the cookie are served from primary as well. Zero window disables the cookie.
+ */
+@RequiredArgsConstructor
+public class ReadYourWritesInterceptor implements AsyncHandlerInterceptor {
+    static final String COOKIE_NAME = "recent_write";
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+    private final Duration window;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!READ_METHODS.contains(request.getMethod())) {
+            ReplicaRoutingDataSource.requirePrimary(true);
+            if (!window.isZero()) {
+                Cookie cookie = new Cookie(COOKIE_NAME, "1");
+                cookie.setPath("/api");
+                cookie.setHttpOnly(true);
+                cookie.setMaxAge((int) Math.max(1, window.toSeconds()));
+                response.addCookie(cookie);
+            }
+        } else if (WebUtils.getCookie(request, COOKIE_NAME) != null) {
+            ReplicaRoutingDataSource.requirePrimary(true);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ReplicaRoutingDataSource.requirePrimary(false);
+    }
+
+    /**
+     * Streaming responses are written on another thread, which reads from replicas.
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ReplicaRoutingDataSource.requirePrimary(false);
+    }
+}
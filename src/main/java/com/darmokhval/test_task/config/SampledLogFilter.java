@@ -0,0 +1,31 @@
+package com.darmokhval.test_task.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import lombok.Setter;
+import org.slf4j.Marker;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets through only every n-th event of one logger, configured in logback-spring.xml.
+ * Used for slow query log, so a burst of slow statements doesn't flood output.
+ */
+@Setter
+public class SampledLogFilter extends TurboFilter {
+    private final AtomicLong events = new AtomicLong();
+    private String loggerName;
+    private int logEvery = 1;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // format is null when caller only checks if level is enabled, such calls are not counted
+        if (format == null || logEvery <= 1 || !logger.getName().equals(loggerName)
+                || !level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        return events.getAndIncrement() % logEvery == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+}
@@ -0,0 +1,168 @@
+package com.darmokhval.test_task.config;
+
+import com.darmokhval.test_task.model.dto.UserDTO;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * UserDTO (User message) and list of them (UserList message) as protobuf, schema is src/main/proto/user.proto.
+ * Fields are encoded directly from DTO, without generated message classes in between. List is written
+ * user by user, so response is never held in memory twice.
+ */
+public class UserProtobufHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+    public static final MediaType PROTOBUF = new MediaType("application", "x-protobuf");
+    private static final int ID = 1;
+    private static final int FIRST_NAME = 2;
+    private static final int LAST_NAME = 3;
+    private static final int BIRTH_DATE = 4;
+    private static final int EMAIL = 5;
+    private static final int ADDRESS = 6;
+    private static final int PHONE_NUMBER = 7;
+    private static final int VERSION = 8;
+    private static final int USERS = 1;
+
+    public UserProtobufHttpMessageConverter() {
+        super(PROTOBUF);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return UserDTO.class == clazz;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return UserDTO.class == type && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return (UserDTO.class == clazz || isUserList(type)) && canWrite(mediaType);
+    }
+
+    /**
+     * List class declaring its element type (e.g. subclass of ArrayList&lt;UserDTO&gt;) is supported when it's UserDTO.
+     * Element type of plain list class isn't known here; callers check it by {@link #canWrite(Type, Class, MediaType)}
+     * with declared type first, as content negotiation of Spring MVC does.
+     */
+    @Override
+    public List<MediaType> getSupportedMediaTypes(Class<?> clazz) {
+        Class<?> element = ResolvableType.forClass(clazz).as(List.class).getGeneric(0).resolve();
+        boolean userList = List.class.isAssignableFrom(clazz) && (element == null || element == UserDTO.class);
+        return UserDTO.class == clazz || userList ? getSupportedMediaTypes() : List.of();
+    }
+
+    private static boolean isUserList(Type type) {
+        ResolvableType list = ResolvableType.forType(type).as(List.class);
+        return list != ResolvableType.NONE && list.getGeneric(0).resolve() == UserDTO.class;
+    }
+
+    @Override
+    protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage) throws IOException {
+        CodedOutputStream output = CodedOutputStream.newInstance(outputMessage.getBody());
+        if (value instanceof UserDTO user) {
+            writeUser(user, output);
+        } else {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+            CodedOutputStream userOutput = CodedOutputStream.newInstance(buffer);
+            for (Object user : (List<?>) value) {
+                buffer.reset();
+                writeUser((UserDTO) user, userOutput);
+                userOutput.flush();
+                output.writeTag(USERS, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                output.writeUInt32NoTag(buffer.size());
+                output.writeRawBytes(buffer.toByteArray());
+            }
+        }
+        output.flush();
+    }
+
+    static void writeUser(UserDTO user, CodedOutputStream output) throws IOException {
+        if (user.getId() != null) {
+            output.writeInt64(ID, user.getId());
+        }
+        writeString(output, FIRST_NAME, user.getFirstName());
+        writeString(output, LAST_NAME, user.getLastName());
+        if (user.getBirthDate() != null) {
+            output.writeSInt32(BIRTH_DATE, (int) user.getBirthDate().toEpochDay());
+        }
+        writeString(output, EMAIL, user.getEmail());
+        writeString(output, ADDRESS, user.getAddress());
+        writeString(output, PHONE_NUMBER, user.getPhoneNumber());
+        if (user.getVersion() != null) {
+            output.writeInt64(VERSION, user.getVersion());
+        }
+    }
+
+    private static void writeString(CodedOutputStream output, int field, String value) throws IOException {
+        if (value != null && !value.isEmpty()) {
+            output.writeString(field, value);
+        }
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        return readUser(CodedInputStream.newInstance(inputMessage.getBody()), inputMessage);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        return readInternal(UserDTO.class, inputMessage);
+    }
+
+    /**
+     * Unknown fields, and known ones of unexpected wire type, are skipped, so messages of newer schema are still
+     * readable and a field is never decoded as value of another type.
+     */
+    static UserDTO readUser(CodedInputStream input, HttpInputMessage inputMessage) throws IOException {
+        UserDTO user = new UserDTO();
+        try {
+            int tag;
+            while ((tag = input.readTag()) != 0) {
+                int field = WireFormat.getTagFieldNumber(tag);
+                if (WireFormat.getTagWireType(tag) != wireType(field)) {
+                    input.skipField(tag);
+                    continue;
+                }
+                switch (field) {
+                    case ID -> user.setId(input.readInt64());
+                    case FIRST_NAME -> user.setFirstName(input.readString());
+                    case LAST_NAME -> user.setLastName(input.readString());
+                    case BIRTH_DATE -> user.setBirthDate(LocalDate.ofEpochDay(input.readSInt32()));
+                    case EMAIL -> user.setEmail(input.readString());
+                    case ADDRESS -> user.setAddress(input.readString());
+                    case PHONE_NUMBER -> user.setPhoneNumber(input.readString());
+                    case VERSION -> user.setVersion(input.readInt64());
+                    default -> input.skipField(tag);
+                }
+            }
+        } catch (IOException e) {
+            throw new HttpMessageNotReadableException("Invalid protobuf message: " + e.getMessage(), e, inputMessage);
+        }
+        return user;
+    }
+
+    /**
+     * Wire type of User message field in user.proto, -1 for unknown field.
+     */
+    private static int wireType(int field) {
+        return switch (field) {
+            case ID, BIRTH_DATE, VERSION -> WireFormat.WIRETYPE_VARINT;
+            case FIRST_NAME, LAST_NAME, EMAIL, ADDRESS, PHONE_NUMBER -> WireFormat.WIRETYPE_LENGTH_DELIMITED;
+            default -> -1;
+        };
+    }
+}
@@ -0,0 +1,34 @@
+package com.darmokhval.test_task.config;
+
+import com.darmokhval.test_task.model.dto.*;
+import com.darmokhval.test_task.model.entity.User;
+import com.darmokhval.test_task.repository.TrigramFunctionContributor;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Native image hints Spring AOT can't derive from bean definitions and controller signatures:
+ * DTOs written by ObjectMapper directly (export, error lists) and created by criteria constructor projection,
+ * Flyway migrations in non-default locations, logback filter created by class name
+ * and Hibernate function contributor loaded through ServiceLoader.
+ */
+public class UserRuntimeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+                UserDTO.class, PartialUserDTO.class, UserPageDTO.class,
+                UserBatchResultDTO.class, UserBatchErrorDTO.class, UserCreationStatusDTO.class, UserChangeDTO.class);
+        hints.reflection()
+                .registerType(UserDTO.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS)
+                .registerType(User.class, MemberCategory.DECLARED_FIELDS, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS)
+                .registerType(SampledLogFilter.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS,
+                        MemberCategory.INVOKE_PUBLIC_METHODS)
+                .registerType(TrigramFunctionContributor.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        hints.resources()
+                .registerPattern("db/migration/*/*.sql")
+                .registerPattern("META-INF/services/org.hibernate.boot.model.FunctionContributor");
+    }
+}
@@ -0,0 +1,39 @@
+package com.darmokhval.test_task.controller;
+
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream over {@link ResponseBodyEmitter}, for writers running on threads of their own: written bytes
+ * are collected and sent to client on flush.
+ */
+class EmitterOutputStream extends OutputStream {
+    private final ResponseBodyEmitter emitter;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    EmitterOutputStream(ResponseBodyEmitter emitter) {
+        this.emitter = emitter;
+    }
+
+    @Override
+    public void write(int b) {
+        buffer.write(b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        buffer.write(bytes, offset, length);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (buffer.size() > 0) {
+            byte[] bytes = buffer.toByteArray();
+            buffer.reset();
+            emitter.send(bytes);
+        }
+    }
+}
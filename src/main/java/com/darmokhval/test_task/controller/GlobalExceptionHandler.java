@@ -1,5 +1,14 @@
 package com.darmokhval.test_task.controller;
 
+import com.darmokhval.test_task.config.ClientRateLimitException;
+import com.darmokhval.test_task.repository.UserRepository;
+import com.darmokhval.test_task.service.ChangeOffsetExpiredException;
+import com.darmokhval.test_task.service.UserError;
+import com.darmokhval.test_task.service.UserRequestException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -7,23 +16,89 @@ import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.context.request.WebRequest;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
+@Profile("!reactive")
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    /**
+     * Service rejections, body prefix of every {@link UserError} is rendered in advance.
+     */
+    @ExceptionHandler(UserRequestException.class)
+    public ResponseEntity<byte[]> handleUserRequestException(
+            UserRequestException exception, WebRequest webRequest) {
+        return ProblemBodies.problem(exception, instance(webRequest));
+    }
     @ExceptionHandler(IllegalArgumentException.class)
-    public ResponseEntity<Map<String, Object>> handleIllegalArgumentException(
+    public ResponseEntity<byte[]> handleIllegalArgumentException(
             IllegalArgumentException exception, WebRequest webRequest) {
         return formErrorResponse(HttpStatus.BAD_REQUEST, exception.getMessage(), webRequest);
     }
+    /**
+     * Unique index violations that slipped through service checks because of concurrent writes.
+     */
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<byte[]> handleDataIntegrityViolationException(
+            DataIntegrityViolationException exception, WebRequest webRequest) {
+        if (exception.getMessage() != null && exception.getMessage().contains(UserRepository.EMAIL_UNIQUE_INDEX)) {
+            return formErrorResponse(HttpStatus.BAD_REQUEST, "Email already taken!", webRequest);
+        }
+        return formErrorResponse(HttpStatus.CONFLICT, "Request conflicts with existing data", webRequest);
+    }
+    /**
+     * Update was sent with version that is no longer current. When version came in If-Match header,
+     * HTTP expects 412 Precondition Failed.
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<byte[]> handleOptimisticLockingFailureException(
+            OptimisticLockingFailureException exception, WebRequest webRequest) {
+        HttpStatus status = webRequest.getHeader(HttpHeaders.IF_MATCH) != null
+                ? HttpStatus.PRECONDITION_FAILED
+                : HttpStatus.CONFLICT;
+        return formErrorResponse(status, exception.getMessage(), webRequest);
+    }
+    /**
+     * Work couldn't be accepted right now (queue is full or application is stopping), client may retry later.
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<byte[]> handleRejectedExecutionException(
+            RejectedExecutionException exception, WebRequest webRequest) {
+        ResponseEntity<byte[]> response =
+                formErrorResponse(HttpStatus.SERVICE_UNAVAILABLE, exception.getMessage(), webRequest);
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(response.getBody());
+    }
+    /**
+     * Client exceeded its request rate.
+     */
+    @ExceptionHandler(ClientRateLimitException.class)
+    public ResponseEntity<byte[]> handleClientRateLimitException(
+            ClientRateLimitException exception, WebRequest webRequest) {
+        ResponseEntity<byte[]> response =
+                formErrorResponse(HttpStatus.TOO_MANY_REQUESTS, exception.getMessage(), webRequest);
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()))
+                .body(response.getBody());
+    }
+    /**
+     * Consumer of change stream fell behind retention, it has to resynchronize and start from offset 0.
+     */
+    @ExceptionHandler(ChangeOffsetExpiredException.class)
+    public ResponseEntity<byte[]> handleChangeOffsetExpiredException(
+            ChangeOffsetExpiredException exception, WebRequest webRequest) {
+        return formErrorResponse(HttpStatus.GONE, exception.getMessage(), webRequest);
+    }
     @ExceptionHandler(MethodArgumentNotValidException.class)
-    public ResponseEntity<Map<String, Object>> handleMethodArgumentNotValidException(
+    public ResponseEntity<byte[]> handleMethodArgumentNotValidException(
             MethodArgumentNotValidException exception, WebRequest request) {
         List<String> errorMessages = exception.getBindingResult()
                 .getFieldErrors()
@@ -34,32 +109,24 @@ public class GlobalExceptionHandler {
         return formErrorResponse(HttpStatus.BAD_REQUEST, errorMessages, request);
     }
     @ExceptionHandler(HttpMessageNotReadableException.class)
-    public ResponseEntity<Map<String, Object>> handleHttpMessageNotReadableException(
+    public ResponseEntity<byte[]> handleHttpMessageNotReadableException(
             HttpMessageNotReadableException exception, WebRequest request) {
         String errorMessage = "Invalid request body: " + exception.getLocalizedMessage();
 
         return formErrorResponse(HttpStatus.BAD_REQUEST, errorMessage, request);
     }
-    private ResponseEntity<Map<String, Object>> formErrorResponse(
+    private ResponseEntity<byte[]> formErrorResponse(
             HttpStatus status, List<String> messages, WebRequest request) {
-        Map<String, Object> responseBody = new HashMap<>();
-        responseBody.put("timestamp", System.currentTimeMillis());
-        responseBody.put("status", status.value());
-        responseBody.put("error", status.getReasonPhrase());
-        responseBody.put("messages", messages);
-        responseBody.put("path", request.getDescription(false));
-
-        return new ResponseEntity<>(responseBody, status);
+        return ProblemBodies.problem(status, messages, instance(request));
     }
 
-    private ResponseEntity<Map<String, Object>> formErrorResponse(HttpStatus httpStatus, String message, WebRequest webRequest) {
-        Map<String, Object> responseBody = new HashMap<>();
-        responseBody.put("timestamp", System.currentTimeMillis());
-        responseBody.put("status", httpStatus.value());
-        responseBody.put("error", httpStatus.getReasonPhrase());
-        responseBody.put("message", message);
-        responseBody.put("path", webRequest.getDescription(false));
+    private ResponseEntity<byte[]> formErrorResponse(HttpStatus httpStatus, String message, WebRequest webRequest) {
+        return ProblemBodies.problem(httpStatus, message, instance(webRequest));
+    }
 
-        return new ResponseEntity<>(responseBody, httpStatus);
+    private static String instance(WebRequest webRequest) {
+        return webRequest instanceof ServletWebRequest servletWebRequest
+                ? servletWebRequest.getRequest().getRequestURI()
+                : webRequest.getDescription(false);
     }
 }
@@ -0,0 +1,112 @@
+package com.darmokhval.test_task.controller;
+
+import com.darmokhval.test_task.service.UserError;
+import com.darmokhval.test_task.service.UserRequestException;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Error responses as RFC 7807 problem details (application/problem+json):
+ * {"type":...,"title":...,"status":...,"detail":...,"instance":...}, with "errors" listing every failed field
+ * of invalid request body. Everything up to detail is rendered once per {@link UserError} (or status for other
+ * errors, typed about:blank), only detail and instance are escaped per response.
+ */
+public final class ProblemBodies {
+    private static final JsonStringEncoder ENCODER = JsonStringEncoder.getInstance();
+    private static final Map<UserError, byte[]> USER_ERROR_PREFIXES = new EnumMap<>(UserError.class);
+    private static final Map<HttpStatus, byte[]> STATUS_PREFIXES = new ConcurrentHashMap<>();
+    private static final byte[] ERRORS = bytes(",\"errors\":[");
+    private static final byte[] QUOTE = bytes("\"");
+    private static final byte[] SEPARATOR = bytes("\",\"");
+    private static final byte[] ERRORS_END = bytes("]");
+    private static final byte[] QUOTED_ERRORS_END = bytes("\"]");
+    private static final byte[] INSTANCE = bytes(",\"instance\":\"");
+    private static final byte[] END = bytes("\"}");
+
+    static {
+        for (UserError error : UserError.values()) {
+            USER_ERROR_PREFIXES.put(error, prefix(error.getType(), error.getTitle(), HttpStatus.BAD_REQUEST));
+        }
+    }
+
+    private ProblemBodies() {
+    }
+
+    static ResponseEntity<byte[]> problem(UserRequestException exception, String instance) {
+        return problem(HttpStatus.BAD_REQUEST, body(exception, instance));
+    }
+
+    static ResponseEntity<byte[]> problem(HttpStatus status, String detail, String instance) {
+        return problem(status, body(status, detail, instance));
+    }
+
+    static ResponseEntity<byte[]> problem(HttpStatus status, List<String> errors, String instance) {
+        return problem(status, body(statusPrefix(status), String.join(" ", errors), errors, instance));
+    }
+
+    static ResponseEntity<byte[]> problem(HttpStatus status, byte[] body) {
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_PROBLEM_JSON).body(body);
+    }
+
+    public static byte[] body(UserRequestException exception, String instance) {
+        return body(USER_ERROR_PREFIXES.get(exception.getError()), exception.getMessage(), null, instance);
+    }
+
+    /**
+     * Body of problem typed about:blank, titled by reason phrase of status.
+     */
+    public static byte[] body(HttpStatus status, String detail, String instance) {
+        return body(statusPrefix(status), detail, null, instance);
+    }
+
+    private static byte[] body(byte[] prefix, String detail, List<String> errors, String instance) {
+        byte[][] parts = new byte[errors != null ? 8 + 2 * errors.size() : 6][];
+        int count = 0;
+        parts[count++] = prefix;
+        parts[count++] = ENCODER.quoteAsUTF8(detail != null ? detail : "");
+        parts[count++] = QUOTE;
+        if (errors != null) {
+            parts[count++] = ERRORS;
+            for (int i = 0; i < errors.size(); i++) {
+                parts[count++] = i == 0 ? QUOTE : SEPARATOR;
+                parts[count++] = ENCODER.quoteAsUTF8(errors.get(i) != null ? errors.get(i) : "");
+            }
+            parts[count++] = errors.isEmpty() ? ERRORS_END : QUOTED_ERRORS_END;
+        }
+        parts[count++] = INSTANCE;
+        parts[count++] = ENCODER.quoteAsUTF8(instance);
+        parts[count++] = END;
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            length += parts[i].length;
+        }
+        byte[] body = new byte[length];
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(parts[i], 0, body, position, parts[i].length);
+            position += parts[i].length;
+        }
+        return body;
+    }
+
+    private static byte[] statusPrefix(HttpStatus status) {
+        return STATUS_PREFIXES.computeIfAbsent(status, key -> prefix("about:blank", key.getReasonPhrase(), key));
+    }
+
+    private static byte[] prefix(String type, String title, HttpStatus status) {
+        return bytes("{\"type\":\"" + new String(ENCODER.quoteAsString(type)) + "\",\"title\":\""
+                + new String(ENCODER.quoteAsString(title)) + "\",\"status\":" + status.value() + ",\"detail\":\"");
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
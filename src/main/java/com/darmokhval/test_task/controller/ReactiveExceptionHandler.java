@@ -0,0 +1,87 @@
+package com.darmokhval.test_task.controller;
+
+import com.darmokhval.test_task.repository.UserRepository;
+import com.darmokhval.test_task.service.UserRequestException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebInputException;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Reactive counterpart of {@link GlobalExceptionHandler}: same statuses and same response body.
+ */
+@Profile("reactive")
+@RestControllerAdvice
+public class ReactiveExceptionHandler {
+
+    @ExceptionHandler(UserRequestException.class)
+    public ResponseEntity<byte[]> handleUserRequestException(
+            UserRequestException exception, ServerWebExchange exchange) {
+        return ProblemBodies.problem(exception, exchange.getRequest().getPath().value());
+    }
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<byte[]> handleIllegalArgumentException(
+            IllegalArgumentException exception, ServerWebExchange exchange) {
+        return formErrorResponse(HttpStatus.BAD_REQUEST, exception.getMessage(), exchange);
+    }
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<byte[]> handleDataIntegrityViolationException(
+            DataIntegrityViolationException exception, ServerWebExchange exchange) {
+        if (exception.getMessage() != null && exception.getMessage().contains(UserRepository.EMAIL_UNIQUE_INDEX)) {
+            return formErrorResponse(HttpStatus.BAD_REQUEST, "Email already taken!", exchange);
+        }
+        return formErrorResponse(HttpStatus.CONFLICT, "Request conflicts with existing data", exchange);
+    }
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<byte[]> handleOptimisticLockingFailureException(
+            OptimisticLockingFailureException exception, ServerWebExchange exchange) {
+        HttpStatus status = exchange.getRequest().getHeaders().containsKey(HttpHeaders.IF_MATCH)
+                ? HttpStatus.PRECONDITION_FAILED
+                : HttpStatus.CONFLICT;
+        return formErrorResponse(status, exception.getMessage(), exchange);
+    }
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<byte[]> handleWebExchangeBindException(
+            WebExchangeBindException exception, ServerWebExchange exchange) {
+        List<String> errorMessages = exception.getBindingResult()
+                .getFieldErrors()
+                .stream()
+                .map(FieldError::getDefaultMessage)
+                .collect(Collectors.toList());
+
+        return formErrorResponse(HttpStatus.BAD_REQUEST, errorMessages, exchange);
+    }
+    /**
+     * Malformed body is reported like HttpMessageNotReadableException in servlet deployment,
+     * other input errors (missing or invalid parameters) keep their own reason.
+     */
+    @ExceptionHandler(ServerWebInputException.class)
+    public ResponseEntity<byte[]> handleServerWebInputException(
+            ServerWebInputException exception, ServerWebExchange exchange) {
+        String errorMessage = exception.getCause() instanceof DecodingException decodingException
+                ? "Invalid request body: " + decodingException.getLocalizedMessage()
+                : exception.getReason();
+
+        return formErrorResponse(HttpStatus.BAD_REQUEST, errorMessage, exchange);
+    }
+    private ResponseEntity<byte[]> formErrorResponse(
+            HttpStatus status, List<String> messages, ServerWebExchange exchange) {
+        return ProblemBodies.problem(status, messages, exchange.getRequest().getPath().value());
+    }
+
+    private ResponseEntity<byte[]> formErrorResponse(HttpStatus httpStatus, String message, ServerWebExchange exchange) {
+        return ProblemBodies.problem(httpStatus, message, exchange.getRequest().getPath().value());
+    }
+}
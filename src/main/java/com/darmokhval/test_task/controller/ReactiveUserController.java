@@ -0,0 +1,118 @@
+package com.darmokhval.test_task.controller;
+
+import com.darmokhval.test_task.model.dto.PartialUserDTO;
+import com.darmokhval.test_task.model.dto.UserDTO;
+import com.darmokhval.test_task.model.dto.UserPageDTO;
+import com.darmokhval.test_task.service.ReactiveUserService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+import static com.darmokhval.test_task.controller.UserETags.eTag;
+import static com.darmokhval.test_task.controller.UserETags.eTagMatches;
+import static com.darmokhval.test_task.controller.UserETags.parseIfMatch;
+
+/**
+ * Same API as {@link UserController}, served by WebFlux and R2DBC when reactive profile is active.
+ * Batch import, COPY export, search and asynchronous registration are available only in servlet deployment.
+ */
+@Profile("reactive")
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("api/users")
+public class ReactiveUserController {
+    private final ReactiveUserService userService;
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<UserDTO>> findUserById(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Mono<ResponseEntity<UserDTO>> found = userService.findUserById(id)
+                .map(userDTO -> ResponseEntity.status(HttpStatus.OK).eTag(eTag(userDTO.getVersion())).body(userDTO));
+        if (ifNoneMatch == null) {
+            return found;
+        }
+        return userService.findUserVersion(id)
+                .filter(version -> eTagMatches(ifNoneMatch, version))
+                .map(version -> ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag(version)).<UserDTO>build())
+                .switchIfEmpty(found);
+    }
+
+    /**
+     * JSON array is written element by element while rows arrive, list is never built in memory.
+     */
+    @GetMapping("/birth_date")
+    public Flux<UserDTO> findUsersByBirthDateRange(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return userService.streamUsersByBirthDateRange(from, to);
+    }
+
+    @GetMapping("/birth_date/page")
+    public Mono<ResponseEntity<UserPageDTO>> findUsersByBirthDateRangePage(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "afterBirthDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate afterBirthDate,
+            @RequestParam(value = "afterId", required = false) Long afterId,
+            @RequestParam(value = "size", defaultValue = "100") int size) {
+        return userService.findUsersByBirthDateRangePage(from, to, afterBirthDate, afterId, size)
+                .map(page -> ResponseEntity.status(HttpStatus.OK).body(page));
+    }
+
+    @GetMapping(value = "/birth_date/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<UserDTO> streamUsersByBirthDateRange(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return userService.streamUsersByBirthDateRange(from, to);
+    }
+
+    @PostMapping()
+    public Mono<ResponseEntity<UserDTO>> createUser(
+            @RequestBody @Valid UserDTO userDTO) {
+        return userService.createUser(userDTO)
+                .map(createdUser -> ResponseEntity.status(HttpStatus.CREATED).eTag(eTag(createdUser.getVersion())).body(createdUser));
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<UserDTO>> updateUser(
+            @RequestBody @Valid UserDTO userDTO,
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (ifMatch != null) {
+            userDTO.setVersion(parseIfMatch(ifMatch));
+        }
+        return userService.updateUser(userDTO, id)
+                .map(updatedUser -> ResponseEntity.status(HttpStatus.OK).eTag(eTag(updatedUser.getVersion())).body(updatedUser));
+    }
+
+    @PatchMapping("/{id}")
+    public Mono<ResponseEntity<UserDTO>> patchUser(
+            @RequestBody @Valid PartialUserDTO userDTO,
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (ifMatch != null) {
+            userDTO.setVersion(parseIfMatch(ifMatch));
+        }
+        return userService.patchUser(userDTO, id)
+                .map(updatedUser -> ResponseEntity.status(HttpStatus.OK).eTag(eTag(updatedUser.getVersion())).body(updatedUser));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<String>> deleteUser(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long version = ifMatch != null ? parseIfMatch(ifMatch) : null;
+        return userService.deleteUser(id, version)
+                .map(message -> ResponseEntity.status(HttpStatus.OK).body(message));
+    }
+}
@@ -1,23 +1,73 @@
 package com.darmokhval.test_task.controller;
 
 import com.darmokhval.test_task.model.dto.PartialUserDTO;
+import com.darmokhval.test_task.model.dto.UserBatchResultDTO;
 import com.darmokhval.test_task.model.dto.UserDTO;
+import com.darmokhval.test_task.model.dto.UserPageDTO;
+import com.darmokhval.test_task.service.UserBatchService;
+import com.darmokhval.test_task.service.UserChangeService;
+import com.darmokhval.test_task.service.UserExportService;
+import com.darmokhval.test_task.service.UserRangeStreamService;
 import com.darmokhval.test_task.service.UserService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Future;
 
+import static com.darmokhval.test_task.controller.UserETags.eTag;
+import static com.darmokhval.test_task.controller.UserETags.eTagMatches;
+import static com.darmokhval.test_task.controller.UserETags.parseIfMatch;
+
+@Profile("!reactive")
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("api/users")
 public class UserController {
     private final UserService userService;
+    private final UserBatchService userBatchService;
+    private final UserExportService userExportService;
+    private final UserRangeStreamService userRangeStreamService;
+    private final UserChangeService userChangeService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * ETag of user is its version. When If-None-Match still matches, only version is read and 304 is returned.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<UserDTO> findUserById(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            Optional<Long> version = userService.findUserVersion(id);
+            if (version.isPresent() && eTagMatches(ifNoneMatch, version.get())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag(version.get())).build();
+            }
+        }
+        UserDTO userDTO = userService.findUserById(id);
+        return ResponseEntity.status(HttpStatus.OK).eTag(eTag(userDTO.getVersion())).body(userDTO);
+    }
 
     @GetMapping("/birth_date")
     public ResponseEntity<List<UserDTO>> findUsersByBirthDateRange(
@@ -26,26 +76,170 @@ public class UserController {
         return ResponseEntity.status(HttpStatus.OK).body(userService.findUsersByBirthDateRange(from, to));
     }
 
+    @GetMapping("/birth_date/page")
+    public ResponseEntity<UserPageDTO> findUsersByBirthDateRangePage(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "afterBirthDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate afterBirthDate,
+            @RequestParam(value = "afterId", required = false) Long afterId,
+            @RequestParam(value = "size", defaultValue = "100") int size) {
+        return ResponseEntity.status(HttpStatus.OK)
+                .body(userService.findUsersByBirthDateRangePage(from, to, afterBirthDate, afterId, size));
+    }
+
+    /**
+     * Users with birthday within given number of days from date (today by default), in order of upcoming birthday.
+     */
+    @GetMapping("/birthdays")
+    public ResponseEntity<UserPageDTO> findUpcomingBirthdays(
+            @RequestParam(value = "days", defaultValue = "30") int days,
+            @RequestParam(value = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(value = "afterBirthDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate afterBirthDate,
+            @RequestParam(value = "afterId", required = false) Long afterId,
+            @RequestParam(value = "size", defaultValue = "100") int size) {
+        return ResponseEntity.status(HttpStatus.OK).body(userService.findUpcomingBirthdays(
+                date != null ? date : LocalDate.now(), days, afterBirthDate, afterId, size));
+    }
+
+    /**
+     * Search by first name, last name or email; mode is prefix or fuzzy. from/to narrow it to birth date range.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<UserPageDTO> searchUsers(
+            @RequestParam("q") String text,
+            @RequestParam(value = "mode", defaultValue = "prefix") String mode,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "afterId", required = false) Long afterId,
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        return ResponseEntity.status(HttpStatus.OK)
+                .body(userService.searchUsers(text, mode, from, to, afterId, size));
+    }
+
+    /**
+     * Same result as birth_date search, written as newline-delimited JSON while rows are read from database.
+     */
+    @GetMapping(value = "/birth_date/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUsersByBirthDateRange(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        userService.validateDateRange(from, to);
+        ObjectWriter writer = objectMapper.writerFor(UserDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("");
+        StreamingResponseBody body = outputStream -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+            userRangeStreamService.streamUsersByBirthDateRange(from, to, userDTO -> {
+                try {
+                    writer.writeValue(generator, userDTO);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.flush();
+        };
+        return ResponseEntity.status(HttpStatus.OK)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * Export users as CSV or NDJSON straight from database. Without from/to whole table is exported.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+            @RequestParam(value = "format", defaultValue = "csv") String format,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        UserExportService.Format exportFormat = UserExportService.Format.of(format);
+        userExportService.validateFilter(from, to);
+        StreamingResponseBody body = outputStream -> userExportService.exportUsers(from, to, exportFormat, outputStream);
+        return ResponseEntity.status(HttpStatus.OK)
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("users." + exportFormat.name().toLowerCase())
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
+    /**
+     * Stream of user changes after given offset, as server-sent events or NDJSON. Reconnecting client continues
+     * after the last offset it has received, passed as after or (by EventSource) as Last-Event-ID header.
+     * Written by thread of change stream pool, so request doesn't hold an async request thread.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<ResponseBodyEmitter> streamChanges(
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "format", defaultValue = "sse") String format,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        UserChangeService.Format streamFormat = UserChangeService.Format.of(format);
+        long offset = after != null ? after : lastEventId != null ? lastEventId : 0;
+        userChangeService.validateOffset(offset);
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter();
+        Future<?> stream = userChangeService.startStream(offset, streamFormat, new EmitterOutputStream(emitter), error -> {
+            if (error == null) {
+                emitter.complete();
+            } else {
+                emitter.completeWithError(error);
+            }
+        });
+        // client went away or request timed out, free stream thread right away
+        emitter.onError(error -> stream.cancel(true));
+        emitter.onTimeout(() -> stream.cancel(true));
+        return ResponseEntity.status(HttpStatus.OK)
+                .contentType(MediaType.parseMediaType(streamFormat.getContentType()))
+                .cacheControl(CacheControl.noStore())
+                .body(emitter);
+    }
+
     @PostMapping()
     public ResponseEntity<UserDTO> createUser(
             @RequestBody @Valid UserDTO userDTO) {
-        return ResponseEntity.status(HttpStatus.CREATED).body(userService.createUser(userDTO));
+        UserDTO createdUser = userService.createUser(userDTO);
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(eTag(createdUser.getVersion())).body(createdUser);
+    }
+
+    /**
+     * Accepts JSON array or NDJSON. Body is read incrementally, rows are validated and inserted in chunks.
+     */
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<UserBatchResultDTO> createUsers(InputStream body) throws IOException {
+        try (MappingIterator<UserDTO> users = objectMapper.readerFor(UserDTO.class).readValues(body)) {
+            return ResponseEntity.status(HttpStatus.OK).body(userBatchService.createUsers(users));
+        }
     }
+    /**
+     * If-Match (or version in body) makes update conditional; If-Match header takes precedence.
+     */
     @PutMapping("/{id}")
     public ResponseEntity<UserDTO> updateUser(
             @RequestBody @Valid UserDTO userDTO,
-            @PathVariable Long id) {
-        return ResponseEntity.status(HttpStatus.OK).body(userService.updateUser(userDTO, id));
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (ifMatch != null) {
+            userDTO.setVersion(parseIfMatch(ifMatch));
+        }
+        UserDTO updatedUser = userService.updateUser(userDTO, id);
+        return ResponseEntity.status(HttpStatus.OK).eTag(eTag(updatedUser.getVersion())).body(updatedUser);
     }
     @PatchMapping("/{id}")
     public ResponseEntity<UserDTO> patchUser(
             @RequestBody @Valid PartialUserDTO userDTO,
-            @PathVariable Long id) {
-        return ResponseEntity.status(HttpStatus.OK).body(userService.patchUser(userDTO, id));
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (ifMatch != null) {
+            userDTO.setVersion(parseIfMatch(ifMatch));
+        }
+        UserDTO updatedUser = userService.patchUser(userDTO, id);
+        return ResponseEntity.status(HttpStatus.OK).eTag(eTag(updatedUser.getVersion())).body(updatedUser);
     }
     @DeleteMapping("/{id}")
     public ResponseEntity<String> deleteUser(
-            @PathVariable Long id) {
-        return ResponseEntity.status(HttpStatus.OK).body(userService.deleteUser(id));
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long version = ifMatch != null ? parseIfMatch(ifMatch) : null;
+        return ResponseEntity.status(HttpStatus.OK).body(userService.deleteUser(id, version));
     }
 }
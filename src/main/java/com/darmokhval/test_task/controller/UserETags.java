@@ -0,0 +1,51 @@
+package com.darmokhval.test_task.controller;
+
+import com.darmokhval.test_task.service.UserError;
+
+/**
+ * ETag of user is its version. Shared by servlet and reactive controllers.
+ */
+final class UserETags {
+
+    private UserETags() {
+    }
+
+    static String eTag(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Weak comparison, as required for If-None-Match: W/ prefix is ignored, "*" matches any version.
+     */
+    static boolean eTagMatches(String ifNoneMatch, long version) {
+        String current = eTag(version);
+        for (String tag : ifNoneMatch.split(",")) {
+            String trimmed = tag.trim();
+            if (trimmed.startsWith("W/")) {
+                trimmed = trimmed.substring(2);
+            }
+            if (trimmed.equals("*") || trimmed.equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Single strong ETag is expected; "*" means any version, so no version check is done.
+     */
+    static Long parseIfMatch(String ifMatch) {
+        String tag = ifMatch.trim();
+        if (tag.equals("*")) {
+            return null;
+        }
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.parseLong(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException ignored) {
+                // reported below
+            }
+        }
+        throw UserError.INVALID_IF_MATCH.exception(ifMatch);
+    }
+}
@@ -0,0 +1,47 @@
+package com.darmokhval.test_task.controller;
+
+import com.darmokhval.test_task.model.dto.UserCreationStatusDTO;
+import com.darmokhval.test_task.model.dto.UserDTO;
+import com.darmokhval.test_task.service.UserWriteBehindService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * Asynchronous registration, available when user.async_create.enabled is true.
+ */
+@Profile("!reactive")
+@ConditionalOnProperty(name = "user.async_create.enabled", havingValue = "true")
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("api/users/async")
+public class UserWriteBehindController {
+    private final UserWriteBehindService userWriteBehindService;
+
+    /**
+     * User is validated and queued, 202 with tracking id is returned before it is saved.
+     * 503 with Retry-After means queue is full.
+     */
+    @PostMapping()
+    public ResponseEntity<UserCreationStatusDTO> createUser(
+            @RequestBody @Valid UserDTO userDTO) {
+        UserCreationStatusDTO status = userWriteBehindService.submit(userDTO);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .location(ServletUriComponentsBuilder.fromCurrentRequest()
+                        .path("/{trackingId}")
+                        .buildAndExpand(status.getTrackingId())
+                        .toUri())
+                .body(status);
+    }
+
+    @GetMapping("/{trackingId}")
+    public ResponseEntity<UserCreationStatusDTO> findStatus(
+            @PathVariable String trackingId) {
+        return ResponseEntity.status(HttpStatus.OK).body(userWriteBehindService.findStatus(trackingId));
+    }
+}
@@ -26,6 +26,7 @@ public class UserMapper {
                 .email(user.getEmail())
                 .address(user.getAddress())
                 .phoneNumber(user.getPhoneNumber())
+                .version(user.getVersion())
                 .build();
     }
 }
@@ -22,4 +22,8 @@ public class PartialUserDTO {
     private String email;
     private String address;
     private String phoneNumber;
+    /**
+     * Version user was read at. When sent with update, update fails if user was modified in the meantime.
+     */
+    private Long version;
 }
@@ -0,0 +1,19 @@
+package com.darmokhval.test_task.model.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserBatchErrorDTO {
+    /**
+     * Zero-based position of rejected user in request.
+     */
+    private int index;
+    private String email;
+    private List<String> messages;
+}
@@ -0,0 +1,18 @@
+package com.darmokhval.test_task.model.dto;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserBatchResultDTO {
+    private int received;
+    private int created;
+    @Builder.Default
+    private List<UserBatchErrorDTO> errors = new ArrayList<>();
+}
@@ -0,0 +1,30 @@
+package com.darmokhval.test_task.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.*;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserChangeDTO {
+    /**
+     * Position of event in change stream, consumer continues after the last offset it has processed.
+     */
+    private Long offset;
+    private Type type;
+    private Long userId;
+    /**
+     * User as JSON after the change, null for DELETED. Written as stored, without parsing.
+     */
+    @JsonRawValue
+    private String user;
+    private Instant createdAt;
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+}
@@ -0,0 +1,27 @@
+package com.darmokhval.test_task.model.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserCreationStatusDTO {
+    private String trackingId;
+    private Status status;
+    /**
+     * Id of created user, present once status is CREATED.
+     */
+    private Long userId;
+    /**
+     * Reasons of rejection, present once status is REJECTED.
+     */
+    private List<String> messages;
+
+    public enum Status {
+        QUEUED, CREATED, REJECTED
+    }
+}
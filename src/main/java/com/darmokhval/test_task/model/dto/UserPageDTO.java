@@ -0,0 +1,21 @@
+package com.darmokhval.test_task.model.dto;
+
+import lombok.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * One page of keyset pagination. Pass lastBirthDate/lastId back as afterBirthDate/afterId to get next page.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserPageDTO {
+    private List<UserDTO> users;
+    private boolean hasNext;
+    private LocalDate lastBirthDate;
+    private Long lastId;
+}
@@ -19,7 +19,8 @@ import java.time.LocalDate;
 @Table(name = "\"user\"")
 public class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_seq")
+    @SequenceGenerator(name = "user_seq", sequenceName = "user_seq", allocationSize = 50)
     private Long id;
     @NotEmpty(message = "Firstname shouldn't be empty!")
     private String firstName;
@@ -34,4 +35,15 @@ public class User {
     private String email;
     private String address;
     private String phoneNumber;
+    /**
+     * Month and day of birth as MMDD, generated by database from birthDate. Used to find upcoming birthdays.
+     */
+    @Column(insertable = false, updatable = false)
+    private Short birthMonthDay;
+    /**
+     * Incremented by every update statement, used to detect concurrent modifications.
+     */
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
 }
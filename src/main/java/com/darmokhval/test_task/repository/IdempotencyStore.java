@@ -0,0 +1,39 @@
+package com.darmokhval.test_task.repository;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Responses of requests sent with Idempotency-Key, replayed when the same key comes again.
+ * Key is claimed before its request is executed, so it's executed once by all instances sharing the store.
+ * Entries expire after configured time.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Stored response of key, empty also while key is claimed but has no response yet.
+     */
+    Optional<StoredResponse> find(String key);
+
+    /**
+     * Claim key for executing its request. False when key has response or is claimed by someone else.
+     */
+    boolean claim(String key, String request);
+
+    /**
+     * Store response of claimed key, first stored response wins.
+     */
+    void put(String key, StoredResponse response);
+
+    /**
+     * Give up claim of key without response, so retry executes request again.
+     */
+    void release(String key);
+
+    /**
+     * @param request  method and URI the key was first used with
+     * @param bodyHash hex SHA-256 of request body the key was first used with
+     */
+    record StoredResponse(String request, String bodyHash, int status, Map<String, String> headers, byte[] body) {
+    }
+}
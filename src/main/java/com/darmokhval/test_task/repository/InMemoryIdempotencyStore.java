@@ -0,0 +1,42 @@
+package com.darmokhval.test_task.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Store local to this instance, bounded by number of entries. Retry landing on another instance is executed again.
+ * Claims are not recorded, requests running in this instance are tracked by IdempotencyFilter.
+ */
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+    private final Cache<String, StoredResponse> responses;
+
+    public InMemoryIdempotencyStore(int maxEntries, Duration ttl) {
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    @Override
+    public Optional<StoredResponse> find(String key) {
+        return Optional.ofNullable(responses.getIfPresent(key));
+    }
+
+    @Override
+    public boolean claim(String key, String request) {
+        return responses.getIfPresent(key) == null;
+    }
+
+    @Override
+    public void put(String key, StoredResponse response) {
+        responses.asMap().putIfAbsent(key, response);
+    }
+
+    @Override
+    public void release(String key) {
+        // nothing is claimed
+    }
+}
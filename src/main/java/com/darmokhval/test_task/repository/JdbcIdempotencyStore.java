@@ -0,0 +1,105 @@
+package com.darmokhval.test_task.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Store in idempotency_key table shared by all instances, so retry may land on any of them.
+ * Claim is a row without status; claim of instance that stopped before storing response is taken over after
+ * claim timeout. Expired rows are ignored and deleted now and then on claim. Expiry is computed by database clock.
+ */
+public class JdbcIdempotencyStore implements IdempotencyStore {
+    private static final int CLEANUP_EVERY = 1000;
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration ttl;
+    private final Duration claimTimeout;
+    private final AtomicLong inserts = new AtomicLong();
+
+    public JdbcIdempotencyStore(JdbcTemplate jdbcTemplate, Duration ttl, Duration claimTimeout) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = ttl;
+        this.claimTimeout = claimTimeout;
+    }
+
+    @Override
+    public Optional<StoredResponse> find(String key) {
+        return jdbcTemplate.query("""
+                        SELECT request, body_hash, status, headers, body FROM idempotency_key
+                        WHERE key = ? AND status IS NOT NULL AND created_at > now() - make_interval(secs => ?)""",
+                (resultSet, rowNumber) -> new StoredResponse(
+                        resultSet.getString("request"),
+                        resultSet.getString("body_hash"),
+                        resultSet.getInt("status"),
+                        parseHeaders(resultSet.getString("headers")),
+                        resultSet.getBytes("body")),
+                key, ttlSeconds()).stream().findFirst();
+    }
+
+    /**
+     * Row of the same key is replaced when its response expired or its claim timed out.
+     */
+    @Override
+    public boolean claim(String key, String request) {
+        if (inserts.incrementAndGet() % CLEANUP_EVERY == 0) {
+            jdbcTemplate.update("DELETE FROM idempotency_key WHERE created_at <= now() - make_interval(secs => ?)", ttlSeconds());
+        }
+        return jdbcTemplate.update("""
+                        INSERT INTO idempotency_key (key, request, created_at)
+                        VALUES (?, ?, now())
+                        ON CONFLICT (key) DO UPDATE
+                        SET request = excluded.request, body_hash = NULL, status = NULL, headers = NULL, body = NULL,
+                            created_at = excluded.created_at
+                        WHERE idempotency_key.created_at <= now() - make_interval(secs =>
+                            CASE WHEN idempotency_key.status IS NULL THEN ? ELSE ? END)""",
+                key, request, seconds(claimTimeout), ttlSeconds()) > 0;
+    }
+
+    /**
+     * Response expires ttl after it was stored.
+     */
+    @Override
+    public void put(String key, StoredResponse response) {
+        jdbcTemplate.update("""
+                        UPDATE idempotency_key
+                        SET request = ?, body_hash = ?, status = ?, headers = ?, body = ?, created_at = now()
+                        WHERE key = ? AND status IS NULL""",
+                response.request(), response.bodyHash(), response.status(), formatHeaders(response.headers()),
+                response.body(), key);
+    }
+
+    @Override
+    public void release(String key) {
+        jdbcTemplate.update("DELETE FROM idempotency_key WHERE key = ? AND status IS NULL", key);
+    }
+
+    private double ttlSeconds() {
+        return seconds(ttl);
+    }
+
+    private static double seconds(Duration duration) {
+        return duration.toMillis() / 1000.0;
+    }
+
+    private static String formatHeaders(Map<String, String> headers) {
+        return headers.entrySet().stream()
+                .map(header -> header.getKey() + ": " + header.getValue())
+                .collect(Collectors.joining("\n"));
+    }
+
+    private static Map<String, String> parseHeaders(String headers) {
+        Map<String, String> parsed = new LinkedHashMap<>();
+        if (headers != null && !headers.isEmpty()) {
+            for (String line : headers.split("\n")) {
+                int separator = line.indexOf(": ");
+                parsed.put(line.substring(0, separator), line.substring(separator + 2));
+            }
+        }
+        return parsed;
+    }
+}
@@ -0,0 +1,226 @@
+package com.darmokhval.test_task.repository;
+
+import com.darmokhval.test_task.model.dto.UserChangeDTO;
+import com.darmokhval.test_task.model.dto.UserDTO;
+import com.darmokhval.test_task.model.entity.User;
+import io.r2dbc.spi.Parameter;
+import io.r2dbc.spi.Parameters;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * R2DBC counterpart of {@link UserRepository} for reactive profile. Statements are the same as used by
+ * servlet deployment, so both can work against one database. With user.changes.enabled writes also insert
+ * their event into user_change_outbox within the same statement, to be published by relay of servlet deployment.
+ */
+@Profile("reactive")
+@Repository
+public class ReactiveUserRepository {
+    private static final String COLUMNS = "id, first_name, last_name, birth_date, email, address, phone_number, version";
+    /**
+     * Same JSON as UserChangeService writes for {@link UserDTO}.
+     */
+    private static final String PAYLOAD = """
+            json_build_object('id', id, 'firstName', first_name, 'lastName', last_name, 'birthDate', birth_date,
+                'email', email, 'address', address, 'phoneNumber', phone_number, 'version', version)""";
+    private final DatabaseClient databaseClient;
+    private final int fetchSize;
+    private final boolean recordChanges;
+
+    public ReactiveUserRepository(DatabaseClient databaseClient,
+                                  @Value("${user.stream.fetch_size:500}") int fetchSize,
+                                  @Value("${user.changes.enabled:true}") boolean recordChanges) {
+        this.databaseClient = databaseClient;
+        this.fetchSize = fetchSize;
+        this.recordChanges = recordChanges;
+    }
+
+    public Mono<UserDTO> findById(Long id) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM \"user\" WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveUserRepository::toUserDTO)
+                .one();
+    }
+
+    public Mono<Long> findVersionById(Long id) {
+        return databaseClient.sql("SELECT version FROM \"user\" WHERE id = :id")
+                .bind("id", id)
+                .map(row -> row.get("version", Long.class))
+                .one();
+    }
+
+    public Mono<Boolean> existsById(Long id) {
+        return databaseClient.sql("SELECT 1 FROM \"user\" WHERE id = :id")
+                .bind("id", id)
+                .map(row -> true)
+                .one()
+                .defaultIfEmpty(false);
+    }
+
+    public Mono<Long> findIdByEmail(String email) {
+        return databaseClient.sql("SELECT id FROM \"user\" WHERE lower(email) = lower(:email)")
+                .bind("email", email)
+                .map(row -> row.get("id", Long.class))
+                .one();
+    }
+
+    /**
+     * Users in range ordered by (birthDate, id), optionally after keyset cursor. Limit 0 means no limit.
+     * Rows are fetched from server in portions of fetch size as subscriber requests them.
+     */
+    public Flux<UserDTO> findByBirthDateRange(LocalDate from, LocalDate to,
+                                              LocalDate afterBirthDate, Long afterId, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + " FROM \"user\" WHERE birth_date BETWEEN :from AND :to");
+        if (afterBirthDate != null) {
+            sql.append(" AND (birth_date, id) > (:afterBirthDate, :afterId)");
+        }
+        sql.append(" ORDER BY birth_date, id");
+        if (limit > 0) {
+            sql.append(" LIMIT ").append(limit);
+        }
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString())
+                .bind("from", from)
+                .bind("to", to);
+        if (afterBirthDate != null) {
+            spec = spec.bind("afterBirthDate", afterBirthDate).bind("afterId", afterId);
+        }
+        return spec.filter(statement -> statement.fetchSize(fetchSize))
+                .map(ReactiveUserRepository::toUserDTO)
+                .all();
+    }
+
+    /**
+     * Id is taken from user_seq directly. Value is never handed out twice, so it can't collide with
+     * ids that Hibernate derives from its own pooled blocks.
+     */
+    public Mono<UserDTO> insert(User user) {
+        return databaseClient.sql(recordingChange(UserChangeDTO.Type.CREATED, """
+                        INSERT INTO "user" (id, first_name, last_name, birth_date, email, address, phone_number, version)
+                        VALUES (nextval('user_seq'), :firstName, :lastName, :birthDate, :email, :address, :phoneNumber, 0)
+                        RETURNING\s""" + COLUMNS))
+                .bind("firstName", user.getFirstName())
+                .bind("lastName", user.getLastName())
+                .bind("birthDate", user.getBirthDate())
+                .bind("email", user.getEmail())
+                .bind("address", nullable(user.getAddress(), String.class))
+                .bind("phoneNumber", nullable(user.getPhoneNumber(), String.class))
+                .map(ReactiveUserRepository::toUserDTO)
+                .one();
+    }
+
+    /**
+     * Same statement as {@link UserRepository#updateReturning}.
+     */
+    public Mono<UserDTO> update(Long id, UserDTO userDTO, Long version) {
+        return bindFields(databaseClient.sql(recordingChange(UserChangeDTO.Type.UPDATED, """
+                        UPDATE "user"
+                        SET first_name = :firstName, last_name = :lastName, birth_date = :birthDate, email = :email,
+                            address = :address, phone_number = :phoneNumber, version = version + 1
+                        WHERE id = :id AND (CAST(:version AS bigint) IS NULL OR version = CAST(:version AS bigint))
+                        RETURNING\s""" + COLUMNS)), id, userDTO.getFirstName(), userDTO.getLastName(),
+                userDTO.getBirthDate(), userDTO.getEmail(), userDTO.getAddress(), userDTO.getPhoneNumber(), version)
+                .map(ReactiveUserRepository::toUserDTO)
+                .one();
+    }
+
+    /**
+     * Same statement as {@link UserRepository#patchReturning}, null fields keep current values.
+     */
+    public Mono<UserDTO> patch(Long id, String firstName, String lastName, LocalDate birthDate, String email,
+                               String address, String phoneNumber, Long version) {
+        return bindFields(databaseClient.sql(recordingChange(UserChangeDTO.Type.UPDATED, """
+                        UPDATE "user"
+                        SET first_name = COALESCE(:firstName, first_name),
+                            last_name = COALESCE(:lastName, last_name),
+                            birth_date = COALESCE(:birthDate, birth_date),
+                            email = COALESCE(:email, email),
+                            address = COALESCE(:address, address),
+                            phone_number = COALESCE(:phoneNumber, phone_number),
+                            version = version + 1
+                        WHERE id = :id AND (CAST(:version AS bigint) IS NULL OR version = CAST(:version AS bigint))
+                        RETURNING\s""" + COLUMNS)), id, firstName, lastName, birthDate, email, address, phoneNumber, version)
+                .map(ReactiveUserRepository::toUserDTO)
+                .one();
+    }
+
+    /**
+     * Returns number of deleted rows. Null version deletes any version.
+     */
+    public Mono<Long> deleteById(Long id, Long version) {
+        String delete = """
+                DELETE FROM "user"
+                WHERE id = :id AND (CAST(:version AS bigint) IS NULL OR version = CAST(:version AS bigint))""";
+        if (!recordChanges) {
+            return databaseClient.sql(delete)
+                    .bind("id", id)
+                    .bind("version", nullable(version, Long.class))
+                    .fetch()
+                    .rowsUpdated();
+        }
+        return databaseClient.sql("WITH changed AS (" + delete + " RETURNING id), " + """
+                        recorded AS (
+                            INSERT INTO user_change_outbox (type, user_id) SELECT 'DELETED', id FROM changed
+                        )
+                        SELECT count(*) AS deleted FROM changed""")
+                .bind("id", id)
+                .bind("version", nullable(version, Long.class))
+                .map(row -> row.get("deleted", Long.class))
+                .one();
+    }
+
+    /**
+     * Wrap statement returning user columns, so it also inserts event with returned user into outbox.
+     */
+    private String recordingChange(UserChangeDTO.Type type, String statement) {
+        if (!recordChanges) {
+            return statement;
+        }
+        return "WITH changed AS (" + statement + "), " + """
+                recorded AS (
+                    INSERT INTO user_change_outbox (type, user_id, payload)
+                    SELECT '%s', id, %s FROM changed
+                )
+                SELECT\s""".formatted(type.name(), PAYLOAD) + COLUMNS + " FROM changed";
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindFields(DatabaseClient.GenericExecuteSpec spec, Long id,
+                                                                String firstName, String lastName, LocalDate birthDate,
+                                                                String email, String address, String phoneNumber,
+                                                                Long version) {
+        return spec.bind("id", id)
+                .bind("firstName", nullable(firstName, String.class))
+                .bind("lastName", nullable(lastName, String.class))
+                .bind("birthDate", nullable(birthDate, LocalDate.class))
+                .bind("email", nullable(email, String.class))
+                .bind("address", nullable(address, String.class))
+                .bind("phoneNumber", nullable(phoneNumber, String.class))
+                .bind("version", nullable(version, Long.class));
+    }
+
+    /**
+     * Value to bind, typed null when value is null.
+     */
+    private static Parameter nullable(Object value, Class<?> type) {
+        return value != null ? Parameters.in(value) : Parameters.in(type);
+    }
+
+    private static UserDTO toUserDTO(Readable row) {
+        return UserDTO.builder()
+                .id(row.get("id", Long.class))
+                .firstName(row.get("first_name", String.class))
+                .lastName(row.get("last_name", String.class))
+                .birthDate(row.get("birth_date", LocalDate.class))
+                .email(row.get("email", String.class))
+                .address(row.get("address", String.class))
+                .phoneNumber(row.get("phone_number", String.class))
+                .version(row.get("version", Long.class))
+                .build();
+    }
+}
@@ -0,0 +1,22 @@
+package com.darmokhval.test_task.repository;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Makes pg_trgm word similarity operator available to criteria queries as function, see
+ * {@link UserSpecification#matches}. Operator form is what trigram indexes can serve, similarity function is not.
+ */
+public class TrigramFunctionContributor implements FunctionContributor {
+    /**
+     * word_similar(text, column) is rendered as 'text <% column'.
+     */
+    public static final String WORD_SIMILAR = "word_similar";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        functionContributions.getFunctionRegistry().registerPattern(WORD_SIMILAR, "(?1 <% ?2)",
+                functionContributions.getTypeConfiguration().getBasicTypeRegistry().resolve(StandardBasicTypes.BOOLEAN));
+    }
+}
@@ -0,0 +1,91 @@
+package com.darmokhval.test_task.repository;
+
+import com.darmokhval.test_task.model.dto.UserChangeDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * user_change_outbox and user_change_log tables. Outbox inserts join transaction of the caller.
+ */
+@Profile("!reactive")
+@Repository
+@RequiredArgsConstructor
+public class UserChangeRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insert(UserChangeDTO.Type type, Long userId, String payload) {
+        jdbcTemplate.update("INSERT INTO user_change_outbox (type, user_id, payload) VALUES (?, ?, ?::json)",
+                type.name(), userId, payload);
+    }
+
+    public void insertAll(UserChangeDTO.Type type, List<Long> userIds, List<String> payloads) {
+        List<Object[]> rows = new ArrayList<>(userIds.size());
+        for (int i = 0; i < userIds.size(); i++) {
+            rows.add(new Object[]{type.name(), userIds.get(i), payloads.get(i)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO user_change_outbox (type, user_id, payload) VALUES (?, ?, ?::json)", rows);
+    }
+
+    /**
+     * Transaction-scoped lock, so only one relay publishes at a time across instances. Must run in transaction.
+     */
+    public boolean tryLockRelay() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT pg_try_advisory_xact_lock(hashtext('user_change_relay'))", Boolean.class));
+    }
+
+    /**
+     * Move up to limit oldest outbox events into change log, assigning offsets in outbox order.
+     * Sequence is evaluated after sort, so offsets follow ids. Returns number of moved events.
+     */
+    public int publish(int limit) {
+        return jdbcTemplate.update("""
+                WITH moved AS (
+                    DELETE FROM user_change_outbox
+                    WHERE id IN (SELECT id FROM user_change_outbox ORDER BY id LIMIT ?)
+                    RETURNING id, type, user_id, payload, created_at
+                )
+                INSERT INTO user_change_log (change_offset, type, user_id, payload, created_at)
+                SELECT nextval('user_change_offset_seq'), type, user_id, payload, created_at
+                FROM moved ORDER BY id""", limit);
+    }
+
+    public List<UserChangeDTO> findAfter(long offset, int limit) {
+        return jdbcTemplate.query("""
+                        SELECT change_offset, type, user_id, payload, created_at FROM user_change_log
+                        WHERE change_offset > ? ORDER BY change_offset LIMIT ?""",
+                (resultSet, rowNumber) -> UserChangeDTO.builder()
+                        .offset(resultSet.getLong("change_offset"))
+                        .type(UserChangeDTO.Type.valueOf(resultSet.getString("type")))
+                        .userId(resultSet.getLong("user_id"))
+                        .user(resultSet.getString("payload"))
+                        .createdAt(resultSet.getTimestamp("created_at").toInstant())
+                        .build(),
+                offset, limit);
+    }
+
+    /**
+     * Offset of the oldest retained event, null when nothing was published yet.
+     */
+    public Long findFirstOffset() {
+        return jdbcTemplate.queryForObject("SELECT min(change_offset) FROM user_change_log", Long.class);
+    }
+
+    /**
+     * Delete events published longer than retention ago. The newest event is always kept, so the oldest
+     * retained offset tells how far back the log reaches.
+     */
+    public int deletePublishedBefore(Duration retention) {
+        return jdbcTemplate.update("""
+                        DELETE FROM user_change_log
+                        WHERE published_at < now() - make_interval(secs => ?)
+                        AND change_offset < (SELECT max(change_offset) FROM user_change_log)""",
+                retention.toMillis() / 1000.0);
+    }
+}
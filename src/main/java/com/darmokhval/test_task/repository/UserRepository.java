@@ -1,13 +1,96 @@
 package com.darmokhval.test_task.repository;
 
 import com.darmokhval.test_task.model.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User> {
-    Optional<User> findByEmail(String email);
+public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User>,
+        UserRepositoryCustom {
+    /**
+     * Unique index on lower(email). Violations of it mean email is already taken.
+     */
+    String EMAIL_UNIQUE_INDEX = "ux_user_email";
+
+    /**
+     * Replace all fields in one statement. Empty result means no user with this id (and version, if given).
+     */
+    @Query(value = """
+            UPDATE "user"
+            SET first_name = :firstName, last_name = :lastName, birth_date = CAST(:birthDate AS date), email = :email,
+                address = CAST(:address AS varchar), phone_number = CAST(:phoneNumber AS varchar),
+                version = version + 1
+            WHERE id = :id AND (CAST(:version AS bigint) IS NULL OR version = CAST(:version AS bigint))
+            RETURNING *""", nativeQuery = true)
+    Optional<User> updateReturning(@Param("id") Long id,
+                                   @Param("firstName") String firstName,
+                                   @Param("lastName") String lastName,
+                                   @Param("birthDate") LocalDate birthDate,
+                                   @Param("email") String email,
+                                   @Param("address") String address,
+                                   @Param("phoneNumber") String phoneNumber,
+                                   @Param("version") Long version);
+
+    /**
+     * Same as {@link #updateReturning}, but null arguments keep current values.
+     */
+    @Query(value = """
+            UPDATE "user"
+            SET first_name = COALESCE(CAST(:firstName AS varchar), first_name),
+                last_name = COALESCE(CAST(:lastName AS varchar), last_name),
+                birth_date = COALESCE(CAST(:birthDate AS date), birth_date),
+                email = COALESCE(CAST(:email AS varchar), email),
+                address = COALESCE(CAST(:address AS varchar), address),
+                phone_number = COALESCE(CAST(:phoneNumber AS varchar), phone_number),
+                version = version + 1
+            WHERE id = :id AND (CAST(:version AS bigint) IS NULL OR version = CAST(:version AS bigint))
+            RETURNING *""", nativeQuery = true)
+    Optional<User> patchReturning(@Param("id") Long id,
+                                  @Param("firstName") String firstName,
+                                  @Param("lastName") String lastName,
+                                  @Param("birthDate") LocalDate birthDate,
+                                  @Param("email") String email,
+                                  @Param("address") String address,
+                                  @Param("phoneNumber") String phoneNumber,
+                                  @Param("version") Long version);
+
+    /**
+     * Delete without loading user first, returns number of deleted rows. Null version deletes any version.
+     */
+    @Modifying
+    @Query("delete from User u where u.id = :id and (:version is null or u.version = :version)")
+    int deleteUserById(@Param("id") Long id, @Param("version") Long version);
+
+    @Query("select u.version from User u where u.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    /**
+     * Id of user owning email, compared case-insensitively. Served by ux_user_email index, no entity is loaded.
+     */
+    @Query("select u.id from User u where lower(u.email) = lower(:email)")
+    Optional<Long> findIdByEmail(@Param("email") String email);
+
+    /**
+     * Which of emails are already used. Emails must be lower-cased, result is lower-cased.
+     */
+    @Query("select lower(u.email) from User u where lower(u.email) in :emails")
+    Set<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    @Query("select lower(u.email) from User u")
+    @QueryHints({@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "10000"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")})
+    Stream<String> streamAllEmails();
 }
@@ -0,0 +1,48 @@
+package com.darmokhval.test_task.repository;
+
+import com.darmokhval.test_task.model.dto.UserDTO;
+import com.darmokhval.test_task.model.entity.User;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Read path that selects columns straight into {@link UserDTO} through constructor expression.
+ * No entity is hydrated, so nothing lands in persistence context and there is no dirty-checking snapshot.
+ */
+public interface UserRepositoryCustom {
+
+    Optional<UserDTO> findUserDTO(Specification<User> specification);
+
+    /**
+     * Find users matching specification without issuing a count query.
+     *
+     * @param limit maximum number of users, 0 for no limit
+     */
+    List<UserDTO> findUserDTOs(Specification<User> specification, Sort sort, int limit);
+
+    /**
+     * Same as {@link #findUserDTOs(Specification, Sort, int)}, statement is cancelled by database after timeout.
+     */
+    List<UserDTO> findUserDTOs(Specification<User> specification, Sort sort, int limit, int timeoutSeconds);
+
+    /**
+     * Stream users matching specification through a server-side cursor.
+     * Must be consumed and closed inside a transaction.
+     */
+    Stream<UserDTO> streamUserDTOs(Specification<User> specification, Sort sort, int fetchSize);
+
+    /**
+     * Bounds of equal-depth birth_date histogram gathered by ANALYZE, ascending. Empty when table wasn't analyzed.
+     */
+    List<LocalDate> findBirthDateHistogram();
+
+    /**
+     * Number of users estimated by ANALYZE (sum of partitions for partitioned table), 0 when unknown.
+     */
+    long estimateUserCount();
+}
@@ -0,0 +1,100 @@
+package com.darmokhval.test_task.repository;
+
+import com.darmokhval.test_task.model.dto.UserDTO;
+import com.darmokhval.test_task.model.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.springframework.data.jpa.repository.query.QueryUtils.toOrders;
+
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<UserDTO> findUserDTO(Specification<User> specification) {
+        return findUserDTOs(specification, Sort.unsorted(), 1).stream().findFirst();
+    }
+
+    @Override
+    public List<UserDTO> findUserDTOs(Specification<User> specification, Sort sort, int limit) {
+        TypedQuery<UserDTO> query = createQuery(specification, sort);
+        if (limit > 0) {
+            query.setMaxResults(limit);
+        }
+        return query.getResultList();
+    }
+
+    @Override
+    public List<UserDTO> findUserDTOs(Specification<User> specification, Sort sort, int limit, int timeoutSeconds) {
+        return createQuery(specification, sort)
+                .setMaxResults(limit)
+                .setHint(AvailableHints.HINT_TIMEOUT, timeoutSeconds)
+                .getResultList();
+    }
+
+    @Override
+    public Stream<UserDTO> streamUserDTOs(Specification<User> specification, Sort sort, int fetchSize) {
+        return createQuery(specification, sort)
+                .setHint(AvailableHints.HINT_FETCH_SIZE, fetchSize)
+                .getResultStream();
+    }
+
+    @Override
+    public List<LocalDate> findBirthDateHistogram() {
+        List<?> bounds = entityManager.createNativeQuery("""
+                        SELECT cast(histogram_bounds AS text) FROM pg_stats
+                        WHERE schemaname = current_schema() AND tablename = 'user' AND attname = 'birth_date'
+                        ORDER BY inherited DESC LIMIT 1""")
+                .getResultList();
+        if (bounds.isEmpty() || bounds.get(0) == null) {
+            return List.of();
+        }
+        String array = (String) bounds.get(0);
+        return Arrays.stream(array.substring(1, array.length() - 1).split(","))
+                .map(LocalDate::parse)
+                .toList();
+    }
+
+    @Override
+    public long estimateUserCount() {
+        Number count = (Number) entityManager.createNativeQuery("""
+                        SELECT coalesce(sum(reltuples) FILTER (WHERE reltuples > 0), 0) FROM pg_class
+                        WHERE oid = cast('"user"' AS regclass)
+                        OR oid IN (SELECT inhrelid FROM pg_inherits WHERE inhparent = cast('"user"' AS regclass))""")
+                .getSingleResult();
+        return count.longValue();
+    }
+
+    private TypedQuery<UserDTO> createQuery(Specification<User> specification, Sort sort) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<UserDTO> query = criteriaBuilder.createQuery(UserDTO.class);
+        Root<User> root = query.from(User.class);
+        // Arguments in order of UserDTO all-args constructor
+        query.select(criteriaBuilder.construct(UserDTO.class,
+                        root.get("id"),
+                        root.get("firstName"),
+                        root.get("lastName"),
+                        root.get("birthDate"),
+                        root.get("email"),
+                        root.get("address"),
+                        root.get("phoneNumber"),
+                        root.get("version")))
+                .where(specification.toPredicate(root, query, criteriaBuilder))
+                .orderBy(toOrders(sort, root, criteriaBuilder));
+        return entityManager.createQuery(query);
+    }
+}
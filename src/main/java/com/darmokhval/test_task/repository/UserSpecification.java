@@ -1,14 +1,106 @@
 package com.darmokhval.test_task.repository;
 
 import com.darmokhval.test_task.model.entity.User;
+import com.darmokhval.test_task.service.UserError;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
 
 public class UserSpecification {
 
+    /**
+     * Order used by keyset pagination and streaming. Must match {@link #isAfter(LocalDate, Long)}.
+     */
+    public static final Sort BIRTH_DATE_ORDER = Sort.by("birthDate", "id");
+    /**
+     * Order of search results, continued with {@link #hasIdAfter(Long)}.
+     */
+    public static final Sort ID_ORDER = Sort.by("id");
+    /**
+     * Order of upcoming birthdays within one range of birth month-day, must match {@link #isAfterBirthday}.
+     */
+    public static final Sort BIRTHDAY_ORDER = Sort.by("birthMonthDay", "id");
+    private static final List<String> SEARCH_FIELDS = List.of("firstName", "lastName", "email");
+
+    public static Specification<User> hasId(Long id) {
+        return (root, query, criteriaBuilder) ->
+                criteriaBuilder.equal(root.get("id"), id);
+    }
+
     public static Specification<User> hasBirthDateBetween(LocalDate from, LocalDate to) {
         return (root, query, criteriaBuilder) ->
                 criteriaBuilder.between(root.get("birthDate"), from, to);
     }
+
+    /**
+     * Keyset cursor: users strictly after (birthDate, id) in {@link #BIRTH_DATE_ORDER}.
+     * Redundant 'birthDate >= ?' lets database seek on birth_date index instead of filtering.
+     */
+    public static Specification<User> isAfter(LocalDate birthDate, Long id) {
+        return (root, query, criteriaBuilder) -> criteriaBuilder.and(
+                criteriaBuilder.greaterThanOrEqualTo(root.get("birthDate"), birthDate),
+                criteriaBuilder.or(
+                        criteriaBuilder.greaterThan(root.get("birthDate"), birthDate),
+                        criteriaBuilder.greaterThan(root.get("id"), id)));
+    }
+
+    /**
+     * Birth month and day, as MMDD number, within range inclusive.
+     */
+    public static Specification<User> hasBirthMonthDayBetween(int from, int to) {
+        return (root, query, criteriaBuilder) ->
+                criteriaBuilder.between(root.get("birthMonthDay"), (short) from, (short) to);
+    }
+
+    /**
+     * Keyset cursor: users strictly after (birthMonthDay, id) in {@link #BIRTHDAY_ORDER}.
+     */
+    public static Specification<User> isAfterBirthday(int monthDay, Long id) {
+        return (root, query, criteriaBuilder) -> criteriaBuilder.and(
+                criteriaBuilder.greaterThanOrEqualTo(root.get("birthMonthDay"), (short) monthDay),
+                criteriaBuilder.or(
+                        criteriaBuilder.greaterThan(root.get("birthMonthDay"), (short) monthDay),
+                        criteriaBuilder.greaterThan(root.get("id"), id)));
+    }
+
+    public static Specification<User> hasIdAfter(Long id) {
+        return (root, query, criteriaBuilder) ->
+                criteriaBuilder.greaterThan(root.get("id"), id);
+    }
+
+    /**
+     * First name, last name or email (case-insensitive) starts with text (PREFIX) or contains word similar
+     * to text (FUZZY). Expressions match trigram indexes of V3 migration.
+     */
+    public static Specification<User> matches(String text, SearchMode mode) {
+        String lowerText = text.toLowerCase(Locale.ROOT);
+        return (root, query, criteriaBuilder) -> criteriaBuilder.or(SEARCH_FIELDS.stream()
+                .map(field -> criteriaBuilder.lower(root.get(field)))
+                .map(column -> mode == SearchMode.PREFIX
+                        ? criteriaBuilder.like(column, escapeLike(lowerText) + "%", '\\')
+                        : criteriaBuilder.isTrue(criteriaBuilder.function(TrigramFunctionContributor.WORD_SIMILAR,
+                                Boolean.class, criteriaBuilder.literal(lowerText), column)))
+                .toArray(Predicate[]::new));
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    public enum SearchMode {
+        PREFIX, FUZZY;
+
+        public static SearchMode of(String mode) {
+            for (SearchMode value : values()) {
+                if (value.name().equalsIgnoreCase(mode)) {
+                    return value;
+                }
+            }
+            throw UserError.UNSUPPORTED_SEARCH_MODE.exception(mode);
+        }
+    }
 }
@@ -0,0 +1,41 @@
+package com.darmokhval.test_task.service;
+
+import java.time.Clock;
+import java.time.LocalDate;
+
+/**
+ * Latest birth date of user old enough, kept until midnight. User is at least n years old exactly when
+ * born no later than n years before today, so age check is a date comparison instead of a Period per call.
+ */
+final class AgeCutoff {
+    private static volatile AgeCutoff current = new AgeCutoff(-1, LocalDate.MIN, 0, 0);
+    private final int requiredAge;
+    private final LocalDate cutoff;
+    private final long validFromMillis;
+    private final long validUntilMillis;
+
+    private AgeCutoff(int requiredAge, LocalDate cutoff, long validFromMillis, long validUntilMillis) {
+        this.requiredAge = requiredAge;
+        this.cutoff = cutoff;
+        this.validFromMillis = validFromMillis;
+        this.validUntilMillis = validUntilMillis;
+    }
+
+    static boolean isOldEnough(LocalDate birthDate, int requiredAge) {
+        return !birthDate.isAfter(cutoff(requiredAge, Clock.systemDefaultZone()));
+    }
+
+    static LocalDate cutoff(int requiredAge, Clock clock) {
+        AgeCutoff cached = current;
+        long now = clock.millis();
+        if (cached.requiredAge == requiredAge && now >= cached.validFromMillis && now < cached.validUntilMillis) {
+            return cached.cutoff;
+        }
+        LocalDate today = LocalDate.now(clock);
+        cached = new AgeCutoff(requiredAge, today.minusYears(requiredAge),
+                today.atStartOfDay(clock.getZone()).toInstant().toEpochMilli(),
+                today.plusDays(1).atStartOfDay(clock.getZone()).toInstant().toEpochMilli());
+        current = cached;
+        return cached.cutoff;
+    }
+}
@@ -0,0 +1,17 @@
+package com.darmokhval.test_task.service;
+
+import lombok.Getter;
+
+/**
+ * Consumer asked for changes after offset which is older than retained change log, some events are gone.
+ */
+@Getter
+public class ChangeOffsetExpiredException extends RuntimeException {
+    private final long firstOffset;
+
+    public ChangeOffsetExpiredException(long offset, long firstOffset) {
+        super(String.format("Changes after offset %s are no longer retained, oldest retained offset is %s!",
+                offset, firstOffset));
+        this.firstOffset = firstOffset;
+    }
+}
@@ -0,0 +1,83 @@
+package com.darmokhval.test_task.service;
+
+import com.darmokhval.test_task.repository.UserRepository;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * In-process Bloom filter of used emails. When it says email was never seen, database lookup can be skipped.
+ * Filter knows only about writes of this instance, so ux_user_email unique index stays source of truth:
+ * a miss here can only end up as constraint violation on insert, never as duplicate email.
+ * Until warm-up finishes (or when disabled) every email is reported as possibly used.
+ */
+@Slf4j
+@Profile("!reactive")
+@Component
+public class EmailFilter {
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final BloomFilter<CharSequence> bloomFilter;
+    private volatile boolean ready;
+
+    public EmailFilter(UserRepository userRepository,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${user.email_filter.enabled:false}") boolean enabled,
+                       @Value("${user.email_filter.expected_insertions:10000000}") int expectedInsertions,
+                       @Value("${user.email_filter.false_positive_probability:0.01}") double falsePositiveProbability) {
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = enabled;
+        this.bloomFilter = enabled
+                ? BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedInsertions, falsePositiveProbability)
+                : null;
+    }
+
+    /**
+     * False means email is definitely not used, true means database has to be asked.
+     */
+    public boolean mightBeUsed(String email) {
+        return !ready || bloomFilter.mightContain(normalize(email));
+    }
+
+    public void put(String email) {
+        if (enabled && email != null) {
+            bloomFilter.put(normalize(email));
+        }
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<String> emails = userRepository.streamAllEmails()) {
+                emails.forEach(bloomFilter::put);
+            }
+        });
+        ready = true;
+        log.info("Email filter warmed up in {} ms, approximate size {}", System.currentTimeMillis() - started,
+                bloomFilter.approximateElementCount());
+    }
+
+    private static String normalize(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+}
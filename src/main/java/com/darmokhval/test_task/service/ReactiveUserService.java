@@ -0,0 +1,117 @@
+package com.darmokhval.test_task.service;
+
+import com.darmokhval.test_task.mapper.UserMapper;
+import com.darmokhval.test_task.model.dto.PartialUserDTO;
+import com.darmokhval.test_task.model.dto.UserDTO;
+import com.darmokhval.test_task.model.dto.UserPageDTO;
+import com.darmokhval.test_task.repository.ReactiveUserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * Non-blocking version of {@link UserService} for reactive profile. Validation rules and error messages are
+ * shared with it. Validation errors are signalled through returned publisher, nothing is thrown directly.
+ */
+@Profile("reactive")
+@Service
+@RequiredArgsConstructor
+public class ReactiveUserService {
+    private final ReactiveUserRepository userRepository;
+    private final UserMapper userMapper;
+    @Value("${user.required_age}")
+    private int requiredAge;
+    @Value("${user.page.max_size:1000}")
+    private int maxPageSize;
+
+    /**
+     * Users in range ordered by (birthDate, id). Rows are read from database only as fast as client consumes them.
+     */
+    public Flux<UserDTO> streamUsersByBirthDateRange(LocalDate from, LocalDate to) {
+        return Flux.defer(() -> {
+            UserService.checkDateRange(from, to);
+            return userRepository.findByBirthDateRange(from, to, null, null, 0);
+        });
+    }
+
+    public Mono<UserPageDTO> findUsersByBirthDateRangePage(LocalDate from, LocalDate to,
+                                                           LocalDate afterBirthDate, Long afterId, int size) {
+        return Mono.defer(() -> {
+            UserService.validatePageRequest(from, to, afterBirthDate, afterId, size, maxPageSize);
+            return userRepository.findByBirthDateRange(from, to, afterBirthDate, afterId, size + 1)
+                    .collectList()
+                    .map(users -> UserService.toPage(users, size));
+        });
+    }
+
+    public Mono<UserDTO> findUserById(Long id) {
+        return userRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> notFound(id)));
+    }
+
+    public Mono<Long> findUserVersion(Long id) {
+        return userRepository.findVersionById(id);
+    }
+
+    public Mono<UserDTO> createUser(UserDTO userDTO) {
+        if (!UserService.isValidAge(userDTO.getBirthDate(), requiredAge)) {
+            return Mono.error(UserError.UNDERAGE_REGISTRATION.exception(requiredAge));
+        }
+        return userRepository.findIdByEmail(userDTO.getEmail())
+                .flatMap(id -> Mono.<UserDTO>error(emailTaken(userDTO.getEmail())))
+                .switchIfEmpty(Mono.defer(() -> userRepository.insert(userMapper.dtoToEntity(userDTO))))
+                .onErrorMap(DataIntegrityViolationException.class,
+                        e -> UserService.emailTakenOrRethrow(e, userDTO.getEmail()));
+    }
+
+    public Mono<UserDTO> updateUser(UserDTO userDTO, Long id) {
+        return userRepository.update(id, userDTO, userDTO.getVersion())
+                .onErrorMap(DataIntegrityViolationException.class,
+                        e -> UserService.emailTakenOrRethrow(e, userDTO.getEmail()))
+                .switchIfEmpty(Mono.defer(() -> notFoundOrModified(id, userDTO.getVersion())));
+    }
+
+    public Mono<UserDTO> patchUser(PartialUserDTO userDTO, Long id) {
+        if (userDTO.getBirthDate() != null && !UserService.isValidAge(userDTO.getBirthDate(), requiredAge)) {
+            return Mono.error(UserError.UNDERAGE_UPDATE.exception(requiredAge));
+        }
+        return userRepository.patch(id, userDTO.getFirstName(), userDTO.getLastName(), userDTO.getBirthDate(),
+                        userDTO.getEmail(), userDTO.getAddress(), userDTO.getPhoneNumber(), userDTO.getVersion())
+                .onErrorMap(DataIntegrityViolationException.class,
+                        e -> UserService.emailTakenOrRethrow(e, userDTO.getEmail()))
+                .switchIfEmpty(Mono.defer(() -> notFoundOrModified(id, userDTO.getVersion())));
+    }
+
+    public Mono<String> deleteUser(Long id, Long version) {
+        return userRepository.deleteById(id, version)
+                .flatMap(deleted -> deleted > 0
+                        ? Mono.just(String.format("User with ID %s was deleted", id))
+                        : notFoundOrModified(id, version));
+    }
+
+    private <T> Mono<T> notFoundOrModified(Long id, Long version) {
+        if (version == null) {
+            return Mono.error(notFound(id));
+        }
+        return userRepository.existsById(id)
+                .flatMap(exists -> Mono.error(exists
+                        ? new OptimisticLockingFailureException(String.format(
+                                "User with ID %s was modified by another request, reload it and try again!", id))
+                        : notFound(id)));
+    }
+
+    private static UserRequestException notFound(Long id) {
+        return UserError.USER_NOT_FOUND.exception(id);
+    }
+
+    private static UserRequestException emailTaken(String email) {
+        return UserError.EMAIL_TAKEN.exception(email);
+    }
+}
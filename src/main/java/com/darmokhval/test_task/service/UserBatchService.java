@@ -0,0 +1,176 @@
+package com.darmokhval.test_task.service;
+
+import com.darmokhval.test_task.mapper.UserMapper;
+import com.darmokhval.test_task.model.dto.UserBatchErrorDTO;
+import com.darmokhval.test_task.model.dto.UserBatchResultDTO;
+import com.darmokhval.test_task.model.dto.UserDTO;
+import com.darmokhval.test_task.model.entity.User;
+import com.darmokhval.test_task.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk user creation. Input is consumed chunk by chunk, so request size doesn't affect memory usage.
+ * Every chunk costs one email lookup and one batched insert; invalid rows are reported and skipped.
+ */
+@Profile("!reactive")
+@Service
+@RequiredArgsConstructor
+public class UserBatchService {
+    private final UserRepository userRepository;
+    private final UserMapper userMapper;
+    private final UserService userService;
+    private final EmailFilter emailFilter;
+    private final Validator validator;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final UserChangeService userChangeService;
+    @Value("${user.required_age}")
+    private int requiredAge;
+    @Value("${user.batch.chunk_size:500}")
+    private int chunkSize;
+
+    public UserBatchResultDTO createUsers(Iterator<UserDTO> users) {
+        UserBatchResultDTO result = new UserBatchResultDTO();
+        List<UserDTO> chunk = new ArrayList<>(chunkSize);
+        int index = 0;
+        try {
+            while (users.hasNext()) {
+                chunk.add(users.next());
+                index++;
+                if (chunk.size() == chunkSize) {
+                    processChunk(chunk, index - chunk.size(), result);
+                    chunk.clear();
+                }
+            }
+        } catch (RuntimeException e) {
+            if (!(e.getCause() instanceof JsonProcessingException jsonException)) {
+                throw e;
+            }
+            // Stream can't be resynchronized after malformed row, everything before it is still saved
+            result.getErrors().add(error(index, null,
+                    List.of("Invalid request body, processing stopped: " + jsonException.getOriginalMessage())));
+        }
+        processChunk(chunk, index - chunk.size(), result);
+        result.setReceived(index);
+        return result;
+    }
+
+    /**
+     * Validate and save given users as one chunk. Every saved user is passed to listener together with its
+     * position in the list, rejected ones are reported in result.
+     */
+    public UserBatchResultDTO createChunk(List<UserDTO> users, BiConsumer<Integer, User> listener) {
+        UserBatchResultDTO result = new UserBatchResultDTO();
+        processChunk(users, 0, result, listener);
+        result.setReceived(users.size());
+        return result;
+    }
+
+    private void processChunk(List<UserDTO> chunk, int offset, UserBatchResultDTO result) {
+        processChunk(chunk, offset, result, (index, user) -> {});
+    }
+
+    private void processChunk(List<UserDTO> chunk, int offset, UserBatchResultDTO result,
+                              BiConsumer<Integer, User> listener) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> accepted = new LinkedHashMap<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            UserDTO userDTO = chunk.get(i);
+            List<String> messages = validate(userDTO);
+            if (messages.isEmpty() && accepted.putIfAbsent(userDTO.getEmail().toLowerCase(Locale.ROOT), i) != null) {
+                messages = List.of(UserError.EMAIL_TAKEN.detail(userDTO.getEmail()));
+            }
+            if (!messages.isEmpty()) {
+                result.getErrors().add(error(offset + i, userDTO.getEmail(), messages));
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+        Set<String> candidates = accepted.keySet().stream()
+                .filter(emailFilter::mightBeUsed)
+                .collect(Collectors.toSet());
+        Set<String> takenEmails = candidates.isEmpty() ? Set.of() : userRepository.findExistingEmails(candidates);
+        Map<Integer, User> usersToSave = new LinkedHashMap<>();
+        accepted.forEach((email, i) -> {
+            if (takenEmails.contains(email)) {
+                String takenEmail = chunk.get(i).getEmail();
+                result.getErrors().add(error(offset + i, takenEmail, List.of(UserError.EMAIL_TAKEN.detail(takenEmail))));
+            } else {
+                usersToSave.put(offset + i, userMapper.dtoToEntity(chunk.get(i)));
+            }
+        });
+        if (usersToSave.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> save(usersToSave.values()));
+            result.setCreated(result.getCreated() + usersToSave.size());
+            usersToSave.forEach(listener);
+        } catch (DataIntegrityViolationException e) {
+            // Concurrent writer took one of emails after lookup, retry row by row to find out which
+            entityManager.clear();
+            saveOneByOne(usersToSave, result, listener);
+        }
+    }
+
+    private void saveOneByOne(Map<Integer, User> users, UserBatchResultDTO result, BiConsumer<Integer, User> listener) {
+        users.forEach((index, failed) -> {
+            // failed insert left id and version on entity, which would make it look detached and be merged
+            User user = userMapper.dtoToEntity(userMapper.entityToDTO(failed));
+            try {
+                transactionTemplate.executeWithoutResult(status -> save(List.of(user)));
+                result.setCreated(result.getCreated() + 1);
+                listener.accept(index, user);
+            } catch (DataIntegrityViolationException e) {
+                entityManager.clear();
+                result.getErrors().add(error(index, user.getEmail(),
+                        List.of(UserError.EMAIL_TAKEN.detail(user.getEmail()))));
+            }
+        });
+    }
+
+    private void save(Collection<User> users) {
+        userRepository.saveAll(users);
+        userRepository.flush();
+        entityManager.clear();
+        users.forEach(user -> emailFilter.put(user.getEmail()));
+        userChangeService.recordCreated(users.stream().map(userMapper::entityToDTO).toList());
+    }
+
+    private List<String> validate(UserDTO userDTO) {
+        Set<ConstraintViolation<UserDTO>> violations = validator.validate(userDTO);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .toList();
+        }
+        if (!userService.isValidAge(userDTO.getBirthDate())) {
+            return List.of(UserError.UNDERAGE_REGISTRATION.detail(requiredAge));
+        }
+        return List.of();
+    }
+
+    private static UserBatchErrorDTO error(int index, String email, List<String> messages) {
+        return UserBatchErrorDTO.builder()
+                .index(index)
+                .email(email)
+                .messages(messages)
+                .build();
+    }
+}
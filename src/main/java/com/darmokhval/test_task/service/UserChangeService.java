@@ -0,0 +1,391 @@
+package com.darmokhval.test_task.service;
+
+import com.darmokhval.test_task.model.dto.UserChangeDTO;
+import com.darmokhval.test_task.model.dto.UserChangeDTO.Type;
+import com.darmokhval.test_task.model.dto.UserDTO;
+import com.darmokhval.test_task.repository.UserChangeRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Change stream of users. Writes record events in user_change_outbox within their own transaction, so an event
+ * exists exactly when its change was committed. Relay thread moves committed events into user_change_log,
+ * which assigns them offsets; only one instance relays at a time, so offsets grow in the order events become
+ * visible and consumer resuming after an offset never skips an event. Commits in this instance wake relay up,
+ * events written by other instances are picked up within relay interval.
+ * Published events are kept for retention period. Counted as user.changes.published.
+ * Every open stream runs on a thread of its own pool of max subscribers threads, so long streams never take
+ * threads of other asynchronous requests; subscriber over the limit is rejected.
+ */
+@Slf4j
+@Profile("!reactive")
+@Service
+public class UserChangeService implements SmartLifecycle {
+    private static final Duration CLEANUP_INTERVAL = Duration.ofMinutes(1);
+    private final UserChangeRepository userChangeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Counter publishedCounter;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration relayInterval;
+    private final Duration pollInterval;
+    private final Duration heartbeatInterval;
+    private final Duration maxStreamDuration;
+    private final Duration retention;
+    private final Semaphore relayWakeUp = new Semaphore(0);
+    private final ReentrantLock publishedLock = new ReentrantLock();
+    private final Condition publishedCondition = publishedLock.newCondition();
+    private final ThreadPoolExecutor streamExecutor;
+    private long publishedBatches;
+    private volatile boolean running;
+    private Thread relay;
+
+    public UserChangeService(UserChangeRepository userChangeRepository,
+                             TransactionTemplate transactionTemplate,
+                             ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             @Value("${user.changes.enabled:true}") boolean enabled,
+                             @Value("${user.changes.batch_size:500}") int batchSize,
+                             @Value("${user.changes.relay_interval:1s}") Duration relayInterval,
+                             @Value("${user.changes.poll_interval:1s}") Duration pollInterval,
+                             @Value("${user.changes.heartbeat_interval:15s}") Duration heartbeatInterval,
+                             @Value("${user.changes.max_stream_duration:10m}") Duration maxStreamDuration,
+                             @Value("${user.changes.retention:7d}") Duration retention,
+                             @Value("${user.changes.max_subscribers:50}") int maxSubscribers) {
+        this.userChangeRepository = userChangeRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.publishedCounter = Counter.builder("user.changes.published").register(meterRegistry);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.relayInterval = relayInterval;
+        this.pollInterval = pollInterval;
+        this.heartbeatInterval = heartbeatInterval;
+        this.maxStreamDuration = maxStreamDuration;
+        this.retention = retention;
+        AtomicInteger streamThreads = new AtomicInteger();
+        // no queue: stream either gets a thread right away or is rejected
+        this.streamExecutor = new ThreadPoolExecutor(maxSubscribers, maxSubscribers, 1, TimeUnit.MINUTES,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "user-change-stream-" + streamThreads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.streamExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    public enum Format {
+        SSE("text/event-stream"),
+        NDJSON("application/x-ndjson");
+
+        private final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public static Format of(String format) {
+            for (Format value : values()) {
+                if (value.name().equalsIgnoreCase(format)) {
+                    return value;
+                }
+            }
+            throw UserError.UNSUPPORTED_CHANGE_FORMAT.exception(format);
+        }
+    }
+
+    /**
+     * Record change of user in outbox. Must be called within transaction that made the change.
+     */
+    public void recordChange(Type type, Long userId, UserDTO userDTO) {
+        if (!enabled) {
+            return;
+        }
+        userChangeRepository.insert(type, userId, userDTO != null ? toJson(userDTO) : null);
+        wakeUpRelayAfterCommit();
+    }
+
+    /**
+     * Record creation of given users, all with one batched insert.
+     */
+    public void recordCreated(List<UserDTO> users) {
+        if (!enabled || users.isEmpty()) {
+            return;
+        }
+        userChangeRepository.insertAll(Type.CREATED, users.stream().map(UserDTO::getId).toList(),
+                users.stream().map(this::toJson).toList());
+        wakeUpRelayAfterCommit();
+    }
+
+    /**
+     * Validate stream request before response is committed.
+     */
+    public void validateOffset(long after) {
+        if (!enabled) {
+            throw UserError.CHANGE_STREAM_DISABLED.exception();
+        }
+        if (after < 0) {
+            throw UserError.NEGATIVE_OFFSET.exception();
+        }
+        Long firstOffset = userChangeRepository.findFirstOffset();
+        // resuming right before the oldest retained event misses nothing
+        if (after > 0 && firstOffset != null && after < firstOffset - 1) {
+            throw new ChangeOffsetExpiredException(after, firstOffset);
+        }
+    }
+
+    /**
+     * Run {@link #streamChanges} on stream pool. When stream ends, onEnd gets null or the error that ended it
+     * (e.g. client disconnected, CancellationException after returned future was cancelled). Cancelling with
+     * interruption ends the stream. Throws RejectedExecutionException when max subscribers stream already.
+     */
+    public Future<?> startStream(long after, Format format, OutputStream outputStream, Consumer<Throwable> onEnd) {
+        FutureTask<Void> stream = new FutureTask<>(() -> {
+            streamChanges(after, format, outputStream);
+            return null;
+        }) {
+            @Override
+            protected void done() {
+                try {
+                    get();
+                    onEnd.accept(null);
+                } catch (ExecutionException e) {
+                    onEnd.accept(e.getCause());
+                } catch (CancellationException | InterruptedException e) {
+                    onEnd.accept(e);
+                }
+            }
+        };
+        try {
+            streamExecutor.execute(stream);
+            return stream;
+        } catch (RejectedExecutionException e) {
+            throw new RejectedExecutionException("Too many change stream subscribers, try again later!");
+        }
+    }
+
+    /**
+     * Write events published after given offset (0 is the start of retained log) as they come, until
+     * max stream duration passes or client disconnects. Idle stream gets heartbeat now and then,
+     * so proxies don't close it. Consumer reconnects with offset of the last event it has received.
+     */
+    public void streamChanges(long after, Format format, OutputStream outputStream) throws IOException {
+        long position = after;
+        long now = System.nanoTime();
+        long deadline = now + maxStreamDuration.toNanos();
+        long lastWrite = now;
+        while (deadline - System.nanoTime() > 0) {
+            long seenBatches = getPublishedBatches();
+            List<UserChangeDTO> changes = userChangeRepository.findAfter(position, batchSize);
+            for (UserChangeDTO change : changes) {
+                write(change, format, outputStream);
+                position = change.getOffset();
+            }
+            if (!changes.isEmpty()) {
+                outputStream.flush();
+                lastWrite = System.nanoTime();
+                if (changes.size() == batchSize) {
+                    continue;
+                }
+            } else if (System.nanoTime() - lastWrite >= heartbeatInterval.toNanos()) {
+                outputStream.write(format == Format.SSE ? ": heartbeat\n\n".getBytes(StandardCharsets.UTF_8) : new byte[]{'\n'});
+                outputStream.flush();
+                lastWrite = System.nanoTime();
+            }
+            awaitPublished(seenBatches, Math.min(pollInterval.toNanos(), deadline - System.nanoTime()));
+        }
+    }
+
+    private void write(UserChangeDTO change, Format format, OutputStream outputStream) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(change);
+        if (format == Format.SSE) {
+            outputStream.write(String.format("id: %s\nevent: %s\ndata: ", change.getOffset(), change.getType())
+                    .getBytes(StandardCharsets.UTF_8));
+            outputStream.write(json);
+            outputStream.write(new byte[]{'\n', '\n'});
+        } else {
+            outputStream.write(json);
+            outputStream.write('\n');
+        }
+    }
+
+    /**
+     * Move one batch of committed events from outbox to change log. Returns number of published events,
+     * 0 also when another instance is relaying right now.
+     */
+    int relayNextBatch() {
+        Integer published = transactionTemplate.execute(status ->
+                userChangeRepository.tryLockRelay() ? userChangeRepository.publish(batchSize) : 0);
+        if (published != null && published > 0) {
+            publishedCounter.increment(published);
+            publishedLock.lock();
+            try {
+                publishedBatches++;
+                publishedCondition.signalAll();
+            } finally {
+                publishedLock.unlock();
+            }
+            return published;
+        }
+        return 0;
+    }
+
+    private long getPublishedBatches() {
+        publishedLock.lock();
+        try {
+            return publishedBatches;
+        } finally {
+            publishedLock.unlock();
+        }
+    }
+
+    /**
+     * Wait until this instance publishes something after seenBatches, or timeout passes.
+     */
+    private void awaitPublished(long seenBatches, long timeoutNanos) {
+        publishedLock.lock();
+        try {
+            long remainingNanos = timeoutNanos;
+            while (publishedBatches == seenBatches && remainingNanos > 0) {
+                remainingNanos = publishedCondition.awaitNanos(remainingNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Change stream was interrupted", e);
+        } finally {
+            publishedLock.unlock();
+        }
+    }
+
+    private void wakeUpRelayAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    relayWakeUp.release();
+                }
+            });
+        }
+    }
+
+    private String toJson(UserDTO userDTO) {
+        try {
+            return objectMapper.writeValueAsString(userDTO);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        relay = new Thread(this::relayUntilStopped, "user-change-relay");
+        relay.setDaemon(true);
+        relay.start();
+    }
+
+    /**
+     * Relay publishes what is in outbox once more and exits. Events it couldn't publish are published
+     * by another instance or after restart.
+     */
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        relayWakeUp.release();
+        try {
+            relay.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // streams still open after graceful shutdown are ended, clients reconnect to another instance
+        streamExecutor.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Started before and stopped after web server, so changes committed during graceful shutdown are published.
+     */
+    @Override
+    public int getPhase() {
+        return WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE - 2048;
+    }
+
+    private void relayUntilStopped() {
+        long lastCleanup = System.nanoTime();
+        while (running) {
+            try {
+                relayWakeUp.drainPermits();
+                if (relayNextBatch() == batchSize) {
+                    continue;
+                }
+                if (System.nanoTime() - lastCleanup > CLEANUP_INTERVAL.toNanos()) {
+                    lastCleanup = System.nanoTime();
+                    int deleted = userChangeRepository.deletePublishedBefore(retention);
+                    log.debug("Deleted {} changes older than {}", deleted, retention);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Couldn't publish user changes, retrying in {}", relayInterval, e);
+            }
+            try {
+                relayWakeUp.tryAcquire(relayInterval.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        try {
+            int published;
+            do {
+                published = relayNextBatch();
+            } while (published == batchSize);
+        } catch (RuntimeException e) {
+            log.warn("Couldn't publish user changes before shutdown", e);
+        }
+    }
+}
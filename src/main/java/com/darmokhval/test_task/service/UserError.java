@@ -0,0 +1,72 @@
+package com.darmokhval.test_task.service;
+
+/**
+ * Reasons for which service rejects a request. Every one is a problem type of its own (RFC 7807):
+ * type URI and title are fixed, detail is made from template by filling its %s placeholders in order.
+ */
+public enum UserError {
+    USER_NOT_FOUND("User not found", "User with ID %s wasn't found"),
+    REGISTRATION_NOT_FOUND("Registration not found", "Registration with tracking ID %s wasn't found"),
+    EMAIL_TAKEN("Email already taken", "Email %s already taken!"),
+    UNDERAGE_REGISTRATION("User is too young", "User must be older than %s to register!"),
+    UNDERAGE_UPDATE("User is too young", "User must be older than %s to use this site!"),
+    INCOMPLETE_DATE_RANGE("Invalid birth date range", "Both 'from' and 'to' dates must be specified!"),
+    REVERSED_DATE_RANGE("Invalid birth date range", "'From' date must be earlier than 'To' date!"),
+    INVALID_IF_MATCH("Invalid If-Match header", "Invalid If-Match header %s, ETag of previous response is expected!"),
+    INCOMPLETE_CURSOR("Invalid cursor", "Both 'afterBirthDate' and 'afterId' must be specified to continue from a cursor!"),
+    INVALID_PAGE_SIZE("Invalid page size", "Page size must be between 1 and %s!"),
+    INVALID_DAYS("Invalid number of days", "Number of days must be between 1 and 366!"),
+    SEARCH_TEXT_TOO_SHORT("Search text too short", "Search text must be at least %s characters long!"),
+    SEARCH_TOO_BROAD("Search too broad", "Search is too broad, use longer text or birth date range!"),
+    UNSUPPORTED_SEARCH_MODE("Unsupported search mode", "Unsupported search mode %s, use prefix or fuzzy!"),
+    UNSUPPORTED_EXPORT_FORMAT("Unsupported format", "Unsupported export format %s, use csv or ndjson!"),
+    UNSUPPORTED_CHANGE_FORMAT("Unsupported format", "Unsupported change stream format %s, use sse or ndjson!"),
+    CHANGE_STREAM_DISABLED("Change stream disabled", "Change stream is disabled!"),
+    NEGATIVE_OFFSET("Invalid offset", "Offset must not be negative!");
+
+    private static final String PLACEHOLDER = "%s";
+    private final String type;
+    private final String title;
+    private final String template;
+
+    UserError(String title, String template) {
+        this.type = "/problems/" + name().toLowerCase().replace('_', '-');
+        this.title = title;
+        this.template = template;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Stackless exception carrying this error, detail is made only when it's read.
+     */
+    public UserRequestException exception(Object... arguments) {
+        return new UserRequestException(this, arguments);
+    }
+
+    /**
+     * Template with placeholders replaced by given arguments, without going through {@link java.util.Formatter}.
+     */
+    public String detail(Object... arguments) {
+        if (arguments.length == 0) {
+            return template;
+        }
+        StringBuilder detail = new StringBuilder(template.length() + 16 * arguments.length);
+        int start = 0;
+        for (Object argument : arguments) {
+            int placeholder = template.indexOf(PLACEHOLDER, start);
+            if (placeholder < 0) {
+                break;
+            }
+            detail.append(template, start, placeholder).append(argument);
+            start = placeholder + PLACEHOLDER.length();
+        }
+        return detail.append(template, start, template.length()).toString();
+    }
+}
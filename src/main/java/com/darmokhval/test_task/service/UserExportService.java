@@ -0,0 +1,118 @@
+package com.darmokhval.test_task.service;
+
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyOut;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * Bulk export through PostgreSQL COPY TO STDOUT. Rows are formatted by database and copied into output stream
+ * as raw bytes, without entities, DTOs or JSON serialization on application side.
+ */
+@Profile("!reactive")
+@Service
+@RequiredArgsConstructor
+public class UserExportService {
+    private static final String COLUMNS = "id, first_name, last_name, birth_date, email, address, phone_number";
+    private static final String JSON_COLUMNS = "id, first_name AS \"firstName\", last_name AS \"lastName\", " +
+            "birth_date AS \"birthDate\", email, address, phone_number AS \"phoneNumber\"";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserService userService;
+
+    public enum Format {
+        CSV("text/csv"),
+        NDJSON("application/x-ndjson");
+
+        private final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public static Format of(String format) {
+            for (Format value : values()) {
+                if (value.name().equalsIgnoreCase(format)) {
+                    return value;
+                }
+            }
+            throw UserError.UNSUPPORTED_EXPORT_FORMAT.exception(format);
+        }
+    }
+
+    /**
+     * Validate filter before response is committed. Both dates or none of them must be specified.
+     */
+    public void validateFilter(LocalDate from, LocalDate to) {
+        if (from != null || to != null) {
+            userService.validateDateRange(from, to);
+        }
+    }
+
+    /**
+     * Copy users with birth date in range (whole table when range is not specified) into output stream.
+     *
+     * @return number of exported rows
+     */
+    public long exportUsers(LocalDate from, LocalDate to, Format format, OutputStream outputStream) {
+        validateFilter(from, to);
+        String sql = buildCopySql(from, to, format);
+        Long rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            PGConnection pgConnection = connection.unwrap(PGConnection.class);
+            CopyOut copyOut = pgConnection.getCopyAPI().copyOut(sql);
+            try {
+                byte[] row;
+                while ((row = copyOut.readFromCopy()) != null) {
+                    outputStream.write(row);
+                }
+                return copyOut.getHandledRowCount();
+            } catch (IOException e) {
+                // Client went away in the middle of export. CopyOut.cancelCopy() leaves unread data on the wire,
+                // so cancel statement on server and drain what's in flight before connection goes back to pool.
+                pgConnection.cancelQuery();
+                drain(copyOut);
+                throw new UncheckedIOException(e);
+            }
+        });
+        return rows != null ? rows : 0;
+    }
+
+    private static void drain(CopyOut copyOut) {
+        try {
+            while (copyOut.readFromCopy() != null) {
+                // discard
+            }
+        } catch (SQLException e) {
+            // expected: statement was cancelled
+        }
+    }
+
+    /**
+     * COPY doesn't accept bind parameters, dates are inlined. ISO representation of LocalDate is a safe literal.
+     */
+    String buildCopySql(LocalDate from, LocalDate to, Format format) {
+        String where = from != null
+                ? String.format(Locale.ROOT, " WHERE birth_date BETWEEN DATE '%s' AND DATE '%s'", from, to)
+                : "";
+        return switch (format) {
+            case CSV -> "COPY (SELECT " + COLUMNS + " FROM \"user\"" + where + ") TO STDOUT WITH (FORMAT csv, HEADER)";
+            // CSV mode with quote and delimiter characters that never occur in JSON, so documents are copied verbatim
+            case NDJSON -> "COPY (SELECT row_to_json(u) FROM (SELECT " + JSON_COLUMNS + " FROM \"user\"" + where + ") u)" +
+                    " TO STDOUT WITH (FORMAT csv, QUOTE E'\\x01', DELIMITER E'\\x02')";
+        };
+    }
+}
@@ -0,0 +1,312 @@
+package com.darmokhval.test_task.service;
+
+import com.darmokhval.test_task.model.dto.UserDTO;
+import com.darmokhval.test_task.repository.UserRepository;
+import com.darmokhval.test_task.repository.UserSpecification;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Streaming of birth date range, split into sub-ranges read at once on several connections when range is wide.
+ * Sub-ranges are cut at bounds of birth_date histogram gathered by ANALYZE, so they hold about the same number
+ * of users. Calling thread reads the first sub-range itself, pool threads read the following ones ahead into
+ * bounded buffers; since sub-ranges follow each other, streaming them one after another keeps (birthDate, id) order.
+ * Every sub-range sees snapshot exported by calling thread, so result is the same as of a single query.
+ * One request uses at most max_parallelism connections. Pool threads and max_connections reader connections are shared
+ * by all requests: range is read by one query when no reader connection is free, and calling thread reads the next
+ * sub-range itself when they run out midway.
+ */
+@Slf4j
+@Profile("!reactive")
+@Service
+public class UserRangeStreamService implements DisposableBean {
+    private static final Object END = new Object();
+    private static final long PUT_TIMEOUT_MS = 100;
+    private final UserService userService;
+    private final UserRepository userRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate snapshotTransactionTemplate;
+    private final LoadingCache<Boolean, Statistics> statistics;
+    private final ExecutorService executor;
+    private final Semaphore readerConnections;
+    private final boolean enabled;
+    private final long minRows;
+    private final int maxParallelism;
+    private final int bufferSize;
+    private final int fetchSize;
+
+    public UserRangeStreamService(UserService userService,
+                                  UserRepository userRepository,
+                                  EntityManager entityManager,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${user.parallel_range.enabled:false}") boolean enabled,
+                                  @Value("${user.parallel_range.min_rows:100000}") long minRows,
+                                  @Value("${user.parallel_range.max_parallelism:4}") int maxParallelism,
+                                  @Value("${user.parallel_range.pool_size:4}") int poolSize,
+                                  @Value("${user.parallel_range.max_connections:4}") int maxConnections,
+                                  @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize,
+                                  @Value("${user.parallel_range.buffer_size:1000}") int bufferSize,
+                                  @Value("${user.parallel_range.statistics_ttl:10m}") Duration statisticsTtl,
+                                  @Value("${user.stream.fetch_size:500}") int fetchSize) {
+        this.userService = userService;
+        this.userRepository = userRepository;
+        this.entityManager = entityManager;
+        if (maxConnections > connectionPoolSize / 2) {
+            throw new IllegalArgumentException("user.parallel_range.max_connections must be at most half of "
+                    + "connection pool size (" + connectionPoolSize + "), other requests need connections too!");
+        }
+        // exported snapshot lives on primary, so sub-ranges are not routed to replicas
+        this.snapshotTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.statistics = Caffeine.newBuilder()
+                .expireAfterWrite(statisticsTtl)
+                .build(key -> new Statistics(userRepository.findBirthDateHistogram(), userRepository.estimateUserCount()));
+        AtomicInteger threadNumber = new AtomicInteger();
+        // FIFO: sub-ranges start in the order they were requested, so the one being streamed is never starved
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "user-range-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.readerConnections = new Semaphore(maxConnections);
+        this.enabled = enabled;
+        this.minRows = minRows;
+        this.maxParallelism = maxParallelism;
+        this.bufferSize = bufferSize;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Pass every user in range to consumer, ordered by (birthDate, id). Narrow ranges are read by one query
+     * ({@link UserService#streamUsersByBirthDateRange}).
+     */
+    public void streamUsersByBirthDateRange(LocalDate from, LocalDate to, Consumer<UserDTO> consumer) {
+        userService.validateDateRange(from, to);
+        List<DateRange> ranges = enabled ? plan(from, to) : List.of(new DateRange(from, to));
+        // permits are taken per sub-range later on, if the last one goes meanwhile calling thread reads them all
+        if (ranges.size() == 1 || readerConnections.availablePermits() == 0) {
+            userService.streamUsersByBirthDateRange(from, to, consumer);
+            return;
+        }
+        log.debug("Streaming {}..{} as {} sub-ranges", from, to, ranges.size());
+        snapshotTransactionTemplate.executeWithoutResult(status -> {
+            String snapshot = (String) entityManager.createNativeQuery("SELECT pg_export_snapshot()").getSingleResult();
+            streamInParallel(ranges, snapshot, consumer);
+        });
+    }
+
+    /**
+     * Sub-ranges of at most max_parallelism * 2 parts, so pool threads have the next one to read while
+     * previous is streamed. Range estimated to hold fewer than min_rows users is not split.
+     */
+    List<DateRange> plan(LocalDate from, LocalDate to) {
+        Statistics current = statistics.get(Boolean.TRUE);
+        List<LocalDate> inner = current.histogram().stream()
+                .filter(bound -> bound.isAfter(from) && !bound.isAfter(to))
+                .distinct()
+                .toList();
+        int buckets = current.histogram().size() - 1;
+        long estimatedRows = buckets > 0 ? current.rows() * Math.min(buckets, inner.size() + 1) / buckets : 0;
+        if (maxParallelism < 2 || estimatedRows < minRows) {
+            return List.of(new DateRange(from, to));
+        }
+        return split(from, to, inner, maxParallelism * 2);
+    }
+
+    /**
+     * Split range at given dates (ascending, after from, not after to) into at most given number of parts,
+     * each covering about the same number of dates.
+     */
+    static List<DateRange> split(LocalDate from, LocalDate to, List<LocalDate> bounds, int parts) {
+        int count = Math.min(parts, bounds.size() + 1);
+        List<DateRange> ranges = new ArrayList<>(count);
+        LocalDate start = from;
+        for (int i = 1; i < count; i++) {
+            LocalDate bound = bounds.get((int) ((long) i * (bounds.size() + 1) / count) - 1);
+            if (bound.isAfter(start)) {
+                ranges.add(new DateRange(start, bound.minus(1, ChronoUnit.DAYS)));
+                start = bound;
+            }
+        }
+        ranges.add(new DateRange(start, to));
+        return ranges;
+    }
+
+    /**
+     * While sub-range i is streamed, readers of it and the following ones hold at most max_parallelism - 1 connections
+     * besides that of calling thread. Sub-range no reader connection was free for is read by calling thread itself.
+     */
+    private void streamInParallel(List<DateRange> ranges, String snapshot, Consumer<UserDTO> consumer) {
+        List<SubRange> subRanges = new ArrayList<>(ranges.size());
+        for (DateRange range : ranges) {
+            // users are handed over in chunks of fetch_size, passing them one by one costs more than reading them
+            subRanges.add(new SubRange(range, new ArrayBlockingQueue<>(Math.max(1, bufferSize / fetchSize))));
+        }
+        int next = 0;
+        try {
+            for (int i = 0; i < subRanges.size(); i++) {
+                SubRange subRange = subRanges.get(i);
+                // first sub-range, or no reader connection was free for it: read by calling thread
+                if (next == i) {
+                    next++;
+                }
+                int readers = next - (subRange.submitted ? i : i + 1);
+                while (next < subRanges.size() && readers < maxParallelism - 1 && readerConnections.tryAcquire()) {
+                    submit(subRanges.get(next++), snapshot);
+                    readers++;
+                }
+                if (subRange.submitted) {
+                    drain(subRange, consumer);
+                } else {
+                    try (Stream<UserDTO> users = stream(subRange.range)) {
+                        users.forEach(consumer);
+                    }
+                }
+            }
+        } finally {
+            // reader that is still running sees it and stops, its buffer is released
+            subRanges.forEach(subRange -> {
+                subRange.cancelled = true;
+                subRange.buffer.clear();
+            });
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void drain(SubRange subRange, Consumer<UserDTO> consumer) {
+        try {
+            Object item;
+            while ((item = subRange.buffer.take()) != END) {
+                if (item instanceof RuntimeException e) {
+                    throw e;
+                }
+                ((List<UserDTO>) item).forEach(consumer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Streaming of birth date range was interrupted", e);
+        }
+    }
+
+    /**
+     * Reader connection permit is held by caller and released once reader's transaction ends.
+     */
+    private void submit(SubRange subRange, String snapshot) {
+        subRange.submitted = true;
+        try {
+            executor.execute(() -> read(subRange, snapshot));
+        } catch (RejectedExecutionException e) {
+            readerConnections.release();
+            throw e;
+        }
+    }
+
+    private void read(SubRange subRange, String snapshot) {
+        // request has ended while reader was queued, no need to open a transaction
+        if (subRange.cancelled) {
+            readerConnections.release();
+            return;
+        }
+        try {
+            try {
+                snapshotTransactionTemplate.executeWithoutResult(status -> {
+                    entityManager.createNativeQuery("SET TRANSACTION SNAPSHOT '" + snapshot + "'").executeUpdate();
+                    try (Stream<UserDTO> users = stream(subRange.range)) {
+                        Iterator<UserDTO> iterator = users.iterator();
+                        List<UserDTO> chunk = new ArrayList<>(fetchSize);
+                        while (iterator.hasNext()) {
+                            chunk.add(iterator.next());
+                            if (chunk.size() == fetchSize) {
+                                if (!put(subRange, chunk)) {
+                                    return;
+                                }
+                                chunk = new ArrayList<>(fetchSize);
+                            }
+                        }
+                        if (!chunk.isEmpty()) {
+                            put(subRange, chunk);
+                        }
+                    }
+                });
+            } finally {
+                readerConnections.release();
+            }
+            put(subRange, END);
+        } catch (RuntimeException e) {
+            put(subRange, e);
+        }
+    }
+
+    /**
+     * Returns false when caller has stopped reading.
+     */
+    private static boolean put(SubRange subRange, Object item) {
+        try {
+            while (!subRange.buffer.offer(item, PUT_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                if (subRange.cancelled) {
+                    return false;
+                }
+            }
+            return !subRange.cancelled;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private Stream<UserDTO> stream(DateRange range) {
+        return userRepository.streamUserDTOs(UserSpecification.hasBirthDateBetween(range.from(), range.to()),
+                UserSpecification.BIRTH_DATE_ORDER, fetchSize);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    record DateRange(LocalDate from, LocalDate to) {
+    }
+
+    record Statistics(List<LocalDate> histogram, long rows) {
+    }
+
+    private static final class SubRange {
+        private final DateRange range;
+        private final BlockingQueue<Object> buffer;
+        private volatile boolean cancelled;
+        private boolean submitted;
+
+        private SubRange(DateRange range, BlockingQueue<Object> buffer) {
+            this.range = range;
+            this.buffer = buffer;
+        }
+    }
+}
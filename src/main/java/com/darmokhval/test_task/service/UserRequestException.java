@@ -0,0 +1,28 @@
+package com.darmokhval.test_task.service;
+
+import lombok.Getter;
+
+/**
+ * Request rejected by service for one of {@link UserError} reasons, reported as 400.
+ * Rejections are expected and frequent, so no stack trace is captured and message is formatted only when read.
+ */
+public class UserRequestException extends IllegalArgumentException {
+    @Getter
+    private final UserError error;
+    private final transient Object[] arguments;
+
+    UserRequestException(UserError error, Object... arguments) {
+        this.error = error;
+        this.arguments = arguments;
+    }
+
+    @Override
+    public String getMessage() {
+        return error.detail(arguments);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -2,136 +2,370 @@ package com.darmokhval.test_task.service;
 
 import com.darmokhval.test_task.mapper.UserMapper;
 import com.darmokhval.test_task.model.dto.PartialUserDTO;
+import com.darmokhval.test_task.model.dto.UserChangeDTO;
 import com.darmokhval.test_task.model.dto.UserDTO;
+import com.darmokhval.test_task.model.dto.UserPageDTO;
 import com.darmokhval.test_task.model.entity.User;
 import com.darmokhval.test_task.repository.UserRepository;
 import com.darmokhval.test_task.repository.UserSpecification;
-import jakarta.transaction.Transactional;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
 import java.time.LocalDate;
-import java.time.Period;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+/**
+ * Every public method is timed as user.service, tagged with class and method.
+ */
+@Profile("!reactive")
 @Service
 @RequiredArgsConstructor
+@Timed(value = "user.service", histogram = true)
 public class UserService {
+    public static final String USERS_CACHE = "users";
     private final UserRepository userRepository;
     private final UserMapper userMapper;
+    private final EmailFilter emailFilter;
+    private final UserChangeService userChangeService;
     @Value("${user.required_age}")
     private int requiredAge;
+    @Value("${user.page.max_size:1000}")
+    private int maxPageSize;
+    @Value("${user.stream.fetch_size:500}")
+    private int streamFetchSize;
+    @Value("${user.search.min_length:3}")
+    private int searchMinLength;
+    @Value("${user.search.max_size:100}")
+    private int searchMaxSize;
+    @Value("${user.search.timeout_seconds:2}")
+    private int searchTimeoutSeconds;
 
+    @Transactional(readOnly = true)
     public List<UserDTO> findUsersByBirthDateRange(LocalDate from, LocalDate to) {
+        validateDateRange(from, to);
+        Specification<User> specification = UserSpecification.hasBirthDateBetween(from, to);
+        return userRepository.findUserDTOs(specification, Sort.unsorted(), 0);
+    }
+
+    /**
+     * Keyset pagination over (birthDate, id). Cost of every page is the same regardless of how deep it is.
+     * First page is requested without afterBirthDate/afterId.
+     */
+    @Transactional(readOnly = true)
+    public UserPageDTO findUsersByBirthDateRangePage(LocalDate from, LocalDate to,
+                                                     LocalDate afterBirthDate, Long afterId, int size) {
+        validatePageRequest(from, to, afterBirthDate, afterId, size, maxPageSize);
+        Specification<User> specification = UserSpecification.hasBirthDateBetween(from, to);
+        if (afterBirthDate != null) {
+            specification = specification.and(UserSpecification.isAfter(afterBirthDate, afterId));
+        }
+        return toPage(userRepository.findUserDTOs(specification, UserSpecification.BIRTH_DATE_ORDER, size + 1), size);
+    }
+
+    /**
+     * Users whose birthday is within given number of days starting with date, in order of upcoming birthday.
+     * Users born on February 29th are included on February 28th in non-leap years.
+     * Page continues after birth date and id of last user of previous page.
+     */
+    @Transactional(readOnly = true)
+    public UserPageDTO findUpcomingBirthdays(LocalDate date, int days, LocalDate afterBirthDate, Long afterId, int size) {
+        if (days < 1 || days > 366) {
+            throw UserError.INVALID_DAYS.exception();
+        }
+        if (size < 1 || size > maxPageSize) {
+            throw UserError.INVALID_PAGE_SIZE.exception(maxPageSize);
+        }
+        if ((afterBirthDate == null) != (afterId == null)) {
+            throw UserError.INCOMPLETE_CURSOR.exception();
+        }
+        Integer afterMonthDay = afterBirthDate != null ? monthDay(afterBirthDate) : null;
+        List<UserDTO> users = new ArrayList<>();
+        for (MonthDayRange range : birthdayRanges(date, days)) {
+            Specification<User> specification = UserSpecification.hasBirthMonthDayBetween(range.from(), range.to());
+            if (afterMonthDay != null) {
+                // ranges before the one containing cursor were read by previous pages
+                if (!range.contains(afterMonthDay)) {
+                    continue;
+                }
+                specification = specification.and(UserSpecification.isAfterBirthday(afterMonthDay, afterId));
+                afterMonthDay = null;
+            }
+            users.addAll(userRepository.findUserDTOs(specification, UserSpecification.BIRTHDAY_ORDER, size + 1 - users.size()));
+            if (users.size() > size) {
+                break;
+            }
+        }
+        return toPage(users, size);
+    }
+
+    /**
+     * Birth month-day ranges (MMDD) covering days starting with date, in birthday order: one range,
+     * or two when window crosses new year. Window of a year or longer covers every month-day once.
+     */
+    static List<MonthDayRange> birthdayRanges(LocalDate date, int days) {
+        LocalDate endDate = date.plusDays(days - 1);
+        int from = monthDay(date);
+        int to = monthDay(endDate);
+        if (to == 228 && !endDate.isLeapYear()) {
+            to = 229;
+        }
+        if (endDate.getYear() == date.getYear()) {
+            return List.of(new MonthDayRange(from, to));
+        }
+        if (to >= from) {
+            to = from - 1;
+        }
+        return to < 101
+                ? List.of(new MonthDayRange(from, 1231))
+                : List.of(new MonthDayRange(from, 1231), new MonthDayRange(101, to));
+    }
+
+    static int monthDay(LocalDate date) {
+        return date.getMonthValue() * 100 + date.getDayOfMonth();
+    }
+
+    record MonthDayRange(int from, int to) {
+        boolean contains(int monthDay) {
+            return monthDay >= from && monthDay <= to;
+        }
+    }
+
+    /**
+     * Users whose first name, last name or email starts with text (prefix mode) or contains word similar to it
+     * (fuzzy mode), optionally born within range. Ordered by id, next page starts after afterId.
+     * Every page is served by trigram indexes; text length, page size and statement timeout bound the work.
+     */
+    @Transactional(readOnly = true)
+    public UserPageDTO searchUsers(String text, String mode, LocalDate from, LocalDate to, Long afterId, int size) {
+        UserSpecification.SearchMode searchMode = UserSpecification.SearchMode.of(mode);
+        String trimmedText = text == null ? "" : text.trim();
+        if (trimmedText.length() < searchMinLength) {
+            throw UserError.SEARCH_TEXT_TOO_SHORT.exception(searchMinLength);
+        }
+        if (size < 1 || size > searchMaxSize) {
+            throw UserError.INVALID_PAGE_SIZE.exception(searchMaxSize);
+        }
+        Specification<User> specification = UserSpecification.matches(trimmedText, searchMode);
+        if (from != null || to != null) {
+            checkDateRange(from, to);
+            specification = specification.and(UserSpecification.hasBirthDateBetween(from, to));
+        }
+        if (afterId != null) {
+            specification = specification.and(UserSpecification.hasIdAfter(afterId));
+        }
+        try {
+            return toPage(userRepository.findUserDTOs(specification, UserSpecification.ID_ORDER, size + 1,
+                    searchTimeoutSeconds), size);
+        } catch (QueryTimeoutException e) {
+            throw UserError.SEARCH_TOO_BROAD.exception();
+        }
+    }
+
+    static void validatePageRequest(LocalDate from, LocalDate to, LocalDate afterBirthDate, Long afterId,
+                                    int size, int maxPageSize) {
+        checkDateRange(from, to);
+        if (size < 1 || size > maxPageSize) {
+            throw UserError.INVALID_PAGE_SIZE.exception(maxPageSize);
+        }
+        if ((afterBirthDate == null) != (afterId == null)) {
+            throw UserError.INCOMPLETE_CURSOR.exception();
+        }
+    }
+
+    /**
+     * Users are fetched with limit size + 1, extra row only tells that next page exists.
+     */
+    static UserPageDTO toPage(List<UserDTO> users, int size) {
+        boolean hasNext = users.size() > size;
+        List<UserDTO> page = hasNext ? users.subList(0, size) : users;
+        UserDTO last = page.isEmpty() ? null : page.get(page.size() - 1);
+        return UserPageDTO.builder()
+                .users(page)
+                .hasNext(hasNext)
+                .lastBirthDate(last != null ? last.getBirthDate() : null)
+                .lastId(last != null ? last.getId() : null)
+                .build();
+    }
+
+    /**
+     * Pass every user in range to consumer, ordered by (birthDate, id), reading rows through a JDBC cursor.
+     * Memory usage doesn't depend on result size. Range must be validated with {@link #validateDateRange}
+     * before response is committed.
+     */
+    @Transactional(readOnly = true)
+    public void streamUsersByBirthDateRange(LocalDate from, LocalDate to, Consumer<UserDTO> consumer) {
+        validateDateRange(from, to);
+        Specification<User> specification = UserSpecification.hasBirthDateBetween(from, to);
+        try (Stream<UserDTO> users = userRepository.streamUserDTOs(specification, UserSpecification.BIRTH_DATE_ORDER,
+                streamFetchSize)) {
+            users.forEach(consumer);
+        }
+    }
+
+    public void validateDateRange(LocalDate from, LocalDate to) {
+        checkDateRange(from, to);
+    }
+
+    static void checkDateRange(LocalDate from, LocalDate to) {
         if (from == null || to == null) {
-            throw new IllegalArgumentException("Both 'from' and 'to' dates must be specified!");
+            throw UserError.INCOMPLETE_DATE_RANGE.exception();
         }
         if (from.isAfter(to) || from.isEqual(to)) {
-            throw new IllegalArgumentException("'From' date must be earlier than 'To' date!");
+            throw UserError.REVERSED_DATE_RANGE.exception();
         }
-        Specification<User> specification = UserSpecification.hasBirthDateBetween(from, to);
-        List<User> users = userRepository.findAll(specification);
-        return users.stream()
-                .map(userMapper::entityToDTO)
-                .toList();
     }
+    /**
+     * Served from users cache; entries are refreshed by update/patch and evicted by delete.
+     * Cache is shared by all clients, so misses are loaded from primary (not read-only transaction): replica lagging
+     * behind would put back user that was just deleted or updated.
+     */
+    @Cacheable(cacheNames = USERS_CACHE, key = "#id")
+    @Transactional
+    public UserDTO findUserById(Long id) {
+        return userRepository.findUserDTO(UserSpecification.hasId(id))
+                .orElseThrow(() -> UserError.USER_NOT_FOUND.exception(id));
+    }
+
+    /**
+     * Current version of user, without loading the rest of the row. Used to answer conditional requests.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Long> findUserVersion(Long id) {
+        return userRepository.findVersionById(id);
+    }
+
     @Transactional
     public UserDTO createUser(UserDTO userDTO) {
         if (!isValidAge(userDTO.getBirthDate())) {
-            throw new IllegalArgumentException(String.format("User must be older than %s to register!", requiredAge));
+            throw UserError.UNDERAGE_REGISTRATION.exception(requiredAge);
         }
         checkIfEmailIsUsed(userDTO.getEmail(), null);
         User user = userRepository.save(userMapper.dtoToEntity(userDTO));
-        return userMapper.entityToDTO(user);
+        emailFilter.put(user.getEmail());
+        UserDTO createdUser = userMapper.entityToDTO(user);
+        userChangeService.recordChange(UserChangeDTO.Type.CREATED, createdUser.getId(), createdUser);
+        return createdUser;
     }
 
+    /**
+     * Single UPDATE ... RETURNING statement. Email conflicts are reported by ux_user_email unique index.
+     * When version is given, update succeeds only if user wasn't modified since it was read.
+     */
+    @CachePut(cacheNames = USERS_CACHE, key = "#id")
     @Transactional
     public UserDTO updateUser(UserDTO userDTO, Long id) {
-        Optional<User> optionalUser = userRepository.findById(id);
-        if(optionalUser.isEmpty()) {
-            throw new IllegalArgumentException(String.format("User with ID %s wasn't found", id));
+        Optional<User> updatedUser;
+        try {
+            updatedUser = userRepository.updateReturning(id, userDTO.getFirstName(), userDTO.getLastName(),
+                    userDTO.getBirthDate(), userDTO.getEmail(), userDTO.getAddress(), userDTO.getPhoneNumber(),
+                    userDTO.getVersion());
+        } catch (DataIntegrityViolationException e) {
+            throw emailTakenOrRethrow(e, userDTO.getEmail());
         }
-        checkIfEmailIsUsed(userDTO.getEmail(), id);
-        User existingUser = optionalUser.get();
-        existingUser.setFirstName(userDTO.getFirstName());
-        existingUser.setLastName(userDTO.getLastName());
-        existingUser.setBirthDate(userDTO.getBirthDate());
-        existingUser.setEmail(userDTO.getEmail());
-        existingUser.setAddress(userDTO.getAddress());
-        existingUser.setPhoneNumber(userDTO.getPhoneNumber());
-
-        User updatedUser = userRepository.save(existingUser);
-        return userMapper.entityToDTO(updatedUser);
+        User user = updatedUser.orElseThrow(() -> notFoundOrModified(id, userDTO.getVersion()));
+        emailFilter.put(user.getEmail());
+        return recordUpdate(user);
     }
 
+    /**
+     * Same as {@link #updateUser}, fields that are null in request keep their current values.
+     */
+    @CachePut(cacheNames = USERS_CACHE, key = "#id")
     @Transactional
     public UserDTO patchUser(PartialUserDTO userDTO, Long id) {
-        Optional<User> optionalUser = userRepository.findById(id);
-        if(optionalUser.isPresent()) {
-            checkIfEmailIsUsed(userDTO.getEmail(), id);
-            User existingUser = optionalUser.get();
-            User updatedUser = partiallyUpdateUserFields(existingUser, userDTO);
-            updatedUser = userRepository.save(updatedUser);
-            return userMapper.entityToDTO(updatedUser);
+        if(userDTO.getBirthDate() != null && !isValidAge(userDTO.getBirthDate())) {
+            throw UserError.UNDERAGE_UPDATE.exception(requiredAge);
+        }
+        Optional<User> updatedUser;
+        try {
+            updatedUser = userRepository.patchReturning(id, userDTO.getFirstName(), userDTO.getLastName(),
+                    userDTO.getBirthDate(), userDTO.getEmail(), userDTO.getAddress(), userDTO.getPhoneNumber(),
+                    userDTO.getVersion());
+        } catch (DataIntegrityViolationException e) {
+            throw emailTakenOrRethrow(e, userDTO.getEmail());
         }
-        throw new IllegalArgumentException(String.format("User with ID %s wasn't found", id));
+        User user = updatedUser.orElseThrow(() -> notFoundOrModified(id, userDTO.getVersion()));
+        emailFilter.put(userDTO.getEmail());
+        return recordUpdate(user);
     }
 
+    private UserDTO recordUpdate(User user) {
+        UserDTO updatedUser = userMapper.entityToDTO(user);
+        userChangeService.recordChange(UserChangeDTO.Type.UPDATED, updatedUser.getId(), updatedUser);
+        return updatedUser;
+    }
+
+    /**
+     * When version is given, user is deleted only if it wasn't modified since it was read.
+     */
+    @CacheEvict(cacheNames = USERS_CACHE, key = "#id")
     @Transactional
-    public String deleteUser(Long id) {
-        Optional<User> optionalUser = userRepository.findById(id);
-        if(optionalUser.isPresent()) {
-            userRepository.deleteById(id);
-            return String.format("User with ID %s was deleted", id);
+    public String deleteUser(Long id, Long version) {
+        if(userRepository.deleteUserById(id, version) == 0) {
+            throw notFoundOrModified(id, version);
         }
-        throw new IllegalArgumentException(String.format("User with ID %s wasn't found", id));
+        userChangeService.recordChange(UserChangeDTO.Type.DELETED, id, null);
+        return String.format("User with ID %s was deleted", id);
     }
 
-    private User partiallyUpdateUserFields(User existingUser, PartialUserDTO userDTO) {
-        if(userDTO.getBirthDate() != null) {
-            if(!isValidAge(userDTO.getBirthDate())) {
-                throw new IllegalArgumentException(String.format("User must be older than %s to use this site!", requiredAge));
-            }
-            existingUser.setBirthDate(userDTO.getBirthDate());
-        }
-        if(userDTO.getFirstName() != null) {
-            existingUser.setFirstName(userDTO.getFirstName());
-        }
-        if(userDTO.getLastName() != null) {
-            existingUser.setLastName(userDTO.getLastName());
-        }
-        if(userDTO.getEmail() != null) {
-            existingUser.setEmail(userDTO.getEmail());
-        }
-        if(userDTO.getAddress() != null) {
-            existingUser.setAddress(userDTO.getAddress());
-        }
-        if(userDTO.getPhoneNumber() != null) {
-            existingUser.setPhoneNumber(userDTO.getPhoneNumber());
+    /**
+     * Nothing was updated: either there is no such user, or its version doesn't match anymore.
+     * Extra lookup happens only on this failure path.
+     */
+    private RuntimeException notFoundOrModified(Long id, Long version) {
+        if (version != null && userRepository.existsById(id)) {
+            return new OptimisticLockingFailureException(String.format(
+                    "User with ID %s was modified by another request, reload it and try again!", id));
         }
-        return existingUser;
+        return UserError.USER_NOT_FOUND.exception(id);
+    }
 
+    static RuntimeException emailTakenOrRethrow(DataIntegrityViolationException e, String email) {
+        if (e.getMessage() != null && e.getMessage().contains(UserRepository.EMAIL_UNIQUE_INDEX)) {
+            return UserError.EMAIL_TAKEN.exception(email);
+        }
+        return e;
     }
 
     /**
      * Validate age. If age < required age, return false;
      */
-    private boolean isValidAge(LocalDate birthDate) {
-        int userAge = Period.between(birthDate, LocalDate.now()).getYears();
-        return userAge >= requiredAge;
+    boolean isValidAge(LocalDate birthDate) {
+        return isValidAge(birthDate, requiredAge);
+    }
+
+    static boolean isValidAge(LocalDate birthDate, int requiredAge) {
+        return AgeCutoff.isOldEnough(birthDate, requiredAge);
     }
 
     /**
      * Find if email is already in database. If yes, check if email used by current user or no.
+     * Only id of owner is fetched; emails never seen by email filter don't hit database at all.
+     * Concurrent writers are stopped by ux_user_email unique index.
      */
     private void checkIfEmailIsUsed(String email, Long currentOwnerId) {
-        Optional<User> existingOwnerWithEmail = userRepository.findByEmail(email);
-        if(existingOwnerWithEmail.isPresent() && (currentOwnerId == null ||
-                !existingOwnerWithEmail.get().getId().equals(currentOwnerId))) {
-            throw new IllegalArgumentException(String.format("Email %s already taken!",
-                    email));
+        if (email == null || !emailFilter.mightBeUsed(email)) {
+            return;
+        }
+        Optional<Long> existingOwnerId = userRepository.findIdByEmail(email);
+        if(existingOwnerId.isPresent() && !existingOwnerId.get().equals(currentOwnerId)) {
+            throw UserError.EMAIL_TAKEN.exception(email);
         }
     }
 }
@@ -0,0 +1,193 @@
+package com.darmokhval.test_task.service;
+
+import com.darmokhval.test_task.model.dto.UserBatchResultDTO;
+import com.darmokhval.test_task.model.dto.UserCreationStatusDTO;
+import com.darmokhval.test_task.model.dto.UserCreationStatusDTO.Status;
+import com.darmokhval.test_task.model.dto.UserDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous user creation. Requests are validated and put into bounded in-memory queue, single writer thread
+ * saves them through {@link UserBatchService}: whatever accumulated in queue while previous batch was committed
+ * goes into next batch, so under load many registrations share one transaction and one multi-row insert.
+ * Outcome of every registration is kept for status lookup by tracking id, for status ttl and up to max statuses.
+ * Queued registrations live only in memory of this instance; they are written before shutdown completes,
+ * but lost if process is killed.
+ */
+@Slf4j
+@Profile("!reactive")
+@ConditionalOnProperty(name = "user.async_create.enabled", havingValue = "true")
+@Service
+public class UserWriteBehindService implements SmartLifecycle {
+    private static final long POLL_TIMEOUT_MS = 200;
+    private final UserBatchService userBatchService;
+    private final BlockingQueue<PendingUser> queue;
+    private final Cache<String, UserCreationStatusDTO> statuses;
+    private final int maxBatchSize;
+    private final int requiredAge;
+    private volatile boolean running;
+    private Thread writer;
+
+    public UserWriteBehindService(UserBatchService userBatchService,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${user.required_age}") int requiredAge,
+                                  @Value("${user.async_create.queue_capacity:10000}") int queueCapacity,
+                                  @Value("${user.async_create.max_batch_size:500}") int maxBatchSize,
+                                  @Value("${user.async_create.status_ttl:10m}") Duration statusTtl,
+                                  @Value("${user.async_create.max_statuses:100000}") long maxStatuses) {
+        this.userBatchService = userBatchService;
+        this.requiredAge = requiredAge;
+        this.maxBatchSize = maxBatchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.statuses = Caffeine.newBuilder()
+                .maximumSize(maxStatuses)
+                .expireAfterWrite(statusTtl)
+                .build();
+        Gauge.builder("user.async_create.queue.size", queue, BlockingQueue::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queue user for creation. Throws RejectedExecutionException when queue is full or application is stopping.
+     */
+    public UserCreationStatusDTO submit(UserDTO userDTO) {
+        if (!UserService.isValidAge(userDTO.getBirthDate(), requiredAge)) {
+            throw UserError.UNDERAGE_REGISTRATION.exception(requiredAge);
+        }
+        if (!running) {
+            throw new RejectedExecutionException("Registrations are not accepted now, try again later!");
+        }
+        String trackingId = UUID.randomUUID().toString();
+        UserCreationStatusDTO status = status(trackingId, Status.QUEUED, null, null);
+        statuses.put(trackingId, status);
+        if (!queue.offer(new PendingUser(trackingId, userDTO))) {
+            statuses.invalidate(trackingId);
+            throw new RejectedExecutionException("Too many pending registrations, try again later!");
+        }
+        return status;
+    }
+
+    public UserCreationStatusDTO findStatus(String trackingId) {
+        UserCreationStatusDTO status = statuses.getIfPresent(trackingId);
+        if (status == null) {
+            throw UserError.REGISTRATION_NOT_FOUND.exception(trackingId);
+        }
+        return status;
+    }
+
+    /**
+     * Take everything queued so far, up to max batch size, and save it. Returns false when queue stayed empty.
+     */
+    boolean writeNextBatch() throws InterruptedException {
+        PendingUser first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return false;
+        }
+        List<PendingUser> batch = new ArrayList<>(maxBatchSize);
+        batch.add(first);
+        queue.drainTo(batch, maxBatchSize - 1);
+        write(batch);
+        return true;
+    }
+
+    private void write(List<PendingUser> batch) {
+        List<UserDTO> users = batch.stream().map(PendingUser::user).toList();
+        try {
+            UserBatchResultDTO result = userBatchService.createChunk(users, (index, user) ->
+                    update(batch.get(index), Status.CREATED, user.getId(), null));
+            result.getErrors().forEach(error ->
+                    update(batch.get(error.getIndex()), Status.REJECTED, null, error.getMessages()));
+        } catch (RuntimeException e) {
+            log.error("Couldn't save batch of {} queued users", batch.size(), e);
+            batch.stream()
+                    .filter(pendingUser -> isQueued(statuses.getIfPresent(pendingUser.trackingId())))
+                    .forEach(pendingUser -> update(pendingUser, Status.REJECTED, null,
+                            List.of("User couldn't be saved, try again later!")));
+        }
+    }
+
+    private static boolean isQueued(UserCreationStatusDTO status) {
+        return status != null && status.getStatus() == Status.QUEUED;
+    }
+
+    private void update(PendingUser pendingUser, Status status, Long userId, List<String> messages) {
+        statuses.put(pendingUser.trackingId(), status(pendingUser.trackingId(), status, userId, messages));
+    }
+
+    private static UserCreationStatusDTO status(String trackingId, Status status, Long userId, List<String> messages) {
+        return UserCreationStatusDTO.builder()
+                .trackingId(trackingId)
+                .status(status)
+                .userId(userId)
+                .messages(messages)
+                .build();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        writer = new Thread(this::writeUntilStoppedAndDrained, "user-write-behind");
+        writer.start();
+    }
+
+    /**
+     * Called after web server has stopped, so nothing is added to queue anymore. Returns once queue is empty.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Write-behind queue drained");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Started before and stopped after web server, requests in flight during graceful shutdown can still be queued.
+     */
+    @Override
+    public int getPhase() {
+        return WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE - 2048;
+    }
+
+    private void writeUntilStoppedAndDrained() {
+        while (running || !queue.isEmpty()) {
+            try {
+                writeNextBatch();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Write-behind writer interrupted, {} queued users not saved", queue.size());
+                return;
+            }
+        }
+    }
+
+    record PendingUser(String trackingId, UserDTO user) {
+    }
+}
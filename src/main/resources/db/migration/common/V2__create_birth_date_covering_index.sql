@@ -0,0 +1,5 @@
+-- Birth date range queries are ordered by (birth_date, id) and return all these columns, so they are answered by
+-- index-only scan. Heap is read only for pages vacuum hasn't marked all-visible yet.
+-- On partitioned table the index is created in every partition.
+CREATE INDEX IF NOT EXISTS ix_user_birth_date ON "user" (birth_date, id)
+    INCLUDE (first_name, last_name, email, address, phone_number, version);
@@ -0,0 +1,7 @@
+-- User search matches lower-cased first name, last name and email by prefix (LIKE 'text%')
+-- and by word similarity (text <% column). Both operators are served by trigram GIN indexes.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS ix_user_first_name_trgm ON "user" USING gin (lower(first_name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS ix_user_last_name_trgm ON "user" USING gin (lower(last_name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS ix_user_email_trgm ON "user" USING gin (lower(email) gin_trgm_ops);
@@ -0,0 +1,7 @@
+-- Month and day of birth as MMDD number (229 for February 29th). Birthdays within a window of days are one range
+-- of this column, or two when window crosses new year; index returns them in birthday order.
+-- Adding stored column rewrites the table once.
+ALTER TABLE "user" ADD COLUMN IF NOT EXISTS birth_month_day smallint
+    GENERATED ALWAYS AS ((EXTRACT(MONTH FROM birth_date) * 100 + EXTRACT(DAY FROM birth_date))::smallint) STORED;
+
+CREATE INDEX IF NOT EXISTS ix_user_birth_month_day ON "user" (birth_month_day, id);
@@ -0,0 +1,10 @@
+-- Responses of requests sent with Idempotency-Key, used when user.idempotency.store=jdbc
+CREATE TABLE IF NOT EXISTS idempotency_key (
+    key        varchar(255) PRIMARY KEY,
+    request    varchar(2048) NOT NULL,
+    status     smallint      NOT NULL,
+    headers    text          NOT NULL,
+    body       bytea         NOT NULL,
+    created_at timestamptz   NOT NULL
+);
+CREATE INDEX IF NOT EXISTS ix_idempotency_key_created_at ON idempotency_key (created_at);
@@ -0,0 +1,20 @@
+-- User change events, inserted by the same transaction as the change itself (transactional outbox)
+CREATE TABLE IF NOT EXISTS user_change_outbox (
+    id         bigserial   PRIMARY KEY,
+    type       varchar(16) NOT NULL,
+    user_id    bigint      NOT NULL,
+    payload    json,
+    created_at timestamptz NOT NULL DEFAULT now()
+);
+-- Events moved from outbox by relay. Relay runs in one instance at a time and takes offsets from sequence,
+-- so offsets grow in the order events become visible to readers of api/users/changes
+CREATE SEQUENCE IF NOT EXISTS user_change_offset_seq;
+CREATE TABLE IF NOT EXISTS user_change_log (
+    change_offset bigint      PRIMARY KEY,
+    type          varchar(16) NOT NULL,
+    user_id       bigint      NOT NULL,
+    payload       json,
+    created_at    timestamptz NOT NULL,
+    published_at  timestamptz NOT NULL DEFAULT now()
+);
+CREATE INDEX IF NOT EXISTS ix_user_change_log_published_at ON user_change_log (published_at);
@@ -0,0 +1,3 @@
+-- SHA-256 of request body the key was first used with, retry with another body gets 422.
+-- Rows stored before have none and are replayed as before until they expire
+ALTER TABLE idempotency_key ADD COLUMN IF NOT EXISTS body_hash char(64);
@@ -0,0 +1,6 @@
+-- Key is claimed by row without response before its request is executed, so instances don't execute it twice.
+-- Keys are prefixed by client address, so clients can't get responses of each other; keys stored before just expire
+ALTER TABLE idempotency_key ALTER COLUMN key TYPE varchar(320);
+ALTER TABLE idempotency_key ALTER COLUMN status DROP NOT NULL;
+ALTER TABLE idempotency_key ALTER COLUMN headers DROP NOT NULL;
+ALTER TABLE idempotency_key ALTER COLUMN body DROP NOT NULL;
@@ -0,0 +1,79 @@
+-- Used instead of plain V1 when partitioned profile is active. "user" is partitioned by birth_date decades,
+-- so birth date range queries read only partitions overlapping the range.
+CREATE SEQUENCE IF NOT EXISTS user_seq START WITH 1 INCREMENT BY 50;
+
+-- Table created by Hibernate before migrations existed is kept aside, its rows are moved below.
+DO $$
+DECLARE
+    primary_key name;
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_class WHERE oid = to_regclass('"user"') AND relkind = 'r') THEN
+        ALTER TABLE "user" RENAME TO user_unpartitioned;
+        ALTER TABLE user_unpartitioned ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
+        SELECT conname INTO primary_key FROM pg_constraint
+        WHERE conrelid = 'user_unpartitioned'::regclass AND contype = 'p';
+        EXECUTE format('ALTER TABLE user_unpartitioned RENAME CONSTRAINT %I TO user_unpartitioned_pkey', primary_key);
+        DROP INDEX IF EXISTS ux_user_email;
+    END IF;
+END $$;
+
+-- Primary key of partitioned table must contain partition key
+CREATE TABLE "user" (
+    id           bigint       NOT NULL,
+    first_name   varchar(255),
+    last_name    varchar(255),
+    birth_date   date         NOT NULL,
+    email        varchar(255),
+    address      varchar(255),
+    phone_number varchar(255),
+    version      bigint       NOT NULL DEFAULT 0,
+    PRIMARY KEY (id, birth_date)
+) PARTITION BY RANGE (birth_date);
+
+DO $$
+BEGIN
+    FOR decade IN 1900..2020 BY 10 LOOP
+        EXECUTE format('CREATE TABLE user_%ss PARTITION OF "user" FOR VALUES FROM (%L) TO (%L)',
+                       decade, make_date(decade, 1, 1), make_date(decade + 10, 1, 1));
+    END LOOP;
+END $$;
+
+CREATE TABLE user_default PARTITION OF "user" DEFAULT;
+
+-- Unique index of partitioned table can't span partitions unless it contains birth_date, so uniqueness of
+-- lower(email) is kept in separate table. Its constraint has the same name as unique index of plain schema,
+-- so violations are reported the same way.
+CREATE TABLE user_email (
+    email   varchar(255) NOT NULL,
+    user_id bigint       NOT NULL,
+    CONSTRAINT ux_user_email PRIMARY KEY (email)
+);
+
+CREATE FUNCTION user_email_sync() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP <> 'INSERT' AND OLD.email IS NOT NULL THEN
+        DELETE FROM user_email WHERE email = lower(OLD.email);
+    END IF;
+    IF TG_OP <> 'DELETE' AND NEW.email IS NOT NULL THEN
+        INSERT INTO user_email (email, user_id) VALUES (lower(NEW.email), NEW.id);
+    END IF;
+    RETURN NULL;
+END $$;
+
+CREATE TRIGGER user_email_sync AFTER INSERT OR DELETE OR UPDATE OF email ON "user"
+    FOR EACH ROW EXECUTE FUNCTION user_email_sync();
+
+-- Email lookups probe this index in every partition
+CREATE INDEX ix_user_email ON "user" (lower(email));
+
+DO $$
+BEGIN
+    IF to_regclass('user_unpartitioned') IS NOT NULL THEN
+        INSERT INTO "user" (id, first_name, last_name, birth_date, email, address, phone_number, version)
+        SELECT id, first_name, last_name, birth_date, email, address, phone_number, version FROM user_unpartitioned;
+        DROP TABLE user_unpartitioned;
+        -- Ids used to come from identity column. Move user_seq past them once, so pooled ids don't collide.
+        PERFORM setval('user_seq', (SELECT MAX(id) FROM "user") + 50, false)
+        WHERE (SELECT last_value FROM user_seq) < (SELECT COALESCE(MAX(id), 0) FROM "user");
+    END IF;
+END $$;
@@ -0,0 +1,23 @@
+-- Databases created before migrations already have this schema (generated by Hibernate),
+-- every statement is a no-op for them.
+CREATE SEQUENCE IF NOT EXISTS user_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS "user" (
+    id           bigint PRIMARY KEY,
+    first_name   varchar(255),
+    last_name    varchar(255),
+    birth_date   date,
+    email        varchar(255),
+    address      varchar(255),
+    phone_number varchar(255),
+    version      bigint NOT NULL DEFAULT 0
+);
+
+ALTER TABLE "user" ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
+
+-- Ids used to come from identity column. Move user_seq past them once, so pooled ids don't collide.
+SELECT setval('user_seq', (SELECT MAX(id) FROM "user") + 50, false)
+WHERE (SELECT last_value FROM user_seq) < (SELECT COALESCE(MAX(id), 0) FROM "user");
+
+-- Emails are unique regardless of case. Lookups use lower(email), so they are served by this index too.
+CREATE UNIQUE INDEX IF NOT EXISTS ux_user_email ON "user" (lower(email));
@@ -0,0 +1,88 @@
+package com.darmokhval.test_task;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Base of tests running whole application against embedded PostgreSQL migrated by Flyway. Database is started
+ * once and shared by all subclasses, so tests use their own emails and ids and don't rely on empty tables.
+ */
+@SpringBootTest(properties = {"spring.docker.compose.enabled=false", "logging.level.root=WARN"})
+@ExtendWith(EmbeddedDatabaseTest.DatabaseLifecycle.class)
+public abstract class EmbeddedDatabaseTest {
+    private static final EmbeddedPostgres POSTGRES = start();
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> POSTGRES.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+    }
+
+    /**
+     * Create empty database on the same server, e.g. to stand in for replica.
+     */
+    protected static String createDatabase(String name) {
+        try (Connection connection = POSTGRES.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE DATABASE " + name);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+        return POSTGRES.getJdbcUrl("postgres", name);
+    }
+
+    protected static DataSource database(String name) {
+        return POSTGRES.getDatabase("postgres", name);
+    }
+
+    protected static String r2dbcUrl(String name) {
+        return "r2dbc:postgresql://postgres@localhost:" + POSTGRES.getPort() + "/" + name;
+    }
+
+    private static EmbeddedPostgres start() {
+        try {
+            return EmbeddedPostgres.builder().start();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Once all tests have run, closes application contexts of these tests and then database. Left to JVM shutdown
+     * hooks, they run at the same time and outbox relay and pools of contexts still closing block on stopped database.
+     */
+    static class DatabaseLifecycle implements BeforeAllCallback, ExtensionContext.Store.CloseableResource {
+        private final Set<ConfigurableApplicationContext> contexts = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public void beforeAll(ExtensionContext context) {
+            // store of root context is closed when the whole test plan is done, before JVM exits
+            DatabaseLifecycle lifecycle = context.getRoot().getStore(ExtensionContext.Namespace.GLOBAL)
+                    .getOrComputeIfAbsent(DatabaseLifecycle.class, key -> new DatabaseLifecycle(), DatabaseLifecycle.class);
+            lifecycle.contexts.add((ConfigurableApplicationContext) SpringExtension.getApplicationContext(context));
+        }
+
+        @Override
+        public void close() throws IOException {
+            contexts.forEach(ConfigurableApplicationContext::close);
+            POSTGRES.close();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.darmokhval.test_task.config;
+
+import com.darmokhval.test_task.config.AdaptiveConcurrencyLimit.Admission;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveConcurrencyLimitTest {
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(2);
+    private long clock;
+
+    @Test
+    public void requestOverLimitIsShedWithoutWaitTest() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = limit(1, 2, Duration.ofSeconds(1), Duration.ZERO);
+
+        assertEquals(Admission.ACCEPTED, limit.acquire());
+        assertEquals(Admission.ACCEPTED, limit.acquire());
+        assertEquals(Admission.SHED, limit.acquire());
+        assertEquals(2, limit.getInFlight());
+    }
+
+    @Test
+    public void waitingRequestIsAdmittedOnReleaseTest() throws Exception {
+        AdaptiveConcurrencyLimit limit = limit(1, 1, Duration.ofSeconds(1), Duration.ofSeconds(5));
+        limit.acquire();
+
+        CompletableFuture<Admission> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return limit.acquire();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+        release(limit, FAST);
+
+        assertEquals(Admission.QUEUED, waiting.get(5, TimeUnit.SECONDS));
+        assertEquals(1, limit.getInFlight());
+    }
+
+    @Test
+    public void waitingRequestIsShedAfterMaxWaitTest() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = limit(1, 1, Duration.ofSeconds(1), Duration.ofMillis(20));
+        limit.acquire();
+
+        assertEquals(Admission.SHED, limit.acquire());
+    }
+
+    @Test
+    public void slowRequestsShrinkLimitDownToMinimumTest() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = limit(5, 10, Duration.ofSeconds(1), Duration.ZERO);
+
+        limit.acquire();
+        release(limit, SLOW);
+        assertEquals(9, limit.getLimit());
+        for (int i = 0; i < 20; i++) {
+            limit.acquire();
+            release(limit, SLOW);
+        }
+        assertEquals(5, limit.getLimit());
+    }
+
+    @Test
+    public void slowRequestsAdmittedBeforeBackoffShrinkLimitOnceTest() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = limit(1, 10, Duration.ofSeconds(1), Duration.ZERO);
+        long admittedAt = clock;
+        for (int i = 0; i < 5; i++) {
+            limit.acquire();
+        }
+        for (int i = 0; i < 5; i++) {
+            limit.release(admittedAt, admittedAt + SLOW + i);
+        }
+        assertEquals(9, limit.getLimit());
+        assertEquals(0, limit.getInFlight());
+
+        clock = admittedAt + SLOW + 5;
+        limit.acquire();
+        release(limit, SLOW);
+        assertEquals(8, limit.getLimit());
+    }
+
+    @Test
+    public void fastRequestsGrowLimitOnlyWhenItIsUsedTest() throws InterruptedException {
+        AdaptiveConcurrencyLimit limit = limit(1, 10, Duration.ofSeconds(1), Duration.ZERO);
+        for (int i = 0; i < 5; i++) {
+            limit.acquire();
+            release(limit, SLOW);
+        }
+        int shrunk = limit.getLimit();
+
+        limit.acquire();
+        release(limit, FAST);
+        assertEquals(shrunk, limit.getLimit());
+
+        for (int i = 0; i < shrunk; i++) {
+            limit.acquire();
+        }
+        release(limit, FAST);
+        assertEquals(shrunk + 1, limit.getLimit());
+    }
+
+    private AdaptiveConcurrencyLimit limit(int minLimit, int maxLimit, Duration latencyThreshold, Duration maxWait) {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(minLimit, maxLimit, latencyThreshold, maxWait);
+        clock = System.nanoTime();
+        return limit;
+    }
+
+    /**
+     * Release request admitted now that took given time, clock moves past its completion.
+     */
+    private void release(AdaptiveConcurrencyLimit limit, long latencyNanos) {
+        long admittedAt = clock;
+        clock += latencyNanos;
+        limit.release(admittedAt, clock);
+    }
+}
@@ -0,0 +1,103 @@
+package com.darmokhval.test_task.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.DispatcherType;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionControlInterceptorTest {
+    private final AdaptiveConcurrencyLimit readLimit = limit(2);
+    private final AdaptiveConcurrencyLimit streamLimit = limit(1);
+    private final AdmissionControlInterceptor interceptor = new AdmissionControlInterceptor(readLimit, limit(1),
+            streamLimit, new ClientIdentity("X-Client-Id"), new ClientRateLimiter(1, 1), new SimpleMeterRegistry());
+
+    @Test
+    public void streamingResponseHoldsSlotUntilAsyncDispatchCompletesTest() throws Exception {
+        HandlerMethod stream = handler("stream");
+        MockHttpServletRequest request = request("10.0.0.1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(interceptor.preHandle(request, response, stream));
+        interceptor.afterConcurrentHandlingStarted(request, response, stream);
+        assertEquals(1, streamLimit.getInFlight());
+        assertEquals(0, readLimit.getInFlight());
+        assertThrows(RejectedExecutionException.class,
+                () -> interceptor.preHandle(request("10.0.0.2"), new MockHttpServletResponse(), handler("changes")));
+
+        request.setDispatcherType(DispatcherType.ASYNC);
+        assertTrue(interceptor.preHandle(request, response, stream));
+        interceptor.afterCompletion(request, response, stream, null);
+        assertEquals(0, streamLimit.getInFlight());
+    }
+
+    @Test
+    public void plainReadIsReleasedOnCompletionTest() throws Exception {
+        HandlerMethod find = handler("find");
+        MockHttpServletRequest request = request("10.0.0.1");
+
+        assertTrue(interceptor.preHandle(request, new MockHttpServletResponse(), find));
+        assertEquals(1, readLimit.getInFlight());
+        interceptor.afterCompletion(request, new MockHttpServletResponse(), find, null);
+
+        assertEquals(0, readLimit.getInFlight());
+        assertEquals(0, streamLimit.getInFlight());
+    }
+
+    @Test
+    public void clientIdIsThrottledFromAnyAddressTest() throws Exception {
+        MockHttpServletRequest first = request("10.0.0.1");
+        first.addHeader("X-Client-Id", "mobile-app");
+        MockHttpServletRequest second = request("10.0.0.2");
+        second.addHeader("X-Client-Id", "mobile-app");
+
+        assertTrue(interceptor.preHandle(first, new MockHttpServletResponse(), handler("find")));
+        assertThrows(ClientRateLimitException.class,
+                () -> interceptor.preHandle(second, new MockHttpServletResponse(), handler("find")));
+    }
+
+    @Test
+    public void streamingHandlersAreRecognizedTest() throws Exception {
+        assertTrue(AdmissionControlInterceptor.isStreaming(handler("stream")));
+        assertTrue(AdmissionControlInterceptor.isStreaming(handler("changes")));
+        assertFalse(AdmissionControlInterceptor.isStreaming(handler("find")));
+        assertFalse(AdmissionControlInterceptor.isStreaming(new Object()));
+    }
+
+    private static AdaptiveConcurrencyLimit limit(int limit) {
+        return new AdaptiveConcurrencyLimit(limit, limit, Duration.ofSeconds(1), Duration.ZERO);
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users");
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
+
+    private static HandlerMethod handler(String name) throws NoSuchMethodException {
+        return new HandlerMethod(new Handlers(), Handlers.class.getMethod(name));
+    }
+
+    public static class Handlers {
+        public ResponseEntity<StreamingResponseBody> stream() {
+            return null;
+        }
+
+        public ResponseEntity<ResponseBodyEmitter> changes() {
+            return null;
+        }
+
+        public ResponseEntity<String> find() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.darmokhval.test_task.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClientIdentityTest {
+    private final ClientIdentity clientIdentity = new ClientIdentity("X-Client-Id");
+
+    @Test
+    public void clientIdHeaderIsUsedFromAnyAddressTest() {
+        MockHttpServletRequest first = request("10.0.0.1");
+        first.addHeader("X-Client-Id", "mobile-app");
+        MockHttpServletRequest second = request("10.0.0.2");
+        second.addHeader("X-Client-Id", "mobile-app");
+
+        assertEquals("client:mobile-app", clientIdentity.of(first));
+        assertEquals(clientIdentity.of(first), clientIdentity.of(second));
+    }
+
+    @Test
+    public void principalThenAddressWithoutClientIdTest() {
+        MockHttpServletRequest authenticated = request("10.0.0.1");
+        authenticated.setUserPrincipal(() -> "alice");
+
+        assertEquals("principal:alice", clientIdentity.of(authenticated));
+        assertEquals("address:10.0.0.1", clientIdentity.of(request("10.0.0.1")));
+        MockHttpServletRequest notConfigured = request("10.0.0.1");
+        notConfigured.addHeader("X-Client-Id", "mobile-app");
+        assertEquals("address:10.0.0.1", new ClientIdentity("").of(notConfigured));
+    }
+
+    @Test
+    public void longIdentityIsHashedTest() {
+        MockHttpServletRequest request = request("10.0.0.1");
+        request.addHeader("X-Client-Id", "x".repeat(300));
+
+        String identity = clientIdentity.of(request);
+
+        assertEquals(64, identity.length());
+        assertEquals(identity, clientIdentity.of(request));
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/users");
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
+}
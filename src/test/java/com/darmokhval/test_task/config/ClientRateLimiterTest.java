@@ -0,0 +1,43 @@
+package com.darmokhval.test_task.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClientRateLimiterTest {
+
+    @Test
+    public void burstThenRateTest() {
+        ClientRateLimiter limiter = new ClientRateLimiter(2, 3);
+        long now = 0;
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("10.0.0.1", now));
+        }
+        assertEquals(1, limiter.tryAcquire("10.0.0.1", now));
+
+        now += TimeUnit.MILLISECONDS.toNanos(500);
+        assertEquals(0, limiter.tryAcquire("10.0.0.1", now));
+        assertEquals(1, limiter.tryAcquire("10.0.0.1", now));
+    }
+
+    @Test
+    public void clientsHaveSeparateBucketsTest() {
+        ClientRateLimiter limiter = new ClientRateLimiter(1, 1);
+
+        assertEquals(0, limiter.tryAcquire("10.0.0.1", 0));
+        assertTrue(limiter.tryAcquire("10.0.0.1", 0) > 0);
+        assertEquals(0, limiter.tryAcquire("10.0.0.2", 0));
+    }
+
+    @Test
+    public void retryAfterCoversMissingTokenTest() {
+        ClientRateLimiter limiter = new ClientRateLimiter(0.2, 1);
+
+        limiter.tryAcquire("10.0.0.1", 0);
+
+        assertEquals(5, limiter.tryAcquire("10.0.0.1", 0));
+    }
+}
@@ -0,0 +1,116 @@
+package com.darmokhval.test_task.config;
+
+import com.darmokhval.test_task.EmbeddedDatabaseTest;
+import com.darmokhval.test_task.repository.JdbcIdempotencyStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two instances sharing idempotency_key table, each with filter of its own.
+ */
+public class IdempotencyFilterDatabaseTest extends EmbeddedDatabaseTest {
+    private final AtomicInteger executions = new AtomicInteger();
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void keyRunningOnAnotherInstanceIsExecutedOnceTest() throws Exception {
+        IdempotencyFilter first = filter(Duration.ofMinutes(5));
+        IdempotencyFilter second = filter(Duration.ofMinutes(5));
+        String key = UUID.randomUUID().toString();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain slowChain = (request, response) -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            created(request, response);
+        };
+
+        CompletableFuture<MockHttpServletResponse> running = CompletableFuture.supplyAsync(() -> send(first, key, slowChain));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<MockHttpServletResponse> duplicate = CompletableFuture.supplyAsync(() -> send(second, key, this::created));
+        Thread.sleep(200);
+        release.countDown();
+
+        assertEquals(201, running.get(5, TimeUnit.SECONDS).getStatus());
+        MockHttpServletResponse duplicateResponse = duplicate.get(5, TimeUnit.SECONDS);
+        assertEquals(201, duplicateResponse.getStatus());
+        assertEquals("true", duplicateResponse.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    public void claimWithoutStoredResponseIsReleasedTest() {
+        IdempotencyFilter first = filter(Duration.ofMinutes(5));
+        IdempotencyFilter second = filter(Duration.ofMinutes(5));
+        String key = UUID.randomUUID().toString();
+
+        assertEquals(503, send(first, key, (request, response) -> {
+            executions.incrementAndGet();
+            ((HttpServletResponse) response).setStatus(503);
+        }).getStatus());
+        assertEquals(201, send(second, key, this::created).getStatus());
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    public void timedOutClaimIsTakenOverTest() {
+        String key = UUID.randomUUID().toString();
+        // instance that claimed the key stopped before storing response
+        assertTrue(new JdbcIdempotencyStore(jdbcTemplate, Duration.ofHours(1), Duration.ZERO)
+                .claim("127.0.0.1 " + key, "POST /api/users"));
+
+        MockHttpServletResponse response = send(filter(Duration.ZERO), key, this::created);
+
+        assertEquals(201, response.getStatus());
+        assertEquals(1, executions.get());
+    }
+
+    private IdempotencyFilter filter(Duration claimTimeout) {
+        return new IdempotencyFilter(new JdbcIdempotencyStore(jdbcTemplate, Duration.ofHours(1), claimTimeout),
+                new SimpleMeterRegistry(), Duration.ofSeconds(5), new ClientIdentity(""));
+    }
+
+    private void created(ServletRequest request, ServletResponse response) throws IOException {
+        executions.incrementAndGet();
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        httpResponse.setStatus(201);
+        httpResponse.setContentType("application/json");
+        httpResponse.getWriter().write("{\"id\":1}");
+        httpResponse.getWriter().flush();
+    }
+
+    private static MockHttpServletResponse send(IdempotencyFilter filter, String key, FilterChain chain) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/users");
+        request.addHeader(IdempotencyFilter.HEADER, key);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, chain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return response;
+    }
+}
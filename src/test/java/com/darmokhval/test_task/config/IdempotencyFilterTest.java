@@ -0,0 +1,195 @@
+package com.darmokhval.test_task.config;
+
+import com.darmokhval.test_task.repository.InMemoryIdempotencyStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdempotencyFilterTest {
+    private final AtomicInteger executions = new AtomicInteger();
+    private IdempotencyFilter idempotencyFilter;
+
+    @BeforeEach
+    public void setUp() {
+        idempotencyFilter = new IdempotencyFilter(new InMemoryIdempotencyStore(100, Duration.ofMinutes(1)),
+                new SimpleMeterRegistry(), Duration.ofSeconds(5), new ClientIdentity("X-Client-Id"));
+    }
+
+    @Test
+    public void retryIsReplayedWithoutExecutionTest() throws Exception {
+        FilterChain chain = created(201);
+
+        MockHttpServletResponse first = send("POST", "/api/users", "key-1", chain);
+        MockHttpServletResponse retry = send("POST", "/api/users", "key-1", chain);
+
+        assertEquals(1, executions.get());
+        assertEquals(201, retry.getStatus());
+        assertEquals("/api/users/1", retry.getHeader(HttpHeaders.LOCATION));
+        assertEquals(first.getContentAsString(), retry.getContentAsString());
+        assertEquals("true", retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertNull(first.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    public void requestsWithoutKeyAreNotStoredTest() throws Exception {
+        FilterChain chain = created(201);
+
+        send("POST", "/api/users", null, chain);
+        send("POST", "/api/users", null, chain);
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    public void serverErrorIsExecutedAgainTest() throws Exception {
+        send("POST", "/api/users", "key-1", created(503));
+        MockHttpServletResponse retry = send("POST", "/api/users", "key-1", created(201));
+
+        assertEquals(2, executions.get());
+        assertEquals(201, retry.getStatus());
+    }
+
+    @Test
+    public void keyReusedForAnotherRequestIsRejectedTest() throws Exception {
+        send("POST", "/api/users", "key-1", created(201));
+        MockHttpServletResponse other = send("PUT", "/api/users/1", "key-1", created(200));
+
+        assertEquals(422, other.getStatus());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    public void keyReusedWithAnotherBodyIsRejectedTest() throws Exception {
+        send("POST", "/api/users", "key-1", "{\"firstName\":\"A\"}", created(201));
+        MockHttpServletResponse sameBody = send("POST", "/api/users", "key-1", "{\"firstName\":\"A\"}", created(201));
+        MockHttpServletResponse otherBody = send("POST", "/api/users", "key-1", "{\"firstName\":\"B\"}", created(201));
+
+        assertEquals(201, sameBody.getStatus());
+        assertEquals(422, otherBody.getStatus());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    public void bodyLeftUnreadByHandlerIsHashedTest() throws Exception {
+        FilterChain readsPart = (request, response) -> {
+            request.getInputStream().read();
+            created(201).doFilter(request, response);
+        };
+        send("POST", "/api/users", "key-1", "{\"firstName\":\"A\"}", readsPart);
+        MockHttpServletResponse otherBody = send("POST", "/api/users", "key-1", "{\"firstName\":\"B\"}", created(201));
+
+        assertEquals(422, otherBody.getStatus());
+    }
+
+    @Test
+    public void keysAreScopedByClientTest() throws Exception {
+        MockHttpServletRequest first = new MockHttpServletRequest("POST", "/api/users");
+        first.addHeader(IdempotencyFilter.HEADER, "key-1");
+        first.setRemoteAddr("10.0.0.1");
+        MockHttpServletRequest other = new MockHttpServletRequest("POST", "/api/users");
+        other.addHeader(IdempotencyFilter.HEADER, "key-1");
+        other.setRemoteAddr("10.0.0.2");
+        MockHttpServletResponse otherResponse = new MockHttpServletResponse();
+
+        idempotencyFilter.doFilter(first, new MockHttpServletResponse(), created(201));
+        idempotencyFilter.doFilter(other, otherResponse, created(201));
+
+        assertEquals(2, executions.get());
+        assertNull(otherResponse.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    public void retryOfClientFromAnotherAddressIsReplayedTest() throws Exception {
+        MockHttpServletRequest first = new MockHttpServletRequest("POST", "/api/users");
+        first.addHeader(IdempotencyFilter.HEADER, "key-1");
+        first.addHeader("X-Client-Id", "mobile-app");
+        first.setRemoteAddr("10.0.0.1");
+        MockHttpServletRequest retry = new MockHttpServletRequest("POST", "/api/users");
+        retry.addHeader(IdempotencyFilter.HEADER, "key-1");
+        retry.addHeader("X-Client-Id", "mobile-app");
+        retry.setRemoteAddr("10.0.0.2");
+        MockHttpServletResponse retryResponse = new MockHttpServletResponse();
+
+        idempotencyFilter.doFilter(first, new MockHttpServletResponse(), created(201));
+        idempotencyFilter.doFilter(retry, retryResponse, created(201));
+
+        assertEquals(1, executions.get());
+        assertEquals("true", retryResponse.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    public void concurrentDuplicateWaitsForFirstResponseTest() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain slowChain = (request, response) -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            created(201).doFilter(request, response);
+        };
+        CompletableFuture<MockHttpServletResponse> first = CompletableFuture.supplyAsync(() -> sendUnchecked(slowChain));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<MockHttpServletResponse> duplicate = CompletableFuture.supplyAsync(() -> sendUnchecked(slowChain));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertEquals(201, first.get(5, TimeUnit.SECONDS).getStatus());
+        MockHttpServletResponse duplicateResponse = duplicate.get(5, TimeUnit.SECONDS);
+        assertEquals(201, duplicateResponse.getStatus());
+        assertEquals("true", duplicateResponse.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(1, executions.get());
+    }
+
+    private FilterChain created(int status) {
+        return (request, response) -> {
+            executions.incrementAndGet();
+            HttpServletResponse httpResponse = (HttpServletResponse) response;
+            httpResponse.setStatus(status);
+            httpResponse.setHeader(HttpHeaders.LOCATION, "/api/users/1");
+            httpResponse.setContentType("application/json");
+            httpResponse.getWriter().write("{\"id\":1}");
+            httpResponse.getWriter().flush();
+        };
+    }
+
+    private MockHttpServletResponse sendUnchecked(FilterChain chain) {
+        try {
+            return send("POST", "/api/users", "key-1", chain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private MockHttpServletResponse send(String method, String uri, String key, FilterChain chain) throws Exception {
+        return send(method, uri, key, "", chain);
+    }
+
+    private MockHttpServletResponse send(String method, String uri, String key, String body, FilterChain chain)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        if (key != null) {
+            request.addHeader(IdempotencyFilter.HEADER, key);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        idempotencyFilter.doFilter(request, response, chain);
+        return response;
+    }
+}
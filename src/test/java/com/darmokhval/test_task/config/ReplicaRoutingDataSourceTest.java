@@ -0,0 +1,124 @@
+package com.darmokhval.test_task.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReplicaRoutingDataSourceTest {
+    @Mock
+    private DataSource primary;
+    @Mock
+    private DataSource replica0;
+    @Mock
+    private DataSource replica1;
+    @Mock
+    private Connection primaryConnection;
+    @Mock
+    private Connection replicaConnection;
+    private ReplicaRoutingDataSource dataSource;
+
+    @BeforeEach
+    public void setUp() {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0", replica0);
+        replicas.put("replica-1", replica1);
+        dataSource = new ReplicaRoutingDataSource(primary, replicas, Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        ReplicaRoutingDataSource.requirePrimary(false);
+    }
+
+    @Test
+    public void writeTransactionUsesPrimaryTest() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        assertSame(primaryConnection, dataSource.getConnection());
+        verifyNoInteractions(replica0, replica1);
+    }
+
+    @Test
+    public void readOnlyTransactionsAlternateReplicasTest() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        when(replica0.getConnection()).thenReturn(replicaConnection);
+        when(replica1.getConnection()).thenReturn(replicaConnection);
+
+        dataSource.getConnection();
+        dataSource.getConnection();
+
+        verify(replica0).getConnection();
+        verify(replica1).getConnection();
+        verifyNoInteractions(primary);
+    }
+
+    @Test
+    public void requiredPrimaryServesReadOnlyTransactionTest() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        ReplicaRoutingDataSource.requirePrimary(true);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        assertSame(primaryConnection, dataSource.getConnection());
+        verifyNoInteractions(replica0, replica1);
+    }
+
+    @Test
+    public void failingReplicaFallsBackAndLeavesRotationTest() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        when(replica0.getConnection()).thenThrow(new SQLException("Connection refused"));
+        when(replica1.getConnection()).thenReturn(replicaConnection);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        assertSame(primaryConnection, dataSource.getConnection());
+        assertFalse(dataSource.isHealthy("replica-0"));
+        assertSame(replicaConnection, dataSource.getConnection());
+        assertSame(replicaConnection, dataSource.getConnection());
+        verify(replica0).getConnection();
+    }
+
+    @Test
+    public void noHealthyReplicaUsesPrimaryTest() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        when(replica0.getConnection()).thenThrow(new SQLException("Connection refused"));
+        when(replica1.getConnection()).thenThrow(new SQLException("Connection refused"));
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        dataSource.checkReplicas();
+
+        assertSame(primaryConnection, dataSource.getConnection());
+        verify(replica0).getConnection();
+        verify(replica1).getConnection();
+    }
+
+    @Test
+    public void recoveredReplicaReturnsToRotationTest() throws SQLException {
+        when(replica0.getConnection())
+                .thenThrow(new SQLException("Connection refused"))
+                .thenReturn(replicaConnection);
+        when(replica1.getConnection()).thenReturn(replicaConnection);
+        when(replicaConnection.isValid(anyInt())).thenReturn(true);
+
+        dataSource.checkReplicas();
+        assertFalse(dataSource.isHealthy("replica-0"));
+        dataSource.checkReplicas();
+
+        assertTrue(dataSource.isHealthy("replica-0"));
+        assertTrue(dataSource.isHealthy("replica-1"));
+    }
+}
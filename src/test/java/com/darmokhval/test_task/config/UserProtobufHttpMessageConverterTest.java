@@ -0,0 +1,121 @@
+package com.darmokhval.test_task.config;
+
+import com.darmokhval.test_task.model.dto.UserDTO;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Type;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserProtobufHttpMessageConverterTest {
+    private static final Type USER_LIST = ResolvableType.forClassWithGenerics(List.class, UserDTO.class).getType();
+    private final UserProtobufHttpMessageConverter converter = new UserProtobufHttpMessageConverter();
+
+    @Test
+    public void userIsWrittenAndReadBackTest() throws Exception {
+        UserDTO user = user(1L, "john@example.com");
+        user.setBirthDate(LocalDate.of(1969, 12, 31));
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+
+        converter.write(user, UserDTO.class, UserProtobufHttpMessageConverter.PROTOBUF, output);
+        UserDTO read = (UserDTO) converter.read(UserDTO.class, null, new MockHttpInputMessage(output.getBodyAsBytes()));
+
+        assertEquals(1L, read.getId());
+        assertEquals("John", read.getFirstName());
+        assertEquals(LocalDate.of(1969, 12, 31), read.getBirthDate());
+        assertEquals("john@example.com", read.getEmail());
+        assertEquals(0L, read.getVersion());
+        assertNull(read.getAddress());
+    }
+
+    @Test
+    public void listIsWrittenAsRepeatedUsersTest() throws Exception {
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+
+        converter.write(List.of(user(1L, "a@example.com"), user(2L, "b@example.com")), USER_LIST,
+                UserProtobufHttpMessageConverter.PROTOBUF, output);
+
+        CodedInputStream input = CodedInputStream.newInstance(output.getBodyAsBytes());
+        List<String> emails = new ArrayList<>();
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            assertEquals(1, WireFormat.getTagFieldNumber(tag));
+            UserDTO read = (UserDTO) converter.read(UserDTO.class, null, new MockHttpInputMessage(input.readByteArray()));
+            emails.add(read.getEmail());
+        }
+        assertEquals(List.of("a@example.com", "b@example.com"), emails);
+    }
+
+    @Test
+    public void unknownFieldsAreSkippedTest() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+        output.writeString(99, "from newer schema");
+        output.writeString(5, "john@example.com");
+        output.flush();
+
+        UserDTO read = (UserDTO) converter.read(UserDTO.class, null, new MockHttpInputMessage(bytes.toByteArray()));
+
+        assertEquals("john@example.com", read.getEmail());
+    }
+
+    @Test
+    public void knownFieldOfUnexpectedWireTypeIsSkippedTest() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+        output.writeString(1, "id as string");
+        output.writeInt64(5, 42);
+        output.writeString(2, "John");
+        output.flush();
+
+        UserDTO read = (UserDTO) converter.read(UserDTO.class, null, new MockHttpInputMessage(bytes.toByteArray()));
+
+        assertNull(read.getId());
+        assertNull(read.getEmail());
+        assertEquals("John", read.getFirstName());
+    }
+
+    @Test
+    public void onlyUsersAndListsOfUsersAreSupportedTest() {
+        assertTrue(converter.canWrite(USER_LIST, ArrayList.class, UserProtobufHttpMessageConverter.PROTOBUF));
+        assertFalse(converter.canWrite(ResolvableType.forClassWithGenerics(List.class, String.class).getType(),
+                ArrayList.class, UserProtobufHttpMessageConverter.PROTOBUF));
+        assertFalse(converter.canRead(USER_LIST, null, UserProtobufHttpMessageConverter.PROTOBUF));
+        assertTrue(converter.canRead(UserDTO.class, null, UserProtobufHttpMessageConverter.PROTOBUF));
+    }
+
+    @Test
+    public void mediaTypeIsAdvertisedOnlyForPossibleUserListsTest() {
+        List<MediaType> protobuf = List.of(UserProtobufHttpMessageConverter.PROTOBUF);
+
+        assertEquals(protobuf, converter.getSupportedMediaTypes(UserDTO.class));
+        assertEquals(protobuf, converter.getSupportedMediaTypes(UserList.class));
+        // element type is checked by canWrite with declared type
+        assertEquals(protobuf, converter.getSupportedMediaTypes(ArrayList.class));
+        assertEquals(List.of(), converter.getSupportedMediaTypes(Names.class));
+        assertEquals(List.of(), converter.getSupportedMediaTypes(String.class));
+        assertTrue(converter.canWrite(UserList.class, UserList.class, UserProtobufHttpMessageConverter.PROTOBUF));
+        assertFalse(converter.canWrite(Names.class, Names.class, UserProtobufHttpMessageConverter.PROTOBUF));
+    }
+
+    private static UserDTO user(Long id, String email) {
+        return UserDTO.builder().id(id).firstName("John").lastName("Doe").email(email).version(0L).build();
+    }
+
+    private static class UserList extends ArrayList<UserDTO> {
+    }
+
+    private static class Names extends ArrayList<String> {
+    }
+}
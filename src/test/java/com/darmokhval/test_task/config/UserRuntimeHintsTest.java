@@ -0,0 +1,47 @@
+package com.darmokhval.test_task.config;
+
+import com.darmokhval.test_task.model.dto.UserDTO;
+import com.darmokhval.test_task.model.dto.UserPageDTO;
+import com.darmokhval.test_task.repository.TrigramFunctionContributor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserRuntimeHintsTest {
+    private RuntimeHints hints;
+
+    @BeforeEach
+    public void setUp() {
+        hints = new RuntimeHints();
+        new UserRuntimeHints().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    public void projectionConstructorIsReachableTest() throws NoSuchMethodException {
+        assertTrue(RuntimeHintsPredicates.reflection().onConstructor(UserDTO.class.getConstructor(
+                Long.class, String.class, String.class, LocalDate.class, String.class, String.class, String.class, Long.class))
+                .test(hints));
+    }
+
+    @Test
+    public void jsonTypesAreReachableTest() {
+        assertTrue(RuntimeHintsPredicates.reflection().onType(UserPageDTO.class)
+                .withMemberCategory(MemberCategory.DECLARED_FIELDS).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(UserDTO.class, "getBirthDate").test(hints));
+    }
+
+    @Test
+    public void resourcesAreIncludedTest() {
+        assertTrue(RuntimeHintsPredicates.resource()
+                .forResource("db/migration/common/V4__add_birth_month_day.sql").test(hints));
+        assertTrue(RuntimeHintsPredicates.resource()
+                .forResource("META-INF/services/org.hibernate.boot.model.FunctionContributor").test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onType(TrigramFunctionContributor.class).test(hints));
+    }
+}
@@ -0,0 +1,79 @@
+package com.darmokhval.test_task.config;
+
+import com.github.luben.zstd.ZstdInputStream;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ZstdCompressionFilterTest {
+    private final ZstdCompressionFilter filter = new ZstdCompressionFilter(
+            List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_NDJSON), 1024, 3);
+
+    @Test
+    public void largeResponseIsCompressedTest() throws Exception {
+        String body = "{\"firstName\":\"John\"}".repeat(500);
+
+        MockHttpServletResponse response = send("zstd, gzip", "application/json", body);
+
+        assertEquals("zstd", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertNull(response.getHeader(HttpHeaders.CONTENT_LENGTH));
+        assertTrue(response.getContentAsByteArray().length < body.length() / 10);
+        try (ZstdInputStream input = new ZstdInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertEquals(body, new String(input.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void smallResponseIsSentAsItIsTest() throws Exception {
+        MockHttpServletResponse response = send("zstd", "application/json", "{\"id\":1}");
+
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("8", response.getHeader(HttpHeaders.CONTENT_LENGTH));
+        assertEquals("{\"id\":1}", response.getContentAsString());
+    }
+
+    @Test
+    public void responseIsNotCompressedForOtherTypesOrClientsTest() throws Exception {
+        String body = "x".repeat(5000);
+
+        assertNull(send("zstd", "text/event-stream", body).getHeader(HttpHeaders.CONTENT_ENCODING));
+        MockHttpServletResponse gzipClient = send("gzip", "application/json", body);
+        assertNull(gzipClient.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(body, gzipClient.getContentAsString());
+    }
+
+    @Test
+    public void acceptEncodingIsParsedTest() {
+        assertTrue(ZstdCompressionFilter.acceptsZstd("gzip, zstd"));
+        assertTrue(ZstdCompressionFilter.acceptsZstd("ZSTD;q=0.5"));
+        assertFalse(ZstdCompressionFilter.acceptsZstd("zstd;q=0"));
+        assertFalse(ZstdCompressionFilter.acceptsZstd("gzip, br"));
+        assertFalse(ZstdCompressionFilter.acceptsZstd(null));
+    }
+
+    private MockHttpServletResponse send(String acceptEncoding, String contentType, String body) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/birth_date");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (servletRequest, servletResponse) -> {
+            HttpServletResponse httpResponse = (HttpServletResponse) servletResponse;
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            httpResponse.setContentType(contentType);
+            httpResponse.setContentLength(bytes.length);
+            httpResponse.getOutputStream().write(bytes);
+            httpResponse.getOutputStream().flush();
+        };
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
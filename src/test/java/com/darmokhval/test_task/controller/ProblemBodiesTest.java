@@ -0,0 +1,54 @@
+package com.darmokhval.test_task.controller;
+
+import com.darmokhval.test_task.service.UserError;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProblemBodiesTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testUserErrorProblem() throws IOException {
+        ResponseEntity<byte[]> response = ProblemBodies.problem(UserError.EMAIL_TAKEN.exception("a\"b@c.d"), "/api/users");
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals(MediaType.APPLICATION_PROBLEM_JSON, response.getHeaders().getContentType());
+        JsonNode body = objectMapper.readTree(response.getBody());
+        assertEquals("/problems/email-taken", body.get("type").asText());
+        assertEquals("Email already taken", body.get("title").asText());
+        assertEquals(400, body.get("status").asInt());
+        assertEquals("Email a\"b@c.d already taken!", body.get("detail").asText());
+        assertEquals("/api/users", body.get("instance").asText());
+    }
+
+    @Test
+    public void testStatusProblem() throws IOException {
+        JsonNode body = objectMapper.readTree(ProblemBodies.body(HttpStatus.CONFLICT, "Request conflicts", "/api/users/1"));
+
+        assertEquals("about:blank", body.get("type").asText());
+        assertEquals("Conflict", body.get("title").asText());
+        assertEquals(409, body.get("status").asInt());
+        assertEquals("Request conflicts", body.get("detail").asText());
+    }
+
+    @Test
+    public void testProblemListsErrors() throws IOException {
+        JsonNode body = objectMapper.readTree(ProblemBodies.problem(HttpStatus.BAD_REQUEST,
+                List.of("Email is required", "Birth date must be in the past"), "/api/users").getBody());
+
+        assertEquals(2, body.get("errors").size());
+        assertEquals("Birth date must be in the past", body.get("errors").get(1).asText());
+        assertEquals("/api/users", body.get("instance").asText());
+        assertEquals(0, objectMapper.readTree(ProblemBodies.problem(HttpStatus.BAD_REQUEST, List.of(), "/")
+                .getBody()).get("errors").size());
+    }
+}
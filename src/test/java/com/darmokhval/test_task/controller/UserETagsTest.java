@@ -0,0 +1,26 @@
+package com.darmokhval.test_task.controller;
+
+import com.darmokhval.test_task.service.UserError;
+import com.darmokhval.test_task.service.UserRequestException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserETagsTest {
+
+    @Test
+    public void ifMatchIsParsedTest() {
+        assertEquals(3L, UserETags.parseIfMatch(" \"3\" "));
+        assertNull(UserETags.parseIfMatch("*"));
+    }
+
+    @Test
+    public void malformedIfMatchIsStacklessUserErrorTest() {
+        UserRequestException exception = assertThrows(UserRequestException.class,
+                () -> UserETags.parseIfMatch("W/\"abc\""));
+
+        assertEquals(UserError.INVALID_IF_MATCH, exception.getError());
+        assertEquals(0, exception.getStackTrace().length);
+        assertEquals("Invalid If-Match header W/\"abc\", ETag of previous response is expected!", exception.getMessage());
+    }
+}
@@ -0,0 +1,67 @@
+package com.darmokhval.test_task.repository;
+
+import com.darmokhval.test_task.EmbeddedDatabaseTest;
+import com.darmokhval.test_task.model.dto.UserDTO;
+import com.darmokhval.test_task.model.entity.User;
+import io.r2dbc.spi.ConnectionFactories;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Statements of reactive repository bound by real R2DBC driver, against schema migrated by servlet deployment.
+ */
+public class ReactiveUserRepositoryDatabaseTest extends EmbeddedDatabaseTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private final ReactiveUserRepository reactiveUserRepository = new ReactiveUserRepository(
+            DatabaseClient.create(ConnectionFactories.get(r2dbcUrl("postgres"))), 500, true);
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void userWithoutAddressAndPhoneNumberIsInsertedTest() {
+        UserDTO inserted = reactiveUserRepository.insert(User.builder()
+                .firstName("First")
+                .lastName("Last")
+                .birthDate(LocalDate.of(1990, 1, 1))
+                .email("no-address@reactive.test")
+                .build()).block(TIMEOUT);
+
+        assertNotNull(inserted);
+        assertNotNull(inserted.getId());
+        assertNull(inserted.getAddress());
+        assertNull(inserted.getPhoneNumber());
+        assertEquals(0L, inserted.getVersion());
+        // relay of running application may have moved the event to log already
+        assertEquals(1, jdbcTemplate.queryForObject("""
+                SELECT (SELECT count(*) FROM user_change_outbox WHERE user_id = ?)
+                     + (SELECT count(*) FROM user_change_log WHERE user_id = ?)""",
+                Integer.class, inserted.getId(), inserted.getId()));
+    }
+
+    @Test
+    public void patchWithoutFieldsKeepsThemTest() {
+        UserDTO inserted = reactiveUserRepository.insert(User.builder()
+                .firstName("First")
+                .lastName("Last")
+                .birthDate(LocalDate.of(1990, 1, 1))
+                .email("patched@reactive.test")
+                .address("anywhere")
+                .build()).block(TIMEOUT);
+
+        UserDTO patched = reactiveUserRepository.patch(inserted.getId(), "Second", null, null, null, null, null, null)
+                .block(TIMEOUT);
+
+        assertEquals("Second", patched.getFirstName());
+        assertEquals("anywhere", patched.getAddress());
+        assertNull(patched.getPhoneNumber());
+        assertEquals(1L, patched.getVersion());
+    }
+}
@@ -0,0 +1,46 @@
+package com.darmokhval.test_task.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AgeCutoffTest {
+
+    @Test
+    public void testCutoffIsRequiredAgeBeforeToday() {
+        assertEquals(LocalDate.of(2008, 10, 18), AgeCutoff.cutoff(18, clock("2026-10-18T10:00:00Z")));
+    }
+
+    @Test
+    public void testCutoffMovesAtMidnight() {
+        assertEquals(LocalDate.of(2008, 10, 18), AgeCutoff.cutoff(18, clock("2026-10-18T23:59:59Z")));
+        assertEquals(LocalDate.of(2008, 10, 19), AgeCutoff.cutoff(18, clock("2026-10-19T00:00:00Z")));
+        assertEquals(LocalDate.of(2008, 10, 18), AgeCutoff.cutoff(18, clock("2026-10-18T00:00:00Z")));
+    }
+
+    @Test
+    public void testCutoffFollowsRequiredAge() {
+        assertEquals(LocalDate.of(2008, 10, 18), AgeCutoff.cutoff(18, clock("2026-10-18T10:00:00Z")));
+        assertEquals(LocalDate.of(2005, 10, 18), AgeCutoff.cutoff(21, clock("2026-10-18T10:00:00Z")));
+    }
+
+    /**
+     * Same as Period.between(birthDate, today).getYears(): user born on February 29 turns 18 on March 1.
+     */
+    @Test
+    public void testLeapDayBirthday() {
+        LocalDate cutoff = AgeCutoff.cutoff(18, clock("2026-02-28T10:00:00Z"));
+
+        assertTrue(LocalDate.of(2008, 2, 29).isAfter(cutoff));
+        assertFalse(LocalDate.of(2008, 2, 29).isAfter(AgeCutoff.cutoff(18, clock("2026-03-01T10:00:00Z"))));
+    }
+
+    private static Clock clock(String instant) {
+        return Clock.fixed(Instant.parse(instant), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,45 @@
+package com.darmokhval.test_task.service;
+
+import com.darmokhval.test_task.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class EmailFilterTest {
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void disabledFilterAlwaysRequiresLookupTest() {
+        EmailFilter emailFilter = new EmailFilter(userRepository, transactionManager, false, 1000, 0.01);
+
+        emailFilter.warmUp();
+
+        assertTrue(emailFilter.mightBeUsed("new@example.com"));
+        verify(userRepository, never()).streamAllEmails();
+    }
+
+    @Test
+    public void warmedUpFilterSkipsUnseenEmailsTest() {
+        EmailFilter emailFilter = new EmailFilter(userRepository, transactionManager, true, 1000, 0.001);
+        when(userRepository.streamAllEmails()).thenReturn(Stream.of("john@example.com"));
+
+        assertTrue(emailFilter.mightBeUsed("new@example.com"), "Filter must not answer before warm-up");
+        emailFilter.warmUp();
+        emailFilter.put("Jane@Example.com");
+
+        assertTrue(emailFilter.mightBeUsed("JOHN@example.com"));
+        assertTrue(emailFilter.mightBeUsed("jane@example.com"));
+        assertFalse(emailFilter.mightBeUsed("new@example.com"));
+    }
+}
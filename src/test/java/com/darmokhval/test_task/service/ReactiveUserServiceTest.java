@@ -0,0 +1,124 @@
+package com.darmokhval.test_task.service;
+
+import com.darmokhval.test_task.mapper.UserMapper;
+import com.darmokhval.test_task.model.dto.PartialUserDTO;
+import com.darmokhval.test_task.model.dto.UserDTO;
+import com.darmokhval.test_task.model.entity.User;
+import com.darmokhval.test_task.repository.ReactiveUserRepository;
+import com.darmokhval.test_task.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReactiveUserServiceTest {
+    @Mock
+    private ReactiveUserRepository userRepository;
+    private ReactiveUserService userService;
+    private final static int REQUIRED_AGE = 18;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        userService = new ReactiveUserService(userRepository, new UserMapper());
+        Field field = ReactiveUserService.class.getDeclaredField("requiredAge");
+        field.setAccessible(true);
+        field.setInt(userService, REQUIRED_AGE);
+        Field pageSizeField = ReactiveUserService.class.getDeclaredField("maxPageSize");
+        pageSizeField.setAccessible(true);
+        pageSizeField.setInt(userService, 1000);
+    }
+
+    @Test
+    public void createUserTest() {
+        UserDTO userDTO = user("new@test.com");
+        when(userRepository.findIdByEmail("new@test.com")).thenReturn(Mono.empty());
+        when(userRepository.insert(any(User.class))).thenReturn(Mono.just(UserDTO.builder().id(1L).email("new@test.com").build()));
+
+        StepVerifier.create(userService.createUser(userDTO))
+                .expectNextMatches(created -> created.getId() == 1L)
+                .verifyComplete();
+    }
+
+    @Test
+    public void createUserEmailAlreadyTakenTest() {
+        when(userRepository.findIdByEmail("taken@test.com")).thenReturn(Mono.just(2L));
+
+        StepVerifier.create(userService.createUser(user("taken@test.com")))
+                .expectErrorMatches(e -> e instanceof IllegalArgumentException
+                        && e.getMessage().equals("Email taken@test.com already taken!"))
+                .verify();
+        verify(userRepository, never()).insert(any(User.class));
+    }
+
+    @Test
+    public void createUserThrowExceptionTooYoungTest() {
+        UserDTO userDTO = user("young@test.com");
+        userDTO.setBirthDate(LocalDate.now().minusYears(REQUIRED_AGE - 2));
+
+        StepVerifier.create(userService.createUser(userDTO))
+                .expectErrorMessage(String.format("User must be older than %s to register!", REQUIRED_AGE))
+                .verify();
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    public void updateUserEmailRacedTest() {
+        UserDTO userDTO = user("raced@test.com");
+        when(userRepository.update(eq(1L), eq(userDTO), isNull())).thenReturn(Mono.error(new DataIntegrityViolationException(
+                "duplicate key value violates unique constraint \"" + UserRepository.EMAIL_UNIQUE_INDEX + "\"")));
+
+        StepVerifier.create(userService.updateUser(userDTO, 1L))
+                .expectErrorMessage("Email raced@test.com already taken!")
+                .verify();
+    }
+
+    @Test
+    public void patchUserStaleVersionTest() {
+        PartialUserDTO patchDTO = PartialUserDTO.builder().firstName("Alice").version(3L).build();
+        when(userRepository.patch(eq(1L), eq("Alice"), isNull(), isNull(), isNull(), isNull(), isNull(), eq(3L)))
+                .thenReturn(Mono.empty());
+        when(userRepository.existsById(1L)).thenReturn(Mono.just(true));
+
+        StepVerifier.create(userService.patchUser(patchDTO, 1L))
+                .expectError(OptimisticLockingFailureException.class)
+                .verify();
+    }
+
+    @Test
+    public void deleteUserInvalidIdTest() {
+        when(userRepository.deleteById(99999L, null)).thenReturn(Mono.just(0L));
+
+        StepVerifier.create(userService.deleteUser(99999L, null))
+                .expectErrorMessage("User with ID 99999 wasn't found")
+                .verify();
+    }
+
+    @Test
+    public void streamUsersByBirthDateRangeInvalidRangeTest() {
+        StepVerifier.create(userService.streamUsersByBirthDateRange(LocalDate.of(2010, 1, 1), LocalDate.of(2000, 1, 1)))
+                .expectErrorMessage("'From' date must be earlier than 'To' date!")
+                .verify();
+        verifyNoInteractions(userRepository);
+    }
+
+    private static UserDTO user(String email) {
+        return UserDTO.builder()
+                .firstName("John")
+                .lastName("Doe")
+                .birthDate(LocalDate.of(1990, 1, 1))
+                .email(email)
+                .build();
+    }
+}
@@ -0,0 +1,69 @@
+package com.darmokhval.test_task.service;
+
+import com.darmokhval.test_task.EmbeddedDatabaseTest;
+import com.darmokhval.test_task.model.dto.UserBatchResultDTO;
+import com.darmokhval.test_task.model.dto.UserDTO;
+import com.darmokhval.test_task.model.entity.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Row-by-row retry after failed batched insert, through real repository and database constraints.
+ */
+public class UserBatchServiceDatabaseTest extends EmbeddedDatabaseTest {
+    @Autowired
+    private UserBatchService userBatchService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    // filter missing an email stands in for concurrent writer taking it after lookup
+    @MockBean
+    private EmailFilter emailFilter;
+
+    @Test
+    public void rowsAfterDuplicateEmailAreSavedByRetryTest() {
+        when(emailFilter.mightBeUsed(anyString())).thenReturn(false);
+        jdbcTemplate.update("""
+                INSERT INTO "user" (id, first_name, last_name, birth_date, email, address, phone_number, version)
+                VALUES (nextval('user_seq'), 'Taken', 'User', DATE '1990-01-01', 'retry-taken@batch.test', 'a', 'p', 0)""");
+        Map<Integer, User> saved = new ConcurrentHashMap<>();
+
+        UserBatchResultDTO result = userBatchService.createChunk(List.of(
+                user("retry-first@batch.test"), user("retry-taken@batch.test"), user("retry-last@batch.test")),
+                saved::put);
+
+        assertEquals(2, result.getCreated());
+        assertEquals(1, result.getErrors().size());
+        assertEquals(1, result.getErrors().get(0).getIndex());
+        assertEquals(Map.of(0, "retry-first@batch.test", 2, "retry-last@batch.test"),
+                Map.of(0, saved.get(0).getEmail(), 2, saved.get(2).getEmail()));
+        for (User user : saved.values()) {
+            assertNotNull(user.getId());
+            assertEquals(user.getEmail(), jdbcTemplate.queryForObject(
+                    "SELECT email FROM \"user\" WHERE id = ?", String.class, user.getId()));
+            assertEquals(1, jdbcTemplate.queryForObject("""
+                    SELECT (SELECT count(*) FROM user_change_outbox WHERE user_id = ?)
+                         + (SELECT count(*) FROM user_change_log WHERE user_id = ?)""",
+                    Integer.class, user.getId(), user.getId()));
+        }
+    }
+
+    private static UserDTO user(String email) {
+        return UserDTO.builder()
+                .firstName("First")
+                .lastName("Last")
+                .birthDate(LocalDate.of(1990, 1, 1))
+                .email(email)
+                .build();
+    }
+}
@@ -0,0 +1,117 @@
+package com.darmokhval.test_task.service;
+
+import com.darmokhval.test_task.mapper.UserMapper;
+import com.darmokhval.test_task.model.dto.UserBatchErrorDTO;
+import com.darmokhval.test_task.model.dto.UserBatchResultDTO;
+import com.darmokhval.test_task.model.dto.UserDTO;
+import com.darmokhval.test_task.model.entity.User;
+import com.darmokhval.test_task.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UserBatchServiceTest {
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private UserService userService;
+    @Mock
+    private EmailFilter emailFilter;
+    @Mock
+    private EntityManager entityManager;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private UserChangeService userChangeService;
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+    private UserBatchService userBatchService;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        userBatchService = new UserBatchService(userRepository, new UserMapper(), userService, emailFilter, validator,
+                entityManager, transactionTemplate, userChangeService);
+        setField("requiredAge", 18);
+        setField("chunkSize", 2);
+        lenient().when(userService.isValidAge(any(LocalDate.class))).thenReturn(true);
+        lenient().when(emailFilter.mightBeUsed(anyString())).thenReturn(true);
+        lenient().doAnswer(invocation -> {
+            Consumer<TransactionStatus> action = invocation.getArgument(0);
+            action.accept(mock(TransactionStatus.class));
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    public void createUsersReportsInvalidAndTakenEmailsTest() {
+        when(userRepository.findExistingEmails(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> emails = invocation.getArgument(0);
+            return emails.contains("taken@example.com") ? Set.of("taken@example.com") : Set.of();
+        });
+
+        UserBatchResultDTO result = userBatchService.createUsers(List.of(
+                user("first@example.com"),
+                user("first@example.com"),
+                user("taken@example.com"),
+                UserDTO.builder().lastName("Doe").birthDate(LocalDate.of(1990, 1, 1)).email("noname@example.com").build(),
+                user("second@example.com")
+        ).iterator());
+
+        assertEquals(5, result.getReceived());
+        assertEquals(2, result.getCreated());
+        assertEquals(List.of(1, 2, 3), result.getErrors().stream().map(UserBatchErrorDTO::getIndex).sorted().toList());
+        verify(userRepository, times(3)).findExistingEmails(anyCollection());
+        verify(userRepository, times(2)).saveAll(anyCollection());
+    }
+
+    @Test
+    public void createUsersRetriesRowByRowOnConstraintViolationTest() {
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(Set.of());
+        doThrow(DataIntegrityViolationException.class).when(userRepository).saveAll(argThat((Collection<User> users) ->
+                users.stream().anyMatch(user -> "raced@example.com".equals(user.getEmail()))));
+
+        UserBatchResultDTO result = userBatchService.createUsers(List.of(
+                user("ok@example.com"),
+                user("raced@example.com")
+        ).iterator());
+
+        assertEquals(1, result.getCreated());
+        assertEquals(1, result.getErrors().size());
+        assertEquals(1, result.getErrors().get(0).getIndex());
+        assertEquals("Email raced@example.com already taken!", result.getErrors().get(0).getMessages().get(0));
+    }
+
+    private static UserDTO user(String email) {
+        return UserDTO.builder()
+                .firstName("John")
+                .lastName("Doe")
+                .birthDate(LocalDate.of(1990, 1, 1))
+                .email(email)
+                .build();
+    }
+
+    private void setField(String name, int value) throws Exception {
+        Field field = UserBatchService.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.setInt(userBatchService, value);
+    }
+}
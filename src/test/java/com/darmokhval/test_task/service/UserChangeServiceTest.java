@@ -0,0 +1,199 @@
+package com.darmokhval.test_task.service;
+
+import com.darmokhval.test_task.model.dto.UserChangeDTO;
+import com.darmokhval.test_task.model.dto.UserChangeDTO.Type;
+import com.darmokhval.test_task.model.dto.UserDTO;
+import com.darmokhval.test_task.repository.UserChangeRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UserChangeServiceTest {
+    @Mock
+    private UserChangeRepository userChangeRepository;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private UserChangeService userChangeService;
+
+    @BeforeEach
+    public void setUp() {
+        userChangeService = service(true);
+    }
+
+    private UserChangeService service(boolean enabled) {
+        return new UserChangeService(userChangeRepository, transactionTemplate,
+                new ObjectMapper().registerModule(new JavaTimeModule()), meterRegistry, enabled, 2,
+                Duration.ofSeconds(1), Duration.ofMillis(10), Duration.ofMillis(20), Duration.ofMillis(100),
+                Duration.ofDays(7), 2);
+    }
+
+    @Test
+    public void recordChangeStoresUserAsJsonTest() {
+        UserDTO userDTO = UserDTO.builder().id(5L).firstName("John").birthDate(LocalDate.of(2000, 1, 2)).build();
+
+        userChangeService.recordChange(Type.UPDATED, 5L, userDTO);
+        userChangeService.recordChange(Type.DELETED, 6L, null);
+
+        verify(userChangeRepository).insert(eq(Type.UPDATED), eq(5L), contains("\"firstName\":\"John\""));
+        verify(userChangeRepository).insert(Type.DELETED, 6L, null);
+    }
+
+    @Test
+    public void nothingIsRecordedWhenDisabledTest() {
+        UserChangeService disabled = service(false);
+
+        disabled.recordChange(Type.CREATED, 1L, UserDTO.builder().id(1L).build());
+        disabled.recordCreated(List.of(UserDTO.builder().id(1L).build()));
+
+        verifyNoInteractions(userChangeRepository);
+        assertThrows(IllegalArgumentException.class, () -> disabled.validateOffset(0));
+    }
+
+    @Test
+    public void validateOffsetRejectsOffsetOlderThanRetainedLogTest() {
+        when(userChangeRepository.findFirstOffset()).thenReturn(10L);
+
+        ChangeOffsetExpiredException exception = assertThrows(ChangeOffsetExpiredException.class,
+                () -> userChangeService.validateOffset(8));
+        assertEquals(10L, exception.getFirstOffset());
+        assertDoesNotThrow(() -> userChangeService.validateOffset(9));
+        assertDoesNotThrow(() -> userChangeService.validateOffset(0));
+        assertDoesNotThrow(() -> userChangeService.validateOffset(10));
+        assertThrows(IllegalArgumentException.class, () -> userChangeService.validateOffset(-1));
+    }
+
+    @Test
+    public void streamChangesWritesEventsInOrderUntilDurationPassesTest() throws Exception {
+        when(userChangeRepository.findAfter(anyLong(), eq(2))).thenReturn(List.of());
+        when(userChangeRepository.findAfter(0L, 2)).thenReturn(List.of(change(1L, "{\"id\":1}"), change(2L, "{\"id\":2}")));
+        when(userChangeRepository.findAfter(2L, 2)).thenReturn(List.of(change(3L, null)));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        userChangeService.streamChanges(0, UserChangeService.Format.SSE, output);
+
+        String stream = output.toString(StandardCharsets.UTF_8);
+        assertTrue(stream.startsWith("id: 1\nevent: UPDATED\ndata: {\"offset\":1,\"type\":\"UPDATED\",\"userId\":7,\"user\":{\"id\":1}"),
+                stream);
+        assertTrue(stream.indexOf("id: 2\n") < stream.indexOf("id: 3\n"));
+        assertTrue(stream.contains("\"user\":null"));
+        // idle stream keeps reading after the last offset and sends heartbeats
+        verify(userChangeRepository, atLeastOnce()).findAfter(3L, 2);
+        assertTrue(stream.contains(": heartbeat\n\n"));
+    }
+
+    @Test
+    public void subscribersOverPoolSizeAreRejectedTest() throws Exception {
+        CountDownLatch streaming = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userChangeRepository.findAfter(anyLong(), eq(2))).thenAnswer(invocation -> {
+            streaming.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+
+        CompletableFuture<Throwable> first = startStream();
+        CompletableFuture<Throwable> second = startStream();
+        // both streams run at once, neither waits in a queue
+        assertTrue(streaming.await(5, TimeUnit.SECONDS));
+        assertThrows(RejectedExecutionException.class, this::startStream);
+
+        release.countDown();
+        assertNull(first.get(5, TimeUnit.SECONDS));
+        assertNull(second.get(5, TimeUnit.SECONDS));
+        assertNull(startStream().get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void cancelledStreamFreesItsThreadTest() throws Exception {
+        CountDownLatch streaming = new CountDownLatch(1);
+        when(userChangeRepository.findAfter(anyLong(), eq(2))).thenAnswer(invocation -> {
+            streaming.countDown();
+            return List.of();
+        });
+        UserChangeService longStreams = new UserChangeService(userChangeRepository, transactionTemplate,
+                new ObjectMapper(), meterRegistry, true, 2, Duration.ofSeconds(1), Duration.ofMillis(10),
+                Duration.ofMillis(20), Duration.ofMinutes(10), Duration.ofDays(7), 1);
+        CompletableFuture<Throwable> ended = new CompletableFuture<>();
+        Future<?> stream = longStreams.startStream(0, UserChangeService.Format.SSE, new ByteArrayOutputStream(),
+                ended::complete);
+        assertTrue(streaming.await(5, TimeUnit.SECONDS));
+
+        stream.cancel(true);
+
+        assertInstanceOf(CancellationException.class, ended.get(5, TimeUnit.SECONDS));
+        // interrupted thread returns to pool shortly after
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            try {
+                longStreams.startStream(0, UserChangeService.Format.SSE, new ByteArrayOutputStream(), error -> {})
+                        .cancel(true);
+                break;
+            } catch (RejectedExecutionException e) {
+                assertTrue(System.nanoTime() < deadline, "stream thread wasn't freed");
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    private CompletableFuture<Throwable> startStream() {
+        return startStream(userChangeService);
+    }
+
+    /**
+     * Start NDJSON stream, returned future gets error that ended it or null.
+     */
+    private static CompletableFuture<Throwable> startStream(UserChangeService service) {
+        CompletableFuture<Throwable> ended = new CompletableFuture<>();
+        service.startStream(0, UserChangeService.Format.NDJSON, new ByteArrayOutputStream(), ended::complete);
+        return ended;
+    }
+
+    @Test
+    public void relayCountsPublishedEventsTest() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<Integer>>getArgument(0).doInTransaction(null));
+        when(userChangeRepository.tryLockRelay()).thenReturn(true, false);
+        when(userChangeRepository.publish(2)).thenReturn(2);
+
+        assertEquals(2, userChangeService.relayNextBatch());
+        // another instance holds relay lock
+        assertEquals(0, userChangeService.relayNextBatch());
+        assertEquals(2, meterRegistry.get("user.changes.published").counter().count());
+    }
+
+    private static UserChangeDTO change(Long offset, String user) {
+        return UserChangeDTO.builder()
+                .offset(offset)
+                .type(UserChangeDTO.Type.UPDATED)
+                .userId(7L)
+                .user(user)
+                .createdAt(Instant.parse("2024-01-01T00:00:00Z"))
+                .build();
+    }
+}
@@ -0,0 +1,41 @@
+package com.darmokhval.test_task.service;
+
+import com.darmokhval.test_task.repository.UserSpecification;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserErrorTest {
+
+    @Test
+    public void testDetailFillsPlaceholdersInOrder() {
+        assertEquals("User with ID 42 wasn't found", UserError.USER_NOT_FOUND.detail(42L));
+        assertEquals("Search is too broad, use longer text or birth date range!", UserError.SEARCH_TOO_BROAD.detail());
+        assertEquals(String.format("Email %s already taken!", "a%s@b.c"), UserError.EMAIL_TAKEN.detail("a%s@b.c"));
+    }
+
+    @Test
+    public void testExceptionHasNoStackTrace() {
+        UserRequestException exception = UserError.UNDERAGE_REGISTRATION.exception(18);
+
+        assertEquals(0, exception.getStackTrace().length);
+        assertEquals("User must be older than 18 to register!", exception.getMessage());
+        assertEquals(UserError.UNDERAGE_REGISTRATION, exception.getError());
+    }
+
+    @Test
+    public void testUnsupportedSearchModeIsStackless() {
+        UserRequestException exception = assertThrows(UserRequestException.class,
+                () -> UserSpecification.SearchMode.of("exact"));
+
+        assertEquals(UserError.UNSUPPORTED_SEARCH_MODE, exception.getError());
+        assertEquals(0, exception.getStackTrace().length);
+        assertEquals("Unsupported search mode exact, use prefix or fuzzy!", exception.getMessage());
+        assertEquals(UserSpecification.SearchMode.FUZZY, UserSpecification.SearchMode.of("Fuzzy"));
+    }
+
+    @Test
+    public void testTypeIsDerivedFromName() {
+        assertEquals("/problems/underage-registration", UserError.UNDERAGE_REGISTRATION.getType());
+    }
+}
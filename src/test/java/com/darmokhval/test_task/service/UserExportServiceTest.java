@@ -0,0 +1,50 @@
+package com.darmokhval.test_task.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UserExportServiceTest {
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private UserService userService;
+    @InjectMocks
+    private UserExportService userExportService;
+
+    @Test
+    public void buildCopySqlCsvWithRangeTest() {
+        String sql = userExportService.buildCopySql(LocalDate.of(2000, 1, 1), LocalDate.of(2010, 12, 31),
+                UserExportService.Format.CSV);
+
+        assertEquals("COPY (SELECT id, first_name, last_name, birth_date, email, address, phone_number FROM \"user\"" +
+                " WHERE birth_date BETWEEN DATE '2000-01-01' AND DATE '2010-12-31') TO STDOUT WITH (FORMAT csv, HEADER)", sql);
+    }
+
+    @Test
+    public void buildCopySqlNdjsonWholeTableTest() {
+        String sql = userExportService.buildCopySql(null, null, UserExportService.Format.NDJSON);
+
+        assertTrue(sql.startsWith("COPY (SELECT row_to_json(u) FROM (SELECT id, first_name AS \"firstName\""));
+        assertFalse(sql.contains("WHERE"));
+    }
+
+    @Test
+    public void unsupportedFormatTest() {
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> UserExportService.Format.of("xml")
+        );
+
+        assertEquals("Unsupported export format xml, use csv or ndjson!", exception.getMessage());
+        assertEquals(UserExportService.Format.NDJSON, UserExportService.Format.of("NDJSON"));
+    }
+}
@@ -0,0 +1,227 @@
+package com.darmokhval.test_task.service;
+
+import com.darmokhval.test_task.model.dto.UserDTO;
+import com.darmokhval.test_task.repository.UserRepository;
+import com.darmokhval.test_task.service.UserRangeStreamService.DateRange;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UserRangeStreamServiceTest {
+    private static final LocalDate FROM = LocalDate.of(1950, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2000, 1, 1);
+    @Mock
+    private UserService userService;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private EntityManager entityManager;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    private UserRangeStreamService userRangeStreamService;
+
+    @BeforeEach
+    public void setUp() {
+        userRangeStreamService = new UserRangeStreamService(userService, userRepository, entityManager,
+                transactionManager, true, 1000, 2, 2, 2, 10, 2, Duration.ofMinutes(10), 500);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        userRangeStreamService.destroy();
+    }
+
+    @Test
+    public void testSplitCutsRangeAtBounds() {
+        List<LocalDate> bounds = List.of(date(1960), date(1970), date(1980));
+
+        List<DateRange> ranges = UserRangeStreamService.split(FROM, TO, bounds, 4);
+
+        assertEquals(List.of(
+                new DateRange(FROM, date(1960).minusDays(1)),
+                new DateRange(date(1960), date(1970).minusDays(1)),
+                new DateRange(date(1970), date(1980).minusDays(1)),
+                new DateRange(date(1980), TO)), ranges);
+    }
+
+    @Test
+    public void testSplitSpreadsBoundsOverFewerParts() {
+        List<LocalDate> bounds = List.of(date(1955), date(1960), date(1965), date(1970), date(1975), date(1980), date(1985));
+
+        List<DateRange> ranges = UserRangeStreamService.split(FROM, TO, bounds, 4);
+
+        assertEquals(List.of(
+                new DateRange(FROM, date(1960).minusDays(1)),
+                new DateRange(date(1960), date(1970).minusDays(1)),
+                new DateRange(date(1970), date(1980).minusDays(1)),
+                new DateRange(date(1980), TO)), ranges);
+    }
+
+    @Test
+    public void testSplitWithoutBoundsKeepsRange() {
+        assertEquals(List.of(new DateRange(FROM, TO)), UserRangeStreamService.split(FROM, TO, List.of(), 4));
+    }
+
+    @Test
+    public void testNarrowRangeIsReadByOneQuery() {
+        when(userRepository.findBirthDateHistogram()).thenReturn(histogram());
+        when(userRepository.estimateUserCount()).thenReturn(1000L);
+        List<UserDTO> users = new ArrayList<>();
+
+        userRangeStreamService.streamUsersByBirthDateRange(date(1975), date(1976), users::add);
+
+        verify(userService).streamUsersByBirthDateRange(eq(date(1975)), eq(date(1976)), any());
+        verify(userRepository, never()).streamUserDTOs(any(), any(), anyInt());
+    }
+
+    @Test
+    public void testWideRangeIsStreamedInOrderFromSubRanges() {
+        when(userRepository.findBirthDateHistogram()).thenReturn(histogram());
+        when(userRepository.estimateUserCount()).thenReturn(1000L);
+        Query query = mock(Query.class);
+        when(entityManager.createNativeQuery(anyString())).thenReturn(query);
+        when(query.getSingleResult()).thenReturn("00000003-0000001B-1");
+        // every sub-range has three users, more than buffer holds
+        when(userRepository.streamUserDTOs(any(), any(), eq(500))).thenAnswer(invocation -> Stream.of(1, 2, 3)
+                .map(i -> UserDTO.builder().id((long) i).build()));
+        List<UserDTO> users = new ArrayList<>();
+
+        userRangeStreamService.streamUsersByBirthDateRange(FROM, TO, users::add);
+
+        verify(userRepository, times(4)).streamUserDTOs(any(), any(), eq(500));
+        // two connections per request: calling thread reads every other sub-range while one reader reads ahead
+        verify(entityManager, times(2)).createNativeQuery("SET TRANSACTION SNAPSHOT '00000003-0000001B-1'");
+        assertEquals(12, users.size());
+        verify(userService, never()).streamUsersByBirthDateRange(any(), any(), any());
+    }
+
+    @Test
+    public void testWideRangeIsReadByOneQueryWithoutFreeReaderConnection() {
+        UserRangeStreamService noReaders = new UserRangeStreamService(userService, userRepository, entityManager,
+                transactionManager, true, 1000, 2, 2, 0, 10, 2, Duration.ofMinutes(10), 500);
+        when(userRepository.findBirthDateHistogram()).thenReturn(histogram());
+        when(userRepository.estimateUserCount()).thenReturn(1000L);
+
+        try {
+            noReaders.streamUsersByBirthDateRange(FROM, TO, user -> {
+            });
+        } finally {
+            noReaders.destroy();
+        }
+
+        verify(userService).streamUsersByBirthDateRange(eq(FROM), eq(TO), any());
+        verify(userRepository, never()).streamUserDTOs(any(), any(), anyInt());
+    }
+
+    @Test
+    public void testReaderConnectionsAreBoundedAcrossRequests() throws Exception {
+        UserRangeStreamService sharedReaders = new UserRangeStreamService(userService, userRepository, entityManager,
+                transactionManager, true, 1000, 4, 8, 2, 10, 2, Duration.ofMinutes(10), 500);
+        when(userRepository.findBirthDateHistogram()).thenReturn(histogram());
+        when(userRepository.estimateUserCount()).thenReturn(1000L);
+        Query query = mock(Query.class);
+        when(entityManager.createNativeQuery(anyString())).thenReturn(query);
+        when(query.getSingleResult()).thenReturn("snapshot");
+        AtomicInteger readers = new AtomicInteger();
+        AtomicInteger maxReaders = new AtomicInteger();
+        // transactions of pool threads stand for reader connections
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            if (Thread.currentThread().getName().startsWith("user-range-")) {
+                maxReaders.accumulateAndGet(readers.incrementAndGet(), Math::max);
+            }
+            return null;
+        });
+        doAnswer(invocation -> {
+            if (Thread.currentThread().getName().startsWith("user-range-")) {
+                readers.decrementAndGet();
+            }
+            return null;
+        }).when(transactionManager).commit(any());
+        when(userRepository.streamUserDTOs(any(), any(), eq(500))).thenAnswer(invocation -> {
+            Thread.sleep(20);
+            return Stream.of(UserDTO.builder().id(1L).build());
+        });
+        ExecutorService requests = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(requests.submit(() -> sharedReaders.streamUsersByBirthDateRange(FROM, TO, user -> {
+                })));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            requests.shutdownNow();
+            sharedReaders.destroy();
+        }
+
+        // 4 requests of 8 sub-ranges, each would read 3 ahead on its own; those finding no reader free use one query
+        long oneQuery = mockingDetails(userService).getInvocations().stream()
+                .filter(invocation -> invocation.getMethod().getName().equals("streamUsersByBirthDateRange"))
+                .count();
+        verify(userRepository, times(8 * (4 - (int) oneQuery))).streamUserDTOs(any(), any(), eq(500));
+        assertTrue(oneQuery < 4);
+        assertTrue(maxReaders.get() <= 2, "reader connections in use: " + maxReaders.get());
+        assertEquals(0, readers.get());
+    }
+
+    @Test
+    public void testReaderConnectionsOverHalfOfPoolAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new UserRangeStreamService(userService, userRepository,
+                entityManager, transactionManager, true, 1000, 2, 2, 6, 10, 2, Duration.ofMinutes(10), 500));
+    }
+
+    @Test
+    public void testSubRangeFailureIsRethrown() {
+        when(userRepository.findBirthDateHistogram()).thenReturn(histogram());
+        when(userRepository.estimateUserCount()).thenReturn(1000L);
+        Query query = mock(Query.class);
+        when(entityManager.createNativeQuery(anyString())).thenReturn(query);
+        when(query.getSingleResult()).thenReturn("snapshot");
+        when(userRepository.streamUserDTOs(any(), any(), eq(500)))
+                .thenReturn(Stream.of(UserDTO.builder().id(1L).build()))
+                .thenThrow(new IllegalStateException("connection lost"));
+
+        assertThrows(IllegalStateException.class,
+                () -> userRangeStreamService.streamUsersByBirthDateRange(FROM, TO, user -> {
+                }));
+    }
+
+    /**
+     * 11 bounds, 10 buckets of 100 users each between 1950 and 2000.
+     */
+    private static List<LocalDate> histogram() {
+        List<LocalDate> bounds = new ArrayList<>();
+        for (int year = 1950; year <= 2000; year += 5) {
+            bounds.add(date(year));
+        }
+        return bounds;
+    }
+
+    private static LocalDate date(int year) {
+        return LocalDate.of(year, 1, 1);
+    }
+}
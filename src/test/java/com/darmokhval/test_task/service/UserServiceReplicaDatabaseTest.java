@@ -0,0 +1,64 @@
+package com.darmokhval.test_task.service;
+
+import com.darmokhval.test_task.EmbeddedDatabaseTest;
+import com.darmokhval.test_task.model.dto.UserDTO;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Users cache with read replica that lags behind primary.
+ */
+@TestPropertySource(properties = "user.replicas.enabled=true")
+public class UserServiceReplicaDatabaseTest extends EmbeddedDatabaseTest {
+    private static final String REPLICA = "lagging_replica";
+
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private CacheManager cacheManager;
+
+    // second database never receives writes of primary, so it stands in for replica lagging behind
+    @DynamicPropertySource
+    static void replica(DynamicPropertyRegistry registry) {
+        String url = createDatabase(REPLICA);
+        Flyway.configure()
+                .dataSource(database(REPLICA))
+                .locations("classpath:db/migration/common", "classpath:db/migration/plain")
+                .load()
+                .migrate();
+        registry.add("user.replicas.urls", () -> url);
+    }
+
+    @Test
+    public void deletedUserIsNotCachedFromReplicaTest() {
+        UserDTO user = userService.createUser(UserDTO.builder()
+                .firstName("First")
+                .lastName("Last")
+                .birthDate(LocalDate.of(1990, 1, 1))
+                .email("deleted@replica.test")
+                .build());
+        copyToReplica(user.getId());
+        assertEquals(user.getEmail(), userService.findUserById(user.getId()).getEmail());
+
+        userService.deleteUser(user.getId(), null);
+
+        assertThrows(UserRequestException.class, () -> userService.findUserById(user.getId()));
+        assertNull(cacheManager.getCache(UserService.USERS_CACHE).get(user.getId()));
+    }
+
+    private static void copyToReplica(Long id) {
+        new JdbcTemplate(database(REPLICA)).update("""
+                INSERT INTO "user" (id, first_name, last_name, birth_date, email, address, phone_number, version)
+                VALUES (?, 'First', 'Last', DATE '1990-01-01', 'deleted@replica.test', NULL, NULL, 0)""", id);
+    }
+}
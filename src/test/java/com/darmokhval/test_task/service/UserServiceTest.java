@@ -2,7 +2,9 @@ package com.darmokhval.test_task.service;
 
 import com.darmokhval.test_task.mapper.UserMapper;
 import com.darmokhval.test_task.model.dto.PartialUserDTO;
+import com.darmokhval.test_task.model.dto.UserChangeDTO;
 import com.darmokhval.test_task.model.dto.UserDTO;
+import com.darmokhval.test_task.model.dto.UserPageDTO;
 import com.darmokhval.test_task.model.entity.User;
 import com.darmokhval.test_task.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,12 +13,18 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.lang.reflect.Field;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -27,16 +35,23 @@ public class UserServiceTest {
     private UserRepository userRepository;
     @Mock
     private UserMapper userMapper;
+    @Mock
+    private EmailFilter emailFilter;
+    @Mock
+    private UserChangeService userChangeService;
     @InjectMocks
     private UserService userService;
     private final static int REQUIRED_AGE = 18;
 
     @BeforeEach
     public void setUp() throws Exception {
-        // Use reflection to set the private field `requiredAge`
-        Field field = UserService.class.getDeclaredField("requiredAge");
-        field.setAccessible(true); // Allows modifying private fields
-        field.setInt(userService, 18); // Set `requiredAge` to 18
+        // @Value fields aren't injected without Spring context
+        setField("requiredAge", REQUIRED_AGE);
+        setField("maxPageSize", 1000);
+        setField("searchMinLength", 3);
+        setField("searchMaxSize", 100);
+        setField("searchTimeoutSeconds", 2);
+        lenient().when(emailFilter.mightBeUsed(anyString())).thenReturn(true);
     }
 
     @Test
@@ -44,19 +59,18 @@ public class UserServiceTest {
         LocalDate from = LocalDate.of(2000, 1, 1);
         LocalDate to = LocalDate.of(2010, 12, 31);
 
-        User user1 = User.builder().id(1L).firstName("John").lastName("Doe").birthDate(LocalDate.of(2005, 6, 15)).build();
-        User user2 = User.builder().id(2L).firstName("Jane").lastName("Doe").birthDate(LocalDate.of(2007, 7, 20)).build();
+        UserDTO user1 = new UserDTO(1L, "John", "Doe", LocalDate.of(2005, 6, 15), "john@example.com", "123 Main St", "123-456-7890", 0L);
+        UserDTO user2 = new UserDTO(2L, "Jane", "Doe", LocalDate.of(2007, 7, 20), "jane@example.com", "456 Elm St", "987-654-3210", 0L);
 
-        when(userRepository.findAll(any(Specification.class))).thenReturn(List.of(user1, user2));
-        when(userMapper.entityToDTO(user1)).thenReturn(new UserDTO(1L, "John", "Doe", LocalDate.of(2005, 6, 15), "john@example.com", "123 Main St", "123-456-7890"));
-        when(userMapper.entityToDTO(user2)).thenReturn(new UserDTO(2L, "Jane", "Doe", LocalDate.of(2007, 7, 20), "jane@example.com", "456 Elm St", "987-654-3210"));
+        when(userRepository.findUserDTOs(any(Specification.class), any(Sort.class), eq(0))).thenReturn(List.of(user1, user2));
 
         List<UserDTO> result = userService.findUsersByBirthDateRange(from, to);
 
         assertEquals(2, result.size());
         assertEquals("John", result.get(0).getFirstName());
         assertEquals("Jane", result.get(1).getFirstName());
-        verify(userRepository, times(1)).findAll(any(Specification.class));
+        verify(userRepository, times(1)).findUserDTOs(any(Specification.class), any(Sort.class), eq(0));
+        verifyNoInteractions(userMapper);
     }
 
     @Test
@@ -71,7 +85,7 @@ public class UserServiceTest {
 
         assertEquals("'From' date must be earlier than 'To' date!", exception.getMessage());
 
-        verify(userRepository, never()).findAll(any(Specification.class));
+        verify(userRepository, never()).findUserDTOs(any(Specification.class), any(Sort.class), anyInt());
     }
 
     @Test
@@ -79,13 +93,87 @@ public class UserServiceTest {
         LocalDate from = LocalDate.of(2000, 1, 1);
         LocalDate to = LocalDate.of(2010, 12, 31);
 
-        when(userRepository.findAll(any(Specification.class))).thenReturn(List.of());
+        when(userRepository.findUserDTOs(any(Specification.class), any(Sort.class), eq(0))).thenReturn(List.of());
 
         List<UserDTO> result = userService.findUsersByBirthDateRange(from, to);
 
         assertTrue(result.isEmpty());
-        verify(userRepository, times(1)).findAll(any(Specification.class));
+        verify(userRepository, times(1)).findUserDTOs(any(Specification.class), any(Sort.class), eq(0));
+    }
+
+    @Test
+    public void findUsersByBirthDateRangePageHasNextTest() {
+        LocalDate from = LocalDate.of(2000, 1, 1);
+        LocalDate to = LocalDate.of(2010, 12, 31);
+
+        UserDTO user1 = UserDTO.builder().id(1L).birthDate(LocalDate.of(2005, 6, 15)).build();
+        UserDTO user2 = UserDTO.builder().id(2L).birthDate(LocalDate.of(2007, 7, 20)).build();
+        UserDTO user3 = UserDTO.builder().id(3L).birthDate(LocalDate.of(2008, 1, 2)).build();
+
+        when(userRepository.findUserDTOs(any(Specification.class), any(Sort.class), eq(3))).thenReturn(List.of(user1, user2, user3));
+
+        UserPageDTO page = userService.findUsersByBirthDateRangePage(from, to, null, null, 2);
+
+        assertEquals(2, page.getUsers().size());
+        assertTrue(page.isHasNext());
+        assertEquals(LocalDate.of(2007, 7, 20), page.getLastBirthDate());
+        assertEquals(2L, page.getLastId());
+    }
+
+    @Test
+    public void findUsersByBirthDateRangePageIncompleteCursorTest() {
+        LocalDate from = LocalDate.of(2000, 1, 1);
+        LocalDate to = LocalDate.of(2010, 12, 31);
+
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> userService.findUsersByBirthDateRangePage(from, to, LocalDate.of(2005, 1, 1), null, 10)
+        );
+
+        assertEquals("Both 'afterBirthDate' and 'afterId' must be specified to continue from a cursor!", exception.getMessage());
+        verify(userRepository, never()).findUserDTOs(any(Specification.class), any(Sort.class), anyInt());
+    }
+
+    @Test
+    public void streamUsersByBirthDateRangeTest() {
+        LocalDate from = LocalDate.of(2000, 1, 1);
+        LocalDate to = LocalDate.of(2010, 12, 31);
+
+        UserDTO user1 = UserDTO.builder().id(1L).firstName("John").build();
+        UserDTO user2 = UserDTO.builder().id(2L).firstName("Jane").build();
+
+        when(userRepository.streamUserDTOs(any(Specification.class), any(Sort.class), anyInt())).thenReturn(Stream.of(user1, user2));
+
+        List<UserDTO> result = new ArrayList<>();
+        userService.streamUsersByBirthDateRange(from, to, result::add);
+
+        assertEquals(2, result.size());
+        assertEquals("John", result.get(0).getFirstName());
+        assertEquals("Jane", result.get(1).getFirstName());
+    }
+
+    @Test
+    public void findUserByIdTest() {
+        when(userRepository.findUserDTO(any(Specification.class))).thenReturn(Optional.of(UserDTO.builder().id(1L).firstName("John").build()));
+
+        UserDTO result = userService.findUserById(1L);
+
+        assertEquals("John", result.getFirstName());
+    }
+
+    @Test
+    public void findUserByIdNotFoundTest() {
+        Long userId = 99999L;
+        when(userRepository.findUserDTO(any(Specification.class))).thenReturn(Optional.empty());
+
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> userService.findUserById(userId)
+        );
+
+        assertEquals(String.format("User with ID %s wasn't found", userId), exception.getMessage());
     }
+
     @Test
     public void createUserTest() {
         LocalDate validBirthDate = LocalDate.of(1999, 12, 31);
@@ -113,6 +201,7 @@ public class UserServiceTest {
         verify(userRepository).save(user);
         verify(userMapper).entityToDTO(user);
         verify(userMapper).dtoToEntity(userDTO);
+        verify(userChangeService).recordChange(UserChangeDTO.Type.CREATED, null, userDTO);
 
         assertEquals(userDTO.getFirstName(), createdUserDTO.getFirstName());
         assertEquals(userDTO.getLastName(), createdUserDTO.getLastName());
@@ -140,70 +229,88 @@ public class UserServiceTest {
         assertEquals(expectedMessage, exception.getMessage(), "Exception message did not match expected!");
     }
 
+    @Test
+    public void createUserSkipsLookupForUnseenEmailTest() {
+        UserDTO userDTO = UserDTO.builder().firstName("FirstName").lastName("LastName")
+                .birthDate(LocalDate.of(1999, 12, 31)).email("new@test.com").build();
+        User user = User.builder().firstName("FirstName").lastName("LastName")
+                .birthDate(LocalDate.of(1999, 12, 31)).email("new@test.com").build();
+        when(emailFilter.mightBeUsed("new@test.com")).thenReturn(false);
+        when(userMapper.dtoToEntity(userDTO)).thenReturn(user);
+        when(userRepository.save(user)).thenReturn(user);
+        when(userMapper.entityToDTO(user)).thenReturn(userDTO);
+
+        userService.createUser(userDTO);
+
+        verify(userRepository, never()).findIdByEmail(anyString());
+        verify(emailFilter).put("new@test.com");
+    }
+
     @Test
     public void updateUserTest() {
         Long userId = 1L;
-        User existingUser = User.builder().id(userId).firstName("John").lastName("Doe").email("john@gmail.com").build();
         UserDTO updatedUserDTO = UserDTO.builder().id(userId).firstName("John").lastName("Doe").email("johnny@example.com").build();
+        User updatedUser = User.builder().id(userId).firstName("John").lastName("Doe").email("johnny@example.com").version(1L).build();
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(existingUser));
-
-        existingUser.setEmail("johnny@example.com");
-        existingUser.setFirstName("John");
-        existingUser.setLastName("Doe");
-
-        when(userRepository.save(existingUser)).thenReturn(existingUser);
-        when(userMapper.entityToDTO(existingUser)).thenReturn(updatedUserDTO);
+        when(userRepository.updateReturning(userId, "John", "Doe", null, "johnny@example.com", null, null, null))
+                .thenReturn(Optional.of(updatedUser));
+        when(userMapper.entityToDTO(updatedUser)).thenReturn(updatedUserDTO);
 
         UserDTO result = userService.updateUser(updatedUserDTO, userId);
 
         assertEquals("johnny@example.com", result.getEmail());
         assertEquals("John", result.getFirstName());
-        verify(userRepository, times(1)).save(existingUser);
+        verify(userRepository, never()).findById(anyLong());
+        verify(userRepository, never()).findIdByEmail(anyString());
+        verify(emailFilter).put("johnny@example.com");
+        verify(userChangeService).recordChange(UserChangeDTO.Type.UPDATED, userId, updatedUserDTO);
     }
 
     @Test
     public void updateUserNotFoundTest() {
         Long userId = 99999L;
         UserDTO updatedUserDTO = UserDTO.builder().id(userId).firstName("Jane").lastName("Doe").email("jane@example.com").build();
-        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+        when(userRepository.updateReturning(eq(userId), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(Optional.empty());
         IllegalArgumentException exception = assertThrows(
                 IllegalArgumentException.class,
                 () -> userService.updateUser(updatedUserDTO, userId)
         );
         assertEquals(String.format("User with ID %s wasn't found", userId), exception.getMessage());
-        verify(userRepository, never()).save(any(User.class));
+        verify(userRepository, never()).existsById(anyLong());
+    }
+
+    @Test
+    public void updateUserStaleVersionTest() {
+        Long userId = 1L;
+        UserDTO updatedUserDTO = UserDTO.builder().firstName("Jane").lastName("Doe").email("jane@example.com").version(3L).build();
+        when(userRepository.updateReturning(eq(userId), any(), any(), any(), any(), any(), any(), eq(3L)))
+                .thenReturn(Optional.empty());
+        when(userRepository.existsById(userId)).thenReturn(true);
+
+        assertThrows(OptimisticLockingFailureException.class, () -> userService.updateUser(updatedUserDTO, userId));
+        verify(emailFilter, never()).put(anyString());
     }
 
     @Test
     public void updateUserEmailAlreadyTakenTest() {
         Long userId = 1L;
-        Long otherUserId = 2L;
-        User existingUser = User.builder().id(userId).firstName("John").lastName("Doe").email("john@example.com").build();
-        User otherUser = User.builder().id(otherUserId).firstName("Jane").lastName("Smith").email("jane@example.com").build();
         UserDTO updatedUserDTO = UserDTO.builder().id(userId).firstName("John").lastName("Doe").email("jane@example.com").build();
 
-        when(userRepository.findById(userId)).thenReturn(Optional.of(existingUser));
-        when(userRepository.findByEmail("jane@example.com")).thenReturn(Optional.of(otherUser));
+        when(userRepository.updateReturning(eq(userId), any(), any(), any(), any(), any(), any(), any()))
+                .thenThrow(new DataIntegrityViolationException(
+                        "duplicate key value violates unique constraint \"" + UserRepository.EMAIL_UNIQUE_INDEX + "\""));
         IllegalArgumentException exception = assertThrows(
                 IllegalArgumentException.class,
                 () -> userService.updateUser(updatedUserDTO, userId)
         );
 
         assertEquals(String.format("Email %s already taken!", "jane@example.com"), exception.getMessage());
-        verify(userRepository, never()).save(any(User.class));
     }
 
     @Test
     public void patchUserTest() {
         Long userId = 1L;
-        User existingUser = User.builder()
-                .id(userId)
-                .firstName("John")
-                .lastName("Doe")
-                .email("john@example.com")
-                .birthDate(LocalDate.of(2000, 1, 1))
-                .build();
         PartialUserDTO patchDTO = PartialUserDTO.builder()
                 .email("johnny@example.com")
                 .firstName("Johnny")
@@ -213,22 +320,35 @@ public class UserServiceTest {
                 .firstName("Johnny")
                 .lastName("Doe")
                 .email("johnny@example.com")
-                .birthDate(existingUser.getBirthDate())
+                .birthDate(LocalDate.of(2000, 1, 1))
                 .build();
         UserDTO resultingDTO = UserDTO.builder()
                 .id(userId)
                 .firstName("Johnny")
                 .lastName("Doe")
                 .email("johnny@example.com")
-                .birthDate(existingUser.getBirthDate())
+                .birthDate(updatedUser.getBirthDate())
                 .build();
-        when(userRepository.findById(userId)).thenReturn(Optional.of(existingUser));
-        when(userRepository.save(existingUser)).thenReturn(updatedUser);
+        when(userRepository.patchReturning(userId, "Johnny", null, null, "johnny@example.com", null, null, null))
+                .thenReturn(Optional.of(updatedUser));
         when(userMapper.entityToDTO(updatedUser)).thenReturn(resultingDTO);
         UserDTO result = userService.patchUser(patchDTO, userId);
         assertEquals("Johnny", result.getFirstName());
         assertEquals("johnny@example.com", result.getEmail());
-        verify(userRepository, times(1)).save(existingUser);
+        verify(userRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    public void patchUserTooYoungTest() {
+        PartialUserDTO patchDTO = PartialUserDTO.builder().birthDate(LocalDate.now().minusYears(REQUIRED_AGE - 2)).build();
+
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> userService.patchUser(patchDTO, 1L)
+        );
+
+        assertEquals(String.format("User must be older than %s to use this site!", REQUIRED_AGE), exception.getMessage());
+        verifyNoInteractions(userRepository);
     }
 
     @Test
@@ -236,7 +356,8 @@ public class UserServiceTest {
         Long userId = 99999L;
         PartialUserDTO patchDTO = PartialUserDTO.builder().firstName("Alice").build();
 
-        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+        when(userRepository.patchReturning(eq(userId), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(Optional.empty());
 
         IllegalArgumentException exception = assertThrows(
                 IllegalArgumentException.class,
@@ -244,33 +365,144 @@ public class UserServiceTest {
         );
 
         assertEquals(String.format("User with ID %s wasn't found", userId), exception.getMessage());
-        verify(userRepository, never()).save(any(User.class));
     }
 
     @Test
     public void deleteUserTest() {
         Long validId = 1L;
-        User validUser = User.builder().id(validId).firstName("John").lastName("Doe").build();
-        when(userRepository.findById(validId)).thenReturn(Optional.of(validUser));
+        when(userRepository.deleteUserById(validId, null)).thenReturn(1);
 
-        String result = userService.deleteUser(1L);
+        String result = userService.deleteUser(1L, null);
         assertEquals(String.format("User with ID %s was deleted", validId), result);
-        verify(userRepository, times(1)).deleteById(validId);
+        verify(userRepository, never()).findById(anyLong());
+        verify(userChangeService).recordChange(UserChangeDTO.Type.DELETED, validId, null);
     }
 
     @Test
     public void deleteUserInvalidIdTest() {
         Long invalidId = 99999L;
-        when(userRepository.findById(invalidId)).thenReturn(Optional.empty());
+        when(userRepository.deleteUserById(invalidId, null)).thenReturn(0);
 
         IllegalArgumentException exception = assertThrows(
                 IllegalArgumentException.class,
-                () -> userService.deleteUser(invalidId)
+                () -> userService.deleteUser(invalidId, null)
         );
         assertEquals(
                 String.format("User with ID %s wasn't found", invalidId),
                 exception.getMessage()
         );
-        verify(userRepository, never()).deleteById(invalidId);
+    }
+
+    @Test
+    public void deleteUserStaleVersionTest() {
+        Long userId = 1L;
+        when(userRepository.deleteUserById(userId, 2L)).thenReturn(0);
+        when(userRepository.existsById(userId)).thenReturn(true);
+
+        assertThrows(OptimisticLockingFailureException.class, () -> userService.deleteUser(userId, 2L));
+        verifyNoInteractions(userChangeService);
+    }
+
+    @Test
+    public void searchUsersReturnsPageTest() {
+        UserDTO user1 = UserDTO.builder().id(3L).firstName("Johanna").build();
+        UserDTO user2 = UserDTO.builder().id(5L).firstName("John").build();
+        when(userRepository.findUserDTOs(any(Specification.class), eq(Sort.by("id")), eq(2), eq(2)))
+                .thenReturn(new ArrayList<>(List.of(user1, user2)));
+
+        UserPageDTO page = userService.searchUsers(" joh ", "prefix", null, null, 1L, 1);
+
+        assertEquals(1, page.getUsers().size());
+        assertTrue(page.isHasNext());
+        assertEquals(3L, page.getLastId());
+    }
+
+    @Test
+    public void searchUsersInvalidRequestTest() {
+        IllegalArgumentException tooShort = assertThrows(IllegalArgumentException.class,
+                () -> userService.searchUsers("jo ", "prefix", null, null, null, 20));
+        assertEquals("Search text must be at least 3 characters long!", tooShort.getMessage());
+        IllegalArgumentException invalidMode = assertThrows(IllegalArgumentException.class,
+                () -> userService.searchUsers("john", "regex", null, null, null, 20));
+        assertEquals("Unsupported search mode regex, use prefix or fuzzy!", invalidMode.getMessage());
+        IllegalArgumentException halfRange = assertThrows(IllegalArgumentException.class,
+                () -> userService.searchUsers("john", "fuzzy", LocalDate.of(2000, 1, 1), null, null, 20));
+        assertEquals("Both 'from' and 'to' dates must be specified!", halfRange.getMessage());
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    public void searchUsersTooBroadTest() {
+        when(userRepository.findUserDTOs(any(Specification.class), any(Sort.class), anyInt(), anyInt()))
+                .thenThrow(new QueryTimeoutException("canceling statement due to statement timeout"));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> userService.searchUsers("gen", "fuzzy", null, null, null, 20));
+        assertEquals("Search is too broad, use longer text or birth date range!", exception.getMessage());
+    }
+
+    @Test
+    public void birthdayRangesTest() {
+        assertEquals(List.of(new UserService.MonthDayRange(610, 709)),
+                UserService.birthdayRanges(LocalDate.of(2025, 6, 10), 30));
+        // across new year
+        assertEquals(List.of(new UserService.MonthDayRange(1220, 1231), new UserService.MonthDayRange(101, 118)),
+                UserService.birthdayRanges(LocalDate.of(2025, 12, 20), 30));
+        // February 29th is celebrated on February 28th in non-leap years
+        assertEquals(List.of(new UserService.MonthDayRange(220, 229)),
+                UserService.birthdayRanges(LocalDate.of(2025, 2, 20), 9));
+        assertEquals(List.of(new UserService.MonthDayRange(220, 228)),
+                UserService.birthdayRanges(LocalDate.of(2024, 2, 20), 9));
+        assertEquals(List.of(new UserService.MonthDayRange(301, 301)),
+                UserService.birthdayRanges(LocalDate.of(2025, 3, 1), 1));
+        // whole year, every month-day exactly once
+        assertEquals(List.of(new UserService.MonthDayRange(301, 1231), new UserService.MonthDayRange(101, 300)),
+                UserService.birthdayRanges(LocalDate.of(2025, 3, 1), 366));
+        assertEquals(List.of(new UserService.MonthDayRange(101, 1231)),
+                UserService.birthdayRanges(LocalDate.of(2025, 1, 1), 366));
+    }
+
+    @Test
+    public void findUpcomingBirthdaysContinuesIntoNextYearTest() {
+        UserDTO december = UserDTO.builder().id(4L).birthDate(LocalDate.of(1990, 12, 30)).build();
+        UserDTO january = UserDTO.builder().id(2L).birthDate(LocalDate.of(1985, 1, 5)).build();
+        when(userRepository.findUserDTOs(any(Specification.class), eq(Sort.by("birthMonthDay", "id")), anyInt()))
+                .thenReturn(List.of(december))
+                .thenReturn(List.of(january));
+
+        UserPageDTO page = userService.findUpcomingBirthdays(LocalDate.of(2025, 12, 20), 30, null, null, 1);
+
+        assertEquals(List.of(december), page.getUsers());
+        assertTrue(page.isHasNext());
+        verify(userRepository).findUserDTOs(any(Specification.class), any(Sort.class), eq(2));
+        verify(userRepository).findUserDTOs(any(Specification.class), any(Sort.class), eq(1));
+    }
+
+    @Test
+    public void findUpcomingBirthdaysCursorSkipsReadRangeTest() {
+        when(userRepository.findUserDTOs(any(Specification.class), any(Sort.class), anyInt())).thenReturn(List.of());
+
+        UserPageDTO page = userService.findUpcomingBirthdays(LocalDate.of(2025, 12, 20), 30,
+                LocalDate.of(1985, 1, 5), 2L, 10);
+
+        assertFalse(page.isHasNext());
+        verify(userRepository, times(1)).findUserDTOs(any(Specification.class), any(Sort.class), eq(11));
+    }
+
+    @Test
+    public void findUpcomingBirthdaysInvalidDaysTest() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> userService.findUpcomingBirthdays(LocalDate.of(2025, 1, 1), 0, null, null, 10));
+        assertEquals("Number of days must be between 1 and 366!", exception.getMessage());
+        verifyNoInteractions(userRepository);
+    }
+
+    /**
+     * Set private int field of userService by reflection.
+     */
+    private void setField(String name, int value) throws Exception {
+        Field field = UserService.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.setInt(userService, value);
     }
 }
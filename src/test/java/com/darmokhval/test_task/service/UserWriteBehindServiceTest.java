@@ -0,0 +1,115 @@
+package com.darmokhval.test_task.service;
+
+import com.darmokhval.test_task.model.dto.UserBatchErrorDTO;
+import com.darmokhval.test_task.model.dto.UserBatchResultDTO;
+import com.darmokhval.test_task.model.dto.UserCreationStatusDTO;
+import com.darmokhval.test_task.model.dto.UserDTO;
+import com.darmokhval.test_task.model.entity.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UserWriteBehindServiceTest {
+    @Mock
+    private UserBatchService userBatchService;
+    private UserWriteBehindService userWriteBehindService;
+    private final static int REQUIRED_AGE = 18;
+
+    @BeforeEach
+    public void setUp() {
+        userWriteBehindService = new UserWriteBehindService(userBatchService, new SimpleMeterRegistry(),
+                REQUIRED_AGE, 2, 10, Duration.ofMinutes(1), 100);
+    }
+
+    @Test
+    public void submitRejectedWhenNotRunningTest() {
+        assertThrows(RejectedExecutionException.class, () -> userWriteBehindService.submit(user("first@example.com")));
+    }
+
+    @Test
+    public void submitThrowExceptionTooYoungTest() {
+        UserDTO userDTO = user("young@example.com");
+        userDTO.setBirthDate(LocalDate.now().minusYears(REQUIRED_AGE - 2));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> userWriteBehindService.submit(userDTO));
+        assertEquals(String.format("User must be older than %s to register!", REQUIRED_AGE), exception.getMessage());
+    }
+
+    @Test
+    public void queuedUsersAreWrittenInOneBatchTest() throws Exception {
+        startWithoutWriter();
+        UserCreationStatusDTO first = userWriteBehindService.submit(user("first@example.com"));
+        UserCreationStatusDTO second = userWriteBehindService.submit(user("taken@example.com"));
+        assertThrows(RejectedExecutionException.class, () -> userWriteBehindService.submit(user("third@example.com")));
+        when(userBatchService.createChunk(anyList(), any())).thenAnswer(invocation -> {
+            BiConsumer<Integer, User> listener = invocation.getArgument(1);
+            listener.accept(0, User.builder().id(7L).build());
+            UserBatchResultDTO result = new UserBatchResultDTO();
+            result.getErrors().add(UserBatchErrorDTO.builder().index(1).messages(List.of("Email taken@example.com already taken!")).build());
+            return result;
+        });
+
+        assertEquals(UserCreationStatusDTO.Status.QUEUED, userWriteBehindService.findStatus(first.getTrackingId()).getStatus());
+        assertTrue(userWriteBehindService.writeNextBatch());
+
+        verify(userBatchService).createChunk(argThat((List<UserDTO> users) -> users.size() == 2), any());
+        UserCreationStatusDTO created = userWriteBehindService.findStatus(first.getTrackingId());
+        assertEquals(UserCreationStatusDTO.Status.CREATED, created.getStatus());
+        assertEquals(7L, created.getUserId());
+        UserCreationStatusDTO rejected = userWriteBehindService.findStatus(second.getTrackingId());
+        assertEquals(UserCreationStatusDTO.Status.REJECTED, rejected.getStatus());
+        assertEquals(List.of("Email taken@example.com already taken!"), rejected.getMessages());
+    }
+
+    @Test
+    public void failedBatchMarksUsersRejectedTest() throws Exception {
+        startWithoutWriter();
+        UserCreationStatusDTO status = userWriteBehindService.submit(user("first@example.com"));
+        when(userBatchService.createChunk(anyList(), any())).thenThrow(new IllegalStateException("database is down"));
+
+        userWriteBehindService.writeNextBatch();
+
+        assertEquals(UserCreationStatusDTO.Status.REJECTED, userWriteBehindService.findStatus(status.getTrackingId()).getStatus());
+    }
+
+    @Test
+    public void findStatusUnknownTrackingIdTest() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> userWriteBehindService.findStatus("unknown"));
+        assertEquals("Registration with tracking ID unknown wasn't found", exception.getMessage());
+    }
+
+    /**
+     * Accept submissions, batches are written by test itself.
+     */
+    private void startWithoutWriter() throws Exception {
+        Field field = UserWriteBehindService.class.getDeclaredField("running");
+        field.setAccessible(true);
+        field.setBoolean(userWriteBehindService, true);
+    }
+
+    private static UserDTO user(String email) {
+        return UserDTO.builder()
+                .firstName("John")
+                .lastName("Doe")
+                .birthDate(LocalDate.of(1990, 1, 1))
+                .email(email)
+                .build();
+    }
+}